@@ -0,0 +1,43 @@
+package pl.asap.asapbe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.asap.asapbe.cache.UserAuthDetailsCache;
+import pl.asap.asapbe.security.Pbkdf2PasswordHasher;
+import pl.asap.asapbe.services.AuthServiceImpl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cheap AuthServiceImpl operations executed on every registration or login - legacy MD5 password digest, still
+ * used to verify not yet migrated passwords, and token generation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthServiceBenchmark {
+
+    @Param({"8", "64", "1024"})
+    public int passwordLength;
+
+    private AuthServiceImpl authServiceImpl;
+    private String password;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        authServiceImpl = new AuthServiceImpl(null, new UserAuthDetailsCache(0, 0), new Pbkdf2PasswordHasher(1), null, 0);
+        StringBuilder passwordBuilder = new StringBuilder(passwordLength);
+        for (int i = 0; i < passwordLength; i++)
+            passwordBuilder.append((char) ('a' + i % 26));
+        password = passwordBuilder.toString();
+    }
+
+    @Benchmark
+    public String encryptPassword() {
+        return authServiceImpl.encryptPassword(password);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return authServiceImpl.generateToken();
+    }
+}
@@ -0,0 +1,61 @@
+package pl.asap.asapbe.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.Status;
+import pl.asap.asapbe.entities.TaskEntity;
+import pl.asap.asapbe.entities.UserEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of list endpoint bodies (lists of TaskEntity with assignees and of UserEntity) with an ObjectMapper
+ * configured the way Spring MVC configures the one used by controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonSerializationBenchmark {
+
+    private static final int ASSIGNEES = 50;
+
+    @Param({"10", "1000", "100000"})
+    public int listSize;
+
+    private ObjectMapper objectMapper;
+    private List<TaskEntity> tasks;
+    private List<UserEntity> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        users = new ArrayList<>(listSize);
+        for (long i = 0; i < listSize; i++) {
+            UserEntity user = new UserEntity("First name " + i, "Last name " + i, "user_" + i + "@gmail.com", "password");
+            user.setId(i);
+            users.add(user);
+        }
+        tasks = new ArrayList<>(listSize);
+        for (long i = 0; i < listSize; i++) {
+            TaskEntity task = new TaskEntity("Task " + i, "Description of task " + i, Status.values()[(int) (i % 4)], Priority.values()[(int) (i % 3)]);
+            task.setId(i);
+            task.setAssignee(users.get((int) (i % Math.min(ASSIGNEES, listSize))));
+            tasks.add(task);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeTasks() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(tasks);
+    }
+
+    @Benchmark
+    public byte[] serializeUsers() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+}
@@ -0,0 +1,93 @@
+package pl.asap.asapbe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares database side of the old login path (whole user row matched by email and password hash in SQL)
+ * with the new one (id and password hash fetched by unique email, compared in process in constant time).
+ * Password hashing itself is left out, it is covered by PasswordHashingBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoginLookupBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final String STORED_HASH = "pbkdf2$100000$c2FsdHNhbHRzYWx0c2FsdA==$aGFzaGhhc2hoYXNoaGFzaGhhc2hoYXNoaGFzaGhhc2g=";
+
+    @Param({"1000", "100000", "1000000"})
+    public int users;
+
+    @Param({"true", "false"})
+    public boolean emailIndexed;
+
+    private Connection connection;
+    private PreparedStatement findByEmailAndPassword;
+    private PreparedStatement findCredentialsByEmail;
+    private byte[] storedHashBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:login_lookup_" + users + "_" + emailIndexed);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table user_entity (id bigint not null, email varchar(255) not null, first_name varchar(255), last_name varchar(255), password varchar(255), primary key (id))");
+            if (emailIndexed)
+                statement.execute("alter table user_entity add constraint ux_user_entity_email unique (email)");
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("insert into user_entity (id, email, first_name, last_name, password) values (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < users; i++) {
+                insert.setLong(1, i);
+                insert.setString(2, email(i));
+                insert.setString(3, "First name " + i);
+                insert.setString(4, "Last name " + i);
+                insert.setString(5, STORED_HASH);
+                insert.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0)
+                    insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        findByEmailAndPassword = connection.prepareStatement("select id, email, first_name, last_name, password from user_entity where email = ? and password = ?");
+        findCredentialsByEmail = connection.prepareStatement("select id, password from user_entity where email = ?");
+        storedHashBytes = STORED_HASH.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long oldFindByEmailAndPassword() throws SQLException {
+        findByEmailAndPassword.setString(1, email(ThreadLocalRandom.current().nextInt(users)));
+        findByEmailAndPassword.setString(2, STORED_HASH);
+        try (ResultSet resultSet = findByEmailAndPassword.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : -1;
+        }
+    }
+
+    @Benchmark
+    public long newFindCredentialsByEmail() throws SQLException {
+        findCredentialsByEmail.setString(1, email(ThreadLocalRandom.current().nextInt(users)));
+        try (ResultSet resultSet = findCredentialsByEmail.executeQuery()) {
+            if (resultSet.next() && MessageDigest.isEqual(storedHashBytes, resultSet.getString(2).getBytes(StandardCharsets.UTF_8)))
+                return resultSet.getLong(1);
+            return -1;
+        }
+    }
+
+    private static String email(int userNumber) {
+        return "user_" + userNumber + "@gmail.com";
+    }
+}
@@ -0,0 +1,50 @@
+package pl.asap.asapbe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.asap.asapbe.cache.UserAuthDetailsCache;
+import pl.asap.asapbe.config.PasswordHashingConfig;
+import pl.asap.asapbe.security.Pbkdf2PasswordHasher;
+import pl.asap.asapbe.services.AuthServiceImpl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login password verification throughput and latency distribution (see p0.99 of SampleTime mode) for a given
+ * PBKDF2 cost factor and hashing pool size, with 16 concurrent request threads.
+ * Used to pick auth.password.pbkdf2-iterations and auth.password.hashing-threads against login latency budget.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(16)
+public class PasswordHashingBenchmark {
+
+    @Param({"10000", "50000", "100000", "200000"})
+    public int iterations;
+
+    @Param({"2", "4", "8"})
+    public int hashingThreads;
+
+    private ExecutorService passwordHashingExecutor;
+    private AuthServiceImpl authServiceImpl;
+    private String hashedPassword;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        passwordHashingExecutor = new PasswordHashingConfig().passwordHashingExecutor(hashingThreads, 1000);
+        authServiceImpl = new AuthServiceImpl(null, new UserAuthDetailsCache(0, 0),
+                new Pbkdf2PasswordHasher(iterations), passwordHashingExecutor, 60_000);
+        hashedPassword = authServiceImpl.hashPassword("qwerty123");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        passwordHashingExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return authServiceImpl.verifyPassword("qwerty123", hashedPassword);
+    }
+}
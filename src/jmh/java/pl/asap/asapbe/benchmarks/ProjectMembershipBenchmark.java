@@ -0,0 +1,61 @@
+package pl.asap.asapbe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import pl.asap.asapbe.cache.ProjectMembershipCache;
+import pl.asap.asapbe.entities.ProjectEntity;
+import pl.asap.asapbe.entities.UserAuthDetailsEntity;
+import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.services.ProjectServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProjectServiceImpl.isUserPartOfProject, the permission check run by nearly every project and task request, for
+ * projects of a given size. With membership cache enabled the check is answered from the sorted member ids; with it
+ * disabled every call goes to the (stubbed, zero latency) membership count query, so the difference is a lower
+ * bound of what the cache saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProjectMembershipBenchmark {
+
+    private static final long PROJECT_ID = 1;
+
+    @Param({"10", "1000", "100000"})
+    public int members;
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private ProjectServiceImpl projectServiceImpl;
+    private ProjectEntity projectEntity;
+    private UserAuthDetailsEntity[] requestingUsers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Number> memberIds = new ArrayList<>(members);
+        for (long userId = 0; userId < members; userId++)
+            memberIds.add(userId * 2);//every second user is a member
+        ProjectRepository projectRepository = RepositoryStub.of(ProjectRepository.class)
+                .answer("findMemberIds", args -> memberIds)
+                .answer("countMembership", args -> (Long) args[1] % 2 == 0 && (Long) args[1] < members * 2L ? 1L : 0L)
+                .build();
+        ProjectMembershipCache projectMembershipCache = cacheEnabled ? new ProjectMembershipCache(1000, 3600) : new ProjectMembershipCache(0, 0);
+        projectServiceImpl = new ProjectServiceImpl(null, null, projectRepository, projectMembershipCache, null, null);
+
+        projectEntity = new ProjectEntity("Benchmark project");
+        projectEntity.setId(PROJECT_ID);
+        requestingUsers = new UserAuthDetailsEntity[1024];
+        for (int i = 0; i < requestingUsers.length; i++)
+            requestingUsers[i] = new UserAuthDetailsEntity((long) ThreadLocalRandom.current().nextInt(members * 2), "token-" + i);
+    }
+
+    @Benchmark
+    public boolean isUserPartOfProject() {
+        return projectServiceImpl.isUserPartOfProject(requestingUsers[ThreadLocalRandom.current().nextInt(requestingUsers.length)], projectEntity);
+    }
+}
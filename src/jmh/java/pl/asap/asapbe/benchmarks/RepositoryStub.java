@@ -0,0 +1,39 @@
+package pl.asap.asapbe.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Minimal in process stand-in for Spring Data repository interfaces, so that service methods can be measured
+ * without a database or a mocking library on the benchmark path. Calls of methods without an answer fail.
+ */
+final class RepositoryStub<T> {
+
+    private final Class<T> repositoryType;
+    private final Map<String, Function<Object[], Object>> answers = new HashMap<>();
+
+    private RepositoryStub(Class<T> repositoryType) {
+        this.repositoryType = repositoryType;
+    }
+
+    static <T> RepositoryStub<T> of(Class<T> repositoryType) {
+        return new RepositoryStub<>(repositoryType);
+    }
+
+    RepositoryStub<T> answer(String methodName, Function<Object[], Object> answer) {
+        answers.put(methodName, answer);
+        return this;
+    }
+
+    T build() {
+        Object stub = Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer == null)
+                throw new UnsupportedOperationException(repositoryType.getSimpleName() + "." + method.getName() + " is not stubbed");
+            return answer.apply(args);
+        });
+        return repositoryType.cast(stub);
+    }
+}
@@ -0,0 +1,60 @@
+package pl.asap.asapbe.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.Status;
+import pl.asap.asapbe.response_model.TaskBoardEvent;
+import pl.asap.asapbe.response_model.TaskSummary;
+import pl.asap.asapbe.stream.TaskBoardBroadcaster;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fan-out of one task board event to all subscribers of a project - time from publishing until every subscriber
+ * received it, subscribers do nothing with events (in-memory sinks instead of HTTP responses).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskBoardBroadcastBenchmark {
+
+    @Param({"100", "10000"})
+    public int subscribers;
+
+    private TaskBoardBroadcaster taskBoardBroadcaster;
+    private final AtomicLong delivered = new AtomicLong();
+    private long published;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        taskBoardBroadcaster = new TaskBoardBroadcaster(new ObjectMapper(), 64, 60, 4, 5000);
+        for (int i = 0; i < subscribers; i++) {
+            taskBoardBroadcaster.subscribe(1L, new TaskBoardBroadcaster.Sink() {
+                public void send(String name, long id, String data) {
+                    delivered.incrementAndGet();
+                }
+
+                public void close() {
+                }
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        taskBoardBroadcaster.shutdown();
+    }
+
+    @Benchmark
+    public long publishAndDeliver() {
+        published++;
+        taskBoardBroadcaster.publish(TaskBoardEvent.changed(TaskBoardEvent.Type.MODIFIED, 1L,
+                new TaskSummary(1L, "Benchmark task", "Description", Status.IN_PROGRESS, Priority.HIGH, null), published));
+        long expected = published * subscribers;
+        while (delivered.get() < expected)
+            Thread.yield();
+        return expected;
+    }
+}
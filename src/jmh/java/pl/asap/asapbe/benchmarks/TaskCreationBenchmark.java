@@ -0,0 +1,86 @@
+package pl.asap.asapbe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import pl.asap.asapbe.AsapBeApplication;
+import pl.asap.asapbe.entities.*;
+import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.ProjectVersionRepository;
+import pl.asap.asapbe.repositories.TaskRepository;
+import pl.asap.asapbe.repositories.UserAuthDetailsRepository;
+import pl.asap.asapbe.repositories.UserRepository;
+import pl.asap.asapbe.services.TaskServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Integration benchmark of TaskServiceImpl.performTaskCreation - whole application context (without web server)
+ * on an in-memory H2 database, project seeded with a given number of tasks. Creation is expected to cost the same
+ * regardless of how many tasks the project already has.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskCreationBenchmark {
+
+    private static final int SEED_BATCH_SIZE = 5_000;
+    private static final String TOKEN = "benchmark-token";
+
+    @Param({"0", "1000", "100000"})
+    public int tasksInProject;
+
+    private ConfigurableApplicationContext context;
+    private TaskServiceImpl taskServiceImpl;
+    private Long projectId;
+    private long createdTasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(AsapBeApplication.class)
+                .web(WebApplicationType.NONE)
+                //command line arguments, unlike default properties, take precedence over application.properties (in-memory database is created with its credentials)
+                .run("--spring.datasource.url=jdbc:h2:mem:task_creation_" + tasksInProject + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--auth.password.pbkdf2-iterations=1000",
+                        "--logging.level.root=WARN");
+        taskServiceImpl = context.getBean(TaskServiceImpl.class);
+
+        UserEntity user = context.getBean(UserRepository.class).save(new UserEntity("Bench", "Mark", "benchmark@gmail.com", "password"));
+        context.getBean(UserAuthDetailsRepository.class).save(new UserAuthDetailsEntity(user.getId(), TOKEN));
+        ProjectEntity project = new ProjectEntity("Benchmark project");
+        project.setSupervisor(user);
+        project = context.getBean(ProjectRepository.class).save(project);
+        projectId = project.getId();
+        context.getBean(ProjectVersionRepository.class).save(new ProjectVersionEntity(projectId));//creation increments it
+
+        TaskRepository taskRepository = context.getBean(TaskRepository.class);
+        List<TaskEntity> seedBatch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < tasksInProject; i++) {
+            TaskEntity task = new TaskEntity("Seeded task " + i, "Description of task " + i, Status.OPEN, Priority.NORMAL);
+            task.setProject(project);
+            task.setAssignee(user);
+            seedBatch.add(task);
+            if (seedBatch.size() == SEED_BATCH_SIZE) {
+                taskRepository.saveAll(seedBatch);
+                seedBatch.clear();
+            }
+        }
+        taskRepository.saveAll(seedBatch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TaskEntity performTaskCreation() {
+        TaskEntity task = new TaskEntity("Created task " + createdTasks++, "Description", Status.OPEN, Priority.HIGH);
+        return taskServiceImpl.performTaskCreation(TOKEN, task, projectId);
+    }
+}
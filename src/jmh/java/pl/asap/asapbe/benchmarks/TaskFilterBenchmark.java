@@ -0,0 +1,117 @@
+package pl.asap.asapbe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtering tasks of a seeded million task project the old way (every task of the project fetched and filtered
+ * in process, as clients did with getAllTasksFromProject) versus in database with the criteria used by
+ * TaskSpecifications, against an in-memory H2 table shaped like task_entity with the indexes declared on TaskEntity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TaskFilterBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final long PROJECT_ID = 1;
+    private static final int ASSIGNEES = 200;
+    private static final int OPEN = 0, IN_PROGRESS = 1, HIGH = 2;
+
+    @Param({"1000000"})
+    public int tasks;
+
+    private Connection connection;
+    private PreparedStatement allTasksOfProject;
+    private PreparedStatement byStatusAndPriority;
+    private PreparedStatement byAssignee;
+    private PreparedStatement byTitlePrefix;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:task_filter_" + tasks);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table task_entity (id bigint not null, title varchar(255), description varchar(255), status integer, priority integer not null, user_id bigint, project_id bigint, primary key (id))");
+            statement.execute("create index ix_task_entity_project_status_priority_id on task_entity (project_id, status, priority, id)");
+            statement.execute("create index ix_task_entity_project_user_id on task_entity (project_id, user_id)");
+            statement.execute("create index ix_task_entity_project_title on task_entity (project_id, title)");
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("insert into task_entity (id, title, description, status, priority, user_id, project_id) values (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < tasks; i++) {
+                insert.setLong(1, i);
+                insert.setString(2, "Task " + i);
+                insert.setString(3, "Description of task " + i);
+                insert.setInt(4, i % 4);
+                insert.setInt(5, (i / 4) % 3);
+                insert.setLong(6, i % ASSIGNEES);
+                insert.setLong(7, PROJECT_ID);
+                insert.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0)
+                    insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        allTasksOfProject = connection.prepareStatement("select id, title, description, status, priority, user_id from task_entity where project_id = ?");
+        byStatusAndPriority = connection.prepareStatement("select id, title, description, status, priority, user_id from task_entity where project_id = ? and status in (?, ?) and priority in (?) order by id limit 20");
+        byAssignee = connection.prepareStatement("select id, title, description, status, priority, user_id from task_entity where project_id = ? and user_id = ? order by id limit 20");
+        byTitlePrefix = connection.prepareStatement("select id, title, description, status, priority, user_id from task_entity where project_id = ? and title like ? escape '\\' order by id limit 20");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int clientSideStatusAndPriority() throws SQLException {
+        allTasksOfProject.setLong(1, PROJECT_ID);
+        int matching = 0;
+        try (ResultSet resultSet = allTasksOfProject.executeQuery()) {
+            while (resultSet.next() && matching < 20) {
+                int status = resultSet.getInt(4);
+                if ((status == OPEN || status == IN_PROGRESS) && resultSet.getInt(5) == HIGH)
+                    matching++;
+            }
+        }
+        return matching;
+    }
+
+    @Benchmark
+    public int databaseStatusAndPriority() throws SQLException {
+        byStatusAndPriority.setLong(1, PROJECT_ID);
+        byStatusAndPriority.setInt(2, OPEN);
+        byStatusAndPriority.setInt(3, IN_PROGRESS);
+        byStatusAndPriority.setInt(4, HIGH);
+        return count(byStatusAndPriority);
+    }
+
+    @Benchmark
+    public int databaseAssignee() throws SQLException {
+        byAssignee.setLong(1, PROJECT_ID);
+        byAssignee.setLong(2, 42);
+        return count(byAssignee);
+    }
+
+    @Benchmark
+    public int databaseTitlePrefix() throws SQLException {
+        byTitlePrefix.setLong(1, PROJECT_ID);
+        byTitlePrefix.setString(2, "Task 4242%");
+        return count(byTitlePrefix);
+    }
+
+    private int count(PreparedStatement query) throws SQLException {
+        int rows = 0;
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next())
+                rows++;
+        }
+        return rows;
+    }
+}
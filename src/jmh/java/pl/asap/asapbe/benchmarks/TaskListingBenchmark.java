@@ -0,0 +1,141 @@
+package pl.asap.asapbe.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.asap.asapbe.AsapBeApplication;
+import pl.asap.asapbe.entities.*;
+import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.TaskRepository;
+import pl.asap.asapbe.repositories.UserAuthDetailsRepository;
+import pl.asap.asapbe.repositories.UserRepository;
+import pl.asap.asapbe.services.ProjectServiceImpl;
+import pl.asap.asapbe.services.TaskServiceImpl;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Integration benchmark of listing all tasks of a project together with JSON serialization, inside one transaction
+ * like a web request with open session in view. Tasks are assigned round robin to a given number of users.
+ * projectTasksCollection is the old path (project's tasks collection, assignees loaded one by one),
+ * getAllTasksFromProject the current one (tasks and assignees in one select). Executed statements and requests
+ * are reported as auxiliary counters (totals per iteration), their ratio is the number of statements per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskListingBenchmark {
+
+    private static final int SEED_BATCH_SIZE = 5_000;
+    private static final String TOKEN = "benchmark-token";
+
+    @Param({"100", "1000"})
+    public int tasksInProject;
+
+    @Param({"1", "50"})
+    public int assignees;
+
+    private ConfigurableApplicationContext context;
+    private TaskServiceImpl taskServiceImpl;
+    private ProjectServiceImpl projectServiceImpl;
+    private TransactionTemplate transactionTemplate;
+    private ObjectMapper objectMapper;
+    private Statistics statistics;
+    private Long projectId;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+        public long statements;
+        public long requests;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(AsapBeApplication.class)
+                .web(WebApplicationType.NONE)
+                //command line arguments, unlike default properties, take precedence over application.properties (in-memory database is created with its credentials)
+                .run("--spring.datasource.url=jdbc:h2:mem:task_listing_" + tasksInProject + "_" + assignees + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--auth.password.pbkdf2-iterations=1000",
+                        "--auth.token-cache.max-size=0",
+                        "--project.membership-cache.max-size=0",
+                        "--logging.level.root=WARN");
+        taskServiceImpl = context.getBean(TaskServiceImpl.class);
+        projectServiceImpl = context.getBean(ProjectServiceImpl.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+        objectMapper = context.getBean(ObjectMapper.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        List<UserEntity> users = new ArrayList<>(assignees);
+        for (int i = 0; i < assignees; i++)
+            users.add(userRepository.save(new UserEntity("Bench", "Mark " + i, "benchmark_" + i + "@gmail.com", "password")));
+        context.getBean(UserAuthDetailsRepository.class).save(new UserAuthDetailsEntity(users.get(0).getId(), TOKEN));
+        ProjectEntity project = new ProjectEntity("Benchmark project");
+        project.setSupervisor(users.get(0));
+        project.setUsers(new HashSet<>(users));
+        project = context.getBean(ProjectRepository.class).save(project);
+        projectId = project.getId();
+
+        TaskRepository taskRepository = context.getBean(TaskRepository.class);
+        List<TaskEntity> seedBatch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < tasksInProject; i++) {
+            TaskEntity task = new TaskEntity("Seeded task " + i, "Description of task " + i, Status.OPEN, Priority.NORMAL);
+            task.setProject(project);
+            task.setAssignee(users.get(i % assignees));
+            seedBatch.add(task);
+            if (seedBatch.size() == SEED_BATCH_SIZE) {
+                taskRepository.saveAll(seedBatch);
+                seedBatch.clear();
+            }
+        }
+        taskRepository.saveAll(seedBatch);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getAllTasksFromProject(Statements statements) {
+        return countingStatements(statements, () -> serialize(taskServiceImpl.getAllTasksFromProject(TOKEN, projectId)));
+    }
+
+    @Benchmark
+    public String projectTasksCollection(Statements statements) {
+        return countingStatements(statements, () -> serialize(new ArrayList<>(projectServiceImpl.getProjectFromDbById(projectId).getTasks())));
+    }
+
+    private String countingStatements(Statements statements, Supplier<String> request) {
+        long statementsBefore = statistics.getPrepareStatementCount();
+        String response = transactionTemplate.execute(status -> request.get());
+        statements.statements += statistics.getPrepareStatementCount() - statementsBefore;
+        statements.requests++;
+        return response;
+    }
+
+    private String serialize(List<?> tasks) {
+        try {
+            return objectMapper.writeValueAsString(tasks);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
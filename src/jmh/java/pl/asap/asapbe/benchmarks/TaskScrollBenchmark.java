@@ -0,0 +1,108 @@
+package pl.asap.asapbe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of fetching one batch of a project's tasks at a given depth, with offset pagination (LIMIT/OFFSET) versus
+ * keyset scrolling (seek on priority and id after the last seen row), against an in-memory H2 table shaped like
+ * task_entity with the composite index declared on TaskEntity. Keyset batches are expected to cost the same at
+ * every depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskScrollBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final int PROJECTS = 10;
+    private static final int BATCH = 50;
+
+    @Param({"50000"})
+    public int tasksPerProject;
+
+    @Param({"0", "1000", "10000", "40000"})
+    public int depth;
+
+    private Connection connection;
+    private PreparedStatement offsetQuery;
+    private PreparedStatement keysetQuery;
+    private int lastPriorityBeforeDepth;
+    private long lastIdBeforeDepth;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:task_scroll_" + tasksPerProject + "_" + depth);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table task_entity (id bigint not null, title varchar(255), description varchar(255), status integer, priority integer not null, user_id bigint, project_id bigint, primary key (id))");
+            statement.execute("create index ix_task_entity_project_priority_id on task_entity (project_id, priority, id)");
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("insert into task_entity (id, title, description, status, priority, project_id) values (?, ?, ?, ?, ?, ?)")) {
+            int rows = tasksPerProject * PROJECTS;
+            for (int i = 0; i < rows; i++) {
+                insert.setLong(1, i);
+                insert.setString(2, "Task " + i);
+                insert.setString(3, "Description of task " + i);
+                insert.setInt(4, i % 4);
+                insert.setInt(5, (i / PROJECTS) % 3);
+                insert.setLong(6, i % PROJECTS);
+                insert.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0)
+                    insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        offsetQuery = connection.prepareStatement("select id, title, description, status, priority from task_entity where project_id = ? order by priority desc, id desc limit ? offset ?");
+        keysetQuery = connection.prepareStatement("select id, title, description, status, priority from task_entity where project_id = ? and (priority < ? or (priority = ? and id < ?)) order by priority desc, id desc limit ?");
+
+        //position a client would hold in its cursor after scrolling down to the measured depth
+        try (PreparedStatement lastSeen = connection.prepareStatement("select priority, id from task_entity where project_id = ? order by priority desc, id desc limit 1 offset ?")) {
+            lastSeen.setLong(1, 0);
+            lastSeen.setInt(2, Math.max(depth - 1, 0));
+            try (ResultSet resultSet = lastSeen.executeQuery()) {
+                resultSet.next();
+                lastPriorityBeforeDepth = depth == 0 ? Integer.MAX_VALUE : resultSet.getInt(1);
+                lastIdBeforeDepth = depth == 0 ? Long.MAX_VALUE : resultSet.getLong(2);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long offsetPage() throws SQLException {
+        offsetQuery.setLong(1, 0);
+        offsetQuery.setInt(2, BATCH);
+        offsetQuery.setInt(3, depth);
+        return lastId(offsetQuery);
+    }
+
+    @Benchmark
+    public long keysetBatch() throws SQLException {
+        keysetQuery.setLong(1, 0);
+        keysetQuery.setInt(2, lastPriorityBeforeDepth);
+        keysetQuery.setInt(3, lastPriorityBeforeDepth);
+        keysetQuery.setLong(4, lastIdBeforeDepth);
+        keysetQuery.setInt(5, BATCH);
+        return lastId(keysetQuery);
+    }
+
+    private long lastId(PreparedStatement query) throws SQLException {
+        long lastId = -1;
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next())
+                lastId = resultSet.getLong(1);
+        }
+        return lastId;
+    }
+}
@@ -0,0 +1,76 @@
+package pl.asap.asapbe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskRepository.existsByProjectIdAndTitle, the title check of task creation, against an in-memory H2 table shaped
+ * like task_entity with the unique (project_id, title) index. Spring Data runs exists queries as a select of the id
+ * limited to one row. Measured for a title that is not taken and one that is, the cost is expected to stay flat
+ * while the project grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskTitleCheckBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+    private static final long PROJECT_ID = 1L;
+
+    @Param({"10", "1000", "100000"})
+    public int tasksInProject;
+
+    private Connection connection;
+    private PreparedStatement existsByProjectIdAndTitle;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:task_title_check_" + tasksInProject);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table task_entity (id bigint not null, project_id bigint, title varchar(255), primary key (id))");
+            statement.execute("alter table task_entity add constraint ux_task_entity_project_title unique (project_id, title)");
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("insert into task_entity (id, project_id, title) values (?, ?, ?)")) {
+            for (int i = 0; i < tasksInProject; i++) {
+                insert.setLong(1, i);
+                insert.setLong(2, PROJECT_ID);
+                insert.setString(3, "Task " + i);
+                insert.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0)
+                    insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        existsByProjectIdAndTitle = connection.prepareStatement("select t.id from task_entity t where t.project_id = ? and t.title = ? limit 1");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public boolean newTitle() throws SQLException {
+        return exists("Brand new task");
+    }
+
+    @Benchmark
+    public boolean takenTitle() throws SQLException {
+        return exists("Task " + tasksInProject / 2);
+    }
+
+    private boolean exists(String title) throws SQLException {
+        existsByProjectIdAndTitle.setLong(1, PROJECT_ID);
+        existsByProjectIdAndTitle.setString(2, title);
+        try (ResultSet resultSet = existsByProjectIdAndTitle.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+}
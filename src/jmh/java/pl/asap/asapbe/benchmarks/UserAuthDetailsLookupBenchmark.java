@@ -0,0 +1,87 @@
+package pl.asap.asapbe.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.*;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures UserAuthDetailsRepository.findByToken / findByUserId style lookups against an in-memory H2 table
+ * shaped like user_auth_details_entity, with and without the unique indexes declared on UserAuthDetailsEntity.
+ * Indexed lookups are expected to stay flat while table size grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserAuthDetailsLookupBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private Connection connection;
+    private PreparedStatement findByToken;
+    private PreparedStatement findByUserId;
+    private String[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:auth_lookup_" + rows + "_" + indexed);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table user_auth_details_entity (id bigint not null, token varchar(36) not null, user_id bigint not null, primary key (id))");
+            if (indexed) {
+                statement.execute("alter table user_auth_details_entity add constraint ux_user_auth_details_token unique (token)");
+                statement.execute("alter table user_auth_details_entity add constraint ux_user_auth_details_user_id unique (user_id)");
+            }
+        }
+
+        tokens = new String[rows];
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("insert into user_auth_details_entity (id, token, user_id) values (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                tokens[i] = UUID.randomUUID().toString();
+                insert.setLong(1, i);
+                insert.setString(2, tokens[i]);
+                insert.setLong(3, i);
+                insert.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0)
+                    insert.executeBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        findByToken = connection.prepareStatement("select id, token, user_id from user_auth_details_entity where token = ?");
+        findByUserId = connection.prepareStatement("select id, token, user_id from user_auth_details_entity where user_id = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long findByToken() throws SQLException {
+        findByToken.setString(1, tokens[ThreadLocalRandom.current().nextInt(rows)]);
+        return readUserId(findByToken);
+    }
+
+    @Benchmark
+    public long findByUserId() throws SQLException {
+        findByUserId.setLong(1, ThreadLocalRandom.current().nextInt(rows));
+        return readUserId(findByUserId);
+    }
+
+    private long readUserId(PreparedStatement query) throws SQLException {
+        try (ResultSet resultSet = query.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(3) : -1;
+        }
+    }
+}
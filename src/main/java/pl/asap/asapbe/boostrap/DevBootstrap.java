@@ -7,6 +7,7 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Component;
 import pl.asap.asapbe.entities.*;
 import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.ProjectVersionRepository;
 import pl.asap.asapbe.repositories.TaskRepository;
 import pl.asap.asapbe.repositories.UserAuthDetailsRepository;
 import pl.asap.asapbe.repositories.UserRepository;
@@ -23,14 +24,16 @@ public class DevBootstrap implements ApplicationListener<ContextRefreshedEvent>
     private TaskRepository taskRepository;
     private ProjectRepository projectRepository;
     private UserAuthDetailsRepository userAuthDetailsRepository;
+    private ProjectVersionRepository projectVersionRepository;
     private AuthServiceImpl authServiceImpl;
 
     @Autowired
-    public DevBootstrap(UserRepository userRepository, TaskRepository taskRepository, ProjectRepository projectRepository, UserAuthDetailsRepository userAuthRepository, AuthServiceImpl authServiceImpl) {
+    public DevBootstrap(UserRepository userRepository, TaskRepository taskRepository, ProjectRepository projectRepository, UserAuthDetailsRepository userAuthRepository, ProjectVersionRepository projectVersionRepository, AuthServiceImpl authServiceImpl) {
         this.userRepository = userRepository;
         this.taskRepository = taskRepository;
         this.projectRepository = projectRepository;
         this.userAuthDetailsRepository = userAuthRepository;
+        this.projectVersionRepository = projectVersionRepository;
         this.authServiceImpl = authServiceImpl;
     }
 
@@ -38,9 +41,9 @@ public class DevBootstrap implements ApplicationListener<ContextRefreshedEvent>
 
         //school project
         ProjectEntity school_project = new ProjectEntity("School project");
-        UserEntity marek = new UserEntity("Marek", "Kowalski", "marek_kowalski@gmail.com", authServiceImpl.encryptPassword("qwerty123"));
-        UserEntity krzysztof = new UserEntity("Krzysztof", "Nowak", "krzysztof_nowak@gmail.com", authServiceImpl.encryptPassword("password321"));
-        UserEntity patryk = new UserEntity("Patryk", "Kopiec", "patryk_kopiec@gmail.com", authServiceImpl.encryptPassword("password123"));
+        UserEntity marek = new UserEntity("Marek", "Kowalski", "marek_kowalski@gmail.com", authServiceImpl.hashPassword("qwerty123"));
+        UserEntity krzysztof = new UserEntity("Krzysztof", "Nowak", "krzysztof_nowak@gmail.com", authServiceImpl.hashPassword("password321"));
+        UserEntity patryk = new UserEntity("Patryk", "Kopiec", "patryk_kopiec@gmail.com", authServiceImpl.hashPassword("password123"));
         TaskEntity taskInitRepo = new TaskEntity("Init repository", "Create repository and create corresponding project", Status.OPEN, Priority.HIGH);
         TaskEntity taskCreateDb = new TaskEntity("createDatabase", "Create database and Entity classes", Status.OPEN, Priority.HIGH);
         UserAuthDetailsEntity marekUserAuthDetails = new UserAuthDetailsEntity(authServiceImpl.generateToken());
@@ -81,6 +84,7 @@ public class DevBootstrap implements ApplicationListener<ContextRefreshedEvent>
         userAuthDetailsRepository.save(krzysztofUserAuthDetails);
         userAuthDetailsRepository.save(patrykUserAuthDetails);
         ProjectEntity projectEntity = projectRepository.save(school_project);
+        projectVersionRepository.save(new ProjectVersionEntity(projectEntity.getId()));
 
         //setting projects to tasks since it is bidirectional relation
         taskCreateDb.setProject(projectEntity);
@@ -0,0 +1,166 @@
+package pl.asap.asapbe.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded project id -> sorted member ids cache with per entry expiry, used by permission checks instead of
+ * initializing ProjectEntity.users. An entry takes 8 bytes per member whatever the ids are, and is looked up with
+ * binary search. Ids are never modified after being cached - any membership change invalidates the whole project entry.
+ */
+@Component
+public class ProjectMembershipCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<Long, CachedMembers> entries;
+    private final AtomicLong invalidationStamp = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public ProjectMembershipCache(@Value("${project.membership-cache.max-size:1000}") int maxSize,
+                                  @Value("${project.membership-cache.ttl-seconds:60}") long ttlSeconds) {
+        this(maxSize, ttlSeconds, Clock.systemUTC());
+    }
+
+    ProjectMembershipCache(int maxSize, long ttlSeconds, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);//access order, eldest entry is the least recently used one
+    }
+
+    /**
+     * @return membership if project members are cached, empty otherwise
+     */
+    public Optional<Boolean> isMember(Long projectId, Long userId) {
+        if (!isEnabled() || userId == null)
+            return Optional.empty();
+        synchronized (entries) {
+            CachedMembers members = entries.get(projectId);
+            if (members == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            if (members.expiresAt <= clock.millis()) {
+                entries.remove(projectId);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            return Optional.of(Arrays.binarySearch(members.memberIds, userId) >= 0);
+        }
+    }
+
+    /**
+     * Stamp has to be taken before member ids are read from database, so that result of a read which raced with
+     * a membership change is not cached.
+     */
+    public long currentStamp() {
+        return invalidationStamp.get();
+    }
+
+    /**
+     * @return false if members were not cached (cache disabled or stale read)
+     */
+    public boolean put(Long projectId, Collection<? extends Number> memberIds, long stamp) {
+        if (!isEnabled())
+            return false;
+        long[] sortedIds = new long[memberIds.size()];
+        int i = 0;
+        for (Number memberId : memberIds)
+            sortedIds[i++] = memberId.longValue();
+        Arrays.sort(sortedIds);
+        synchronized (entries) {
+            if (stamp != invalidationStamp.get())//membership changed while ids were being read
+                return false;
+            entries.put(projectId, new CachedMembers(sortedIds, clock.millis() + ttlMillis));
+            Iterator<CachedMembers> eldest = entries.values().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    public void invalidate(Long projectId) {
+        synchronized (entries) {
+            invalidationStamp.incrementAndGet();
+            entries.remove(projectId);
+        }
+    }
+
+    /**
+     * Invalidates members at once and again when the changing transaction ends, as ids read in between may be
+     * read from before the commit (or by the changing transaction itself).
+     */
+    public void invalidateUntilCompletion(Long projectId) {
+        invalidate(projectId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate(projectId);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidationStamp.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && ttlMillis > 0;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private static class CachedMembers {
+        private final long[] memberIds;
+        private final long expiresAt;
+
+        private CachedMembers(long[] memberIds, long expiresAt) {
+            this.memberIds = memberIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package pl.asap.asapbe.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.asap.asapbe.entities.Status;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded project id -> task count per status aggregate with per entry expiry. An entry is loaded once with a
+ * group by query and then kept in sync by task creation, modification and deletion, so reads don't touch the
+ * database. Changes are applied only after their transaction commits (see TaskStatusChanges), so a rolled back
+ * change is never counted. Expiry bounds the drift caused by changes made by other application instances.
+ */
+@Component
+public class ProjectTaskCountsCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<Long, CachedCounts> entries;
+    private final AtomicLong changeStamp = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public ProjectTaskCountsCache(@Value("${project.task-counts-cache.max-size:1000}") int maxSize,
+                                  @Value("${project.task-counts-cache.ttl-seconds:300}") long ttlSeconds) {
+        this(maxSize, ttlSeconds, Clock.systemUTC());
+    }
+
+    ProjectTaskCountsCache(int maxSize, long ttlSeconds, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);//access order, eldest entry is the least recently used one
+    }
+
+    /**
+     * @return copy of counts with every status present, empty if counts of the project are not cached
+     */
+    public Optional<Map<Status, Long>> get(Long projectId) {
+        if (!isEnabled())
+            return Optional.empty();
+        synchronized (entries) {
+            CachedCounts counts = entries.get(projectId);
+            if (counts == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            if (counts.expiresAt <= clock.millis()) {
+                entries.remove(projectId);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            return Optional.of(new EnumMap<>(counts.byStatus));
+        }
+    }
+
+    /**
+     * Stamp has to be taken before counts are read from database, so that result of a read which raced with
+     * a task change is not cached.
+     */
+    public long currentStamp() {
+        return changeStamp.get();
+    }
+
+    /**
+     * @return false if counts were not cached (cache disabled or stale read)
+     */
+    public boolean put(Long projectId, Map<Status, Long> countsByStatus, long stamp) {
+        if (!isEnabled())
+            return false;
+        EnumMap<Status, Long> byStatus = withAllStatuses(countsByStatus);
+        synchronized (entries) {
+            if (stamp != changeStamp.get())//tasks changed while counts were being read
+                return false;
+            entries.put(projectId, new CachedCounts(byStatus, stamp, clock.millis() + ttlMillis));
+            Iterator<CachedCounts> eldest = entries.values().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Has to be called inside the transaction changing tasks, before it commits - counts read from now on are not
+     * cached, as they may already contain the change.
+     */
+    public TaskStatusChanges statusChanges(Long projectId) {
+        return new TaskStatusChanges(projectId, changeStamp.incrementAndGet());
+    }
+
+    /**
+     * Applies committed changes to a cached project, nothing happens if project is not cached.
+     */
+    @TransactionalEventListener(fallbackExecution = true)//after commit, a rolled back change must not be counted
+    public void onTaskStatusChanges(TaskStatusChanges changes) {
+        synchronized (entries) {
+            changeStamp.incrementAndGet();//counts read before the commit are stale now
+            CachedCounts counts = entries.get(changes.getProjectId());
+            if (counts == null)
+                return;
+            if (counts.loadStamp >= changes.getStamp()) {//read while the change was in progress, may already contain it
+                entries.remove(changes.getProjectId());
+                return;
+            }
+            changes.getDelta().forEach((status, delta) -> counts.byStatus.merge(status, delta, Long::sum));
+        }
+    }
+
+    public void invalidate(Long projectId) {
+        synchronized (entries) {
+            changeStamp.incrementAndGet();
+            entries.remove(projectId);
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0 && ttlMillis > 0;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public static EnumMap<Status, Long> withAllStatuses(Map<Status, Long> countsByStatus) {
+        EnumMap<Status, Long> byStatus = new EnumMap<>(Status.class);
+        for (Status status : Status.values())
+            byStatus.put(status, countsByStatus.getOrDefault(status, 0L));
+        return byStatus;
+    }
+
+    private static class CachedCounts {
+        private final EnumMap<Status, Long> byStatus;
+        private final long loadStamp;
+        private final long expiresAt;
+
+        private CachedCounts(EnumMap<Status, Long> byStatus, long loadStamp, long expiresAt) {
+            this.byStatus = byStatus;
+            this.loadStamp = loadStamp;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
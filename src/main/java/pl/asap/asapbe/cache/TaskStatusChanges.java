@@ -0,0 +1,51 @@
+package pl.asap.asapbe.cache;
+
+import pl.asap.asapbe.entities.Status;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Task count changes of one project made by a transaction, published as an event and applied to
+ * ProjectTaskCountsCache after the transaction commits. Created by ProjectTaskCountsCache.statusChanges.
+ */
+public class TaskStatusChanges {
+
+    private final Long projectId;
+    private final long stamp;
+    private final EnumMap<Status, Long> delta = new EnumMap<>(Status.class);
+
+    TaskStatusChanges(Long projectId, long stamp) {
+        this.projectId = projectId;
+        this.stamp = stamp;
+    }
+
+    /**
+     * Moves one task between status buckets.
+     *
+     * @param from status before the change, null for created task
+     * @param to   status after the change, null for deleted task
+     */
+    public TaskStatusChanges moved(Status from, Status to) {
+        if (from == to)
+            return this;
+        if (from != null)
+            delta.merge(from, -1L, Long::sum);
+        if (to != null)
+            delta.merge(to, 1L, Long::sum);
+        return this;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    long getStamp() {
+        return stamp;
+    }
+
+    Map<Status, Long> getDelta() {
+        return Collections.unmodifiableMap(delta);
+    }
+}
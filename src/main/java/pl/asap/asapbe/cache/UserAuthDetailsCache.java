@@ -0,0 +1,141 @@
+package pl.asap.asapbe.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pl.asap.asapbe.entities.UserAuthDetailsEntity;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded token -> auth details cache with per entry expiry, used in front of
+ * UserAuthDetailsRepository.findByToken. Least recently used entries are evicted when size limit is reached.
+ * Like ProjectMembershipCache, an entry read before an invalidation is not cached after it.
+ */
+@Component
+public class UserAuthDetailsCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<String, CachedEntry> entries;
+    private final AtomicLong invalidationStamp = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public UserAuthDetailsCache(@Value("${auth.token-cache.max-size:10000}") int maxSize,
+                                @Value("${auth.token-cache.ttl-seconds:300}") long ttlSeconds) {
+        this(maxSize, ttlSeconds, Clock.systemUTC());
+    }
+
+    UserAuthDetailsCache(int maxSize, long ttlSeconds, Clock clock) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);//access order, eldest entry is the least recently used one
+    }
+
+    public Optional<UserAuthDetailsEntity> get(String authToken) {
+        if (!isEnabled() || authToken == null)
+            return Optional.empty();
+        synchronized (entries) {
+            CachedEntry entry = entries.get(authToken);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            if (entry.expiresAt <= clock.millis()) {//expired, treating as miss
+                entries.remove(authToken);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            hits.incrementAndGet();
+            return Optional.of(entry.userAuthDetails);
+        }
+    }
+
+    /**
+     * Stamp has to be taken before auth details are read from database, so that a token row read just before it was
+     * deleted is not cached after its invalidation.
+     */
+    public long currentStamp() {
+        return invalidationStamp.get();
+    }
+
+    /**
+     * @return false if auth details were not cached (cache disabled or stale read)
+     */
+    public boolean put(UserAuthDetailsEntity userAuthDetailsEntity, long stamp) {
+        if (!isEnabled() || userAuthDetailsEntity.getToken() == null)
+            return false;
+        synchronized (entries) {
+            if (stamp != invalidationStamp.get())//token invalidated while it was being read
+                return false;
+            entries.put(userAuthDetailsEntity.getToken(), new CachedEntry(userAuthDetailsEntity, clock.millis() + ttlMillis));
+            Iterator<CachedEntry> eldest = entries.values().iterator();
+            while (entries.size() > maxSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    public void invalidate(String authToken) {
+        if (authToken == null)
+            return;
+        synchronized (entries) {
+            invalidationStamp.incrementAndGet();
+            entries.remove(authToken);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidationStamp.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private boolean isEnabled() {
+        return maxSize > 0 && ttlMillis > 0;
+    }
+
+    private static class CachedEntry {
+        private final UserAuthDetailsEntity userAuthDetails;
+        private final long expiresAt;
+
+        private CachedEntry(UserAuthDetailsEntity userAuthDetails, long expiresAt) {
+            this.userAuthDetails = userAuthDetails;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package pl.asap.asapbe.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor writing streamed list responses (see JsonStreaming), used by these responses only. Every writing thread
+ * holds a database connection until its response is sent, so the pool is fixed and kept below the connection pool
+ * size - further streams wait in the bounded queue and are rejected when it is full.
+ */
+@Configuration
+public class ListStreamingConfig {
+
+    private final int threads;
+    private final int queueCapacity;
+
+    public ListStreamingConfig(@Value("${lists.stream.threads:4}") int threads,
+                               @Value("${lists.stream.queue-capacity:100}") int queueCapacity) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor listStreamingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("list-streaming-");
+        executor.setDaemon(true);
+        return executor;
+    }
+}
@@ -0,0 +1,37 @@
+package pl.asap.asapbe.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import pl.asap.asapbe.security.PasswordHasher;
+import pl.asap.asapbe.security.Pbkdf2PasswordHasher;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class PasswordHashingConfig {
+
+    @Bean
+    public PasswordHasher passwordHasher(@Value("${auth.password.pbkdf2-iterations:100000}") int iterations) {
+        return new Pbkdf2PasswordHasher(iterations);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService passwordHashingExecutor(@Value("${auth.password.hashing-threads:4}") int threads,
+                                                   @Value("${auth.password.hashing-queue-capacity:200}") int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        //hashing is CPU bound, so pool is fixed and queue is bounded - overflowing requests are rejected instead of piling up
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,67 @@
+package pl.asap.asapbe.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import pl.asap.asapbe.persistence.ReadWriteRoutingDataSource;
+import pl.asap.asapbe.persistence.ReplicaRoutingAspect;
+import pl.asap.asapbe.persistence.ReplicaSecondLevelCacheGuard;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Active when datasource.replica.jdbc-url is set. Primary pool is built from spring.datasource.* like the auto-configured
+ * one, replica pool from datasource.replica.* (HikariCP settings, e.g. jdbc-url, username, password, maximum-pool-size).
+ * Without the property spring boot creates the single datasource and all statements go to it.
+ * Pools are not beans on their own - spring boot initializes every DataSource bean with the only one, which would be
+ * a cycle here - so they are closed and given pool metrics in this class.
+ */
+@Configuration
+@ConditionalOnProperty("datasource.replica.jdbc-url")
+public class ReplicaDataSourceConfig {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, Environment environment, ObjectProvider<MeterRegistry> meterRegistry,
+                                 ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        HikariDataSource replica = new HikariDataSource();
+        binder.bind("datasource.replica", Bindable.ofInstance(replica));
+        if (replica.getPoolName() == null)
+            replica.setPoolName(primary.getPoolName() + "-replica");
+        for (HikariDataSource pool : new HikariDataSource[]{primary, replica}) {
+            meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            pools.add(pool);
+        }
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replica);
+        routingDataSource.setOnReplicaRoute(new ReplicaSecondLevelCacheGuard(entityManagerFactory));//entities read from replica are not cached
+        //connection is taken on first statement, when read-only flag of the transaction is already known
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReplicaRoutingAspect replicaRoutingAspect() {
+        return new ReplicaRoutingAspect();
+    }
+
+    @PreDestroy
+    public void closePools() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,93 @@
+package pl.asap.asapbe.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Builds streamed responses of list endpoints - elements are serialized one by one while they are read from database,
+ * so neither the list nor the whole JSON document is built in memory. ARRAY is the same JSON array as returned by not
+ * streamed endpoints, sent in chunks, NDJSON is one JSON object per line.
+ * Nothing is sent before the generator buffer fills up, so authentication and permission errors thrown by the
+ * source at the start are still answered with their own status.
+ * Responses are written by listStreamingExecutor and cut off after lists.stream.timeout-seconds - both apply to
+ * these responses only, other async handlers keep Spring MVC defaults.
+ */
+@Component
+public class JsonStreaming {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    public enum Format {
+        ARRAY, NDJSON
+    }
+
+    /**
+     * Passes elements to action, called on the thread writing the response.
+     */
+    @FunctionalInterface
+    public interface Source<T> {
+        void forEach(Consumer<? super T> action);
+    }
+
+    private final ObjectWriter objectWriter;
+    private final AsyncTaskExecutor executor;
+    private final long timeoutMillis;
+
+    @Autowired
+    public JsonStreaming(ObjectMapper objectMapper,
+                         @Qualifier("listStreamingExecutor") AsyncTaskExecutor executor,
+                         @Value("${lists.stream.timeout-seconds:15}") long timeoutSeconds) {
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);//flushed when buffer is full, not per element
+        this.executor = executor;
+        this.timeoutMillis = timeoutSeconds * 1000;
+    }
+
+    public <T> WebAsyncTask<Void> response(Format format, HttpServletResponse response, Source<T> source) {
+        return new WebAsyncTask<>(timeoutMillis, executor, () -> {
+            response.setContentType(format == Format.NDJSON ? APPLICATION_NDJSON.toString() : MediaType.APPLICATION_JSON_UTF8_VALUE);
+            write(response.getOutputStream(), format, source);
+            return null;//response is already written
+        });
+    }
+
+    private <T> void write(OutputStream outputStream, Format format, Source<T> source) throws IOException {
+        JsonGenerator generator = objectWriter.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);//response stream is closed by container
+        generator.setRootValueSeparator(null);//NDJSON lines are separated explicitly
+        if (format == Format.ARRAY)
+            generator.writeStartArray();
+        try {
+            source.forEach(element -> write(generator, element, format));
+        } catch (UncheckedIOException e) {//client went away
+            throw e.getCause();
+        }
+        if (format == Format.ARRAY)
+            generator.writeEndArray();
+        generator.flush();
+    }
+
+    private void write(JsonGenerator generator, Object element, Format format) {
+        try {
+            objectWriter.writeValue(generator, element);
+            if (format == Format.NDJSON)
+                generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package pl.asap.asapbe.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import pl.asap.asapbe.exceptions.InvalidPageRequestException;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Builds page requests for list endpoints and page responses, with page metadata passed in headers so that
+ * response body stays the same JSON array as in not paginated endpoints.
+ */
+@Component
+public class Pagination {
+
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    public static final String HAS_NEXT_PAGE_HEADER = "X-Has-Next-Page";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String ID_PROPERTY = "id";
+
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    @Autowired
+    public Pagination(@Value("${pagination.default-page-size:20}") int defaultPageSize,
+                      @Value("${pagination.max-page-size:100}") int maxPageSize) {
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public Pageable pageRequest(int page, Integer size, String sortProperty, Sort.Direction direction, Collection<String> sortableProperties) {
+        if (page < 0 || !sortableProperties.contains(sortProperty))
+            throw new InvalidPageRequestException();
+        int pageSize = pageSize(size);
+        Sort sort = Sort.by(direction, sortProperty);
+        if (!ID_PROPERTY.equals(sortProperty))//id as tie breaker keeps order stable between pages
+            sort = sort.and(Sort.by(direction, ID_PROPERTY));
+        return PageRequest.of(page, pageSize, sort);
+    }
+
+    public int pageSize(Integer size) {
+        if (size != null && size < 1)
+            throw new InvalidPageRequestException();
+        return Math.min(size == null ? defaultPageSize : size, maxPageSize);
+    }
+
+    public <T> ResponseEntity<List<T>> response(Slice<T> slice) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HAS_NEXT_PAGE_HEADER, String.valueOf(slice.hasNext()));
+        if (slice instanceof Page)//total count is only known when it was requested
+            headers.set(TOTAL_COUNT_HEADER, String.valueOf(((Page<T>) slice).getTotalElements()));
+        return ResponseEntity.ok().headers(headers).body(slice.getContent());
+    }
+
+    /**
+     * @param nextCursor continuation token of the next batch, null if this one is the last
+     */
+    public <T> ResponseEntity<List<T>> response(List<T> content, String nextCursor) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HAS_NEXT_PAGE_HEADER, String.valueOf(nextCursor != null));
+        if (nextCursor != null)
+            headers.set(NEXT_CURSOR_HEADER, nextCursor);
+        return ResponseEntity.ok().headers(headers).body(content);
+    }
+}
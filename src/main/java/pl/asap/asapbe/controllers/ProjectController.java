@@ -1,33 +1,70 @@
 package pl.asap.asapbe.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import pl.asap.asapbe.entities.ProjectEntity;
-import pl.asap.asapbe.entities.UserEntity;
+import pl.asap.asapbe.response_model.ProjectSummary;
+import pl.asap.asapbe.response_model.UserSummary;
 import pl.asap.asapbe.services.ProjectService;
 import pl.asap.asapbe.services.ProjectServiceImpl;
 
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 public class ProjectController {
+    private static final List<String> SORTABLE_PROPERTIES = Arrays.asList("id", "title");
+
     private ProjectService projectService;
+    private Pagination pagination;
+    private JsonStreaming jsonStreaming;
 
     @Autowired
-    public ProjectController(ProjectServiceImpl projectService) {
+    public ProjectController(ProjectServiceImpl projectService, Pagination pagination, JsonStreaming jsonStreaming) {
         this.projectService = projectService;
+        this.pagination = pagination;
+        this.jsonStreaming = jsonStreaming;
     }
 
     @GetMapping("/projects")
-    public List<ProjectEntity> getAllProjects(@RequestHeader("token") String authToken) {
+    public List<ProjectSummary> getAllProjects(@RequestHeader("token") String authToken) {
         return projectService.getListOfAllProjects(authToken);
     }
 
-    @GetMapping("/projects/users")
-    public List<UserEntity> getAllUsersInProject(@RequestHeader("token") String authToken, @RequestParam("projectId") Long projectId) {
-        return projectService.getAllUsersFromSpecificProject(authToken, projectId);
+    @GetMapping(value = "/projects", params = "stream")//stream=ARRAY or stream=NDJSON, written while projects are read
+    public WebAsyncTask<Void> streamAllProjects(@RequestHeader("token") String authToken,
+                                                @RequestParam("stream") JsonStreaming.Format format,
+                                                HttpServletResponse response) {
+        return jsonStreaming.response(format, response, action -> projectService.streamAllProjects(authToken, action));
+    }
+
+    @GetMapping(value = "/projects", params = "page")
+    public ResponseEntity<List<ProjectEntity>> getPageOfProjects(@RequestHeader("token") String authToken,
+                                                                 @RequestParam("page") int page,
+                                                                 @RequestParam(value = "size", required = false) Integer size,
+                                                                 @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                                 @RequestParam(value = "direction", defaultValue = "ASC") Sort.Direction direction,
+                                                                 @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        return pagination.response(projectService.getPageOfProjects(authToken,
+                pagination.pageRequest(page, size, sort, direction, SORTABLE_PROPERTIES), count));
+    }
+
+    @GetMapping("/projects/users")//conditional - If-None-Match with current ETag is answered with 304, without loading members
+    public ResponseEntity<List<UserSummary>> getAllUsersInProject(@RequestHeader("token") String authToken, @RequestParam("projectId") Long projectId,
+                                                                  WebRequest webRequest) {
+        Optional<List<UserSummary>> users = projectService.getAllUsersFromSpecificProjectIfModified(authToken, projectId,
+                version -> webRequest.checkNotModified("users-" + projectId + "-" + version));//version is read before members, so ETag is never newer than the body
+        if (!users.isPresent())
+            return null;
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(users.get());
     }
 
     @PostMapping("/projects")
@@ -45,14 +82,14 @@ public class ProjectController {
     }
 
     @PutMapping("/projects/addUser")
-    public ResponseEntity<List<UserEntity>> addUserToProject(@RequestHeader("token") String authToken,
+    public ResponseEntity<List<UserSummary>> addUserToProject(@RequestHeader("token") String authToken,
                                            @RequestParam("projectId") Long projectId,
                                            @RequestParam("userId") Long userId) {
         return ResponseEntity.ok(projectService.performAddingUserToProjectOperation(authToken, projectId, userId));
     }
 
     @PutMapping("/projects/deleteUser")
-    public ResponseEntity<List<UserEntity>> deleteUserFromProject(@RequestHeader("token") String authToken,
+    public ResponseEntity<List<UserSummary>> deleteUserFromProject(@RequestHeader("token") String authToken,
                                                 @RequestParam("projectId") Long projectId,
                                                 @RequestParam("userId") Long userId) {
         return ResponseEntity.ok(projectService.performDeletingUserFromProjectOperation(authToken, projectId, userId));
@@ -1,29 +1,126 @@
 package pl.asap.asapbe.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.Status;
 import pl.asap.asapbe.entities.TaskEntity;
+import pl.asap.asapbe.repositories.TaskFilter;
+import pl.asap.asapbe.response_model.BulkTaskResult;
+import pl.asap.asapbe.response_model.TaskChanges;
+import pl.asap.asapbe.response_model.TaskScroll;
+import pl.asap.asapbe.response_model.TaskSummary;
 import pl.asap.asapbe.services.TaskService;
 import pl.asap.asapbe.services.TaskServiceImpl;
+import pl.asap.asapbe.stream.TaskBoardBroadcaster;
 
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @RestController
 public class TaskController {
+    private static final List<String> SORTABLE_PROPERTIES = Arrays.asList("id", "title", "status", "priority");
 
     private TaskService taskService;
+    private Pagination pagination;
+    private TaskBoardBroadcaster taskBoardBroadcaster;
+    private JsonStreaming jsonStreaming;
 
     @Autowired
-    public TaskController(TaskServiceImpl taskService) {
+    public TaskController(TaskServiceImpl taskService, Pagination pagination, TaskBoardBroadcaster taskBoardBroadcaster, JsonStreaming jsonStreaming) {
         this.taskService = taskService;
+        this.pagination = pagination;
+        this.taskBoardBroadcaster = taskBoardBroadcaster;
+        this.jsonStreaming = jsonStreaming;
     }
 
-    @GetMapping("tasks")
-    public ResponseEntity<List<TaskEntity>> getAllTasksFromSpecificProject(@RequestHeader("token") String authToken,
-                                                           @RequestParam("projectId") Long projectId) {
-        return ResponseEntity.ok(taskService.getAllTasksFromProject(authToken, projectId));
+    @GetMapping("tasks")//conditional - If-None-Match with current ETag is answered with 304, without loading tasks
+    public ResponseEntity<List<TaskSummary>> getAllTasksFromSpecificProject(@RequestHeader("token") String authToken,
+                                                           @RequestParam("projectId") Long projectId,
+                                                           WebRequest webRequest) {
+        Optional<List<TaskSummary>> tasks = taskService.getAllTasksFromProjectIfModified(authToken, projectId,
+                version -> webRequest.checkNotModified("tasks-" + projectId + "-" + version));//version is read before tasks, so ETag is never newer than the body
+        if (!tasks.isPresent())
+            return null;
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(tasks.get());
+    }
+
+    @GetMapping(value = "tasks", params = "stream")//stream=ARRAY or stream=NDJSON, written while tasks are read
+    public WebAsyncTask<Void> streamAllTasksFromSpecificProject(@RequestHeader("token") String authToken,
+                                                                @RequestParam("projectId") Long projectId,
+                                                                @RequestParam("stream") JsonStreaming.Format format,
+                                                                HttpServletResponse response) {
+        return jsonStreaming.response(format, response, action -> taskService.streamAllTasksFromProject(authToken, projectId, action));
+    }
+
+    @GetMapping(value = "tasks", params = "page")
+    public ResponseEntity<List<TaskEntity>> getPageOfTasksFromSpecificProject(@RequestHeader("token") String authToken,
+                                                                              @RequestParam("projectId") Long projectId,
+                                                                              @RequestParam("page") int page,
+                                                                              @RequestParam(value = "size", required = false) Integer size,
+                                                                              @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                                              @RequestParam(value = "direction", defaultValue = "ASC") Sort.Direction direction,
+                                                                              @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        return pagination.response(taskService.getPageOfTasksFromProject(authToken, projectId,
+                pagination.pageRequest(page, size, sort, direction, SORTABLE_PROPERTIES), count));
+    }
+
+    @GetMapping("tasks/search")//filters evaluated in database, parameters can be repeated (status=OPEN&status=DONE)
+    public ResponseEntity<List<TaskEntity>> searchTasksInSpecificProject(@RequestHeader("token") String authToken,
+                                                                         @RequestParam("projectId") Long projectId,
+                                                                         @RequestParam(value = "status", required = false) Set<Status> statuses,
+                                                                         @RequestParam(value = "priority", required = false) Set<Priority> priorities,
+                                                                         @RequestParam(value = "assigneeId", required = false) Long assigneeId,
+                                                                         @RequestParam(value = "titlePrefix", required = false) String titlePrefix,
+                                                                         @RequestParam(value = "page", defaultValue = "0") int page,
+                                                                         @RequestParam(value = "size", required = false) Integer size,
+                                                                         @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                                         @RequestParam(value = "direction", defaultValue = "ASC") Sort.Direction direction) {
+        TaskFilter filter = new TaskFilter(statuses, priorities, assigneeId, titlePrefix);
+        return pagination.response(taskService.searchTasksInProject(authToken, projectId, filter,
+                pagination.pageRequest(page, size, sort, direction, SORTABLE_PROPERTIES)));
+    }
+
+    @GetMapping("tasks/scroll")//keyset pagination, ordered by priority and id descending
+    public ResponseEntity<List<TaskEntity>> scrollTasksFromSpecificProject(@RequestHeader("token") String authToken,
+                                                                           @RequestParam("projectId") Long projectId,
+                                                                           @RequestParam(value = "status", required = false) Status status,
+                                                                           @RequestParam(value = "cursor", required = false) String cursor,
+                                                                           @RequestParam(value = "size", required = false) Integer size) {
+        TaskScroll scroll = taskService.scrollTasksFromProject(authToken, projectId, status, cursor, pagination.pageSize(size));
+        return pagination.response(scroll.getTasks(), scroll.getNextCursor());
+    }
+
+    @GetMapping("tasks/changes")//delta synchronization, without since all tasks are returned
+    public ResponseEntity<TaskChanges> getTaskChangesFromSpecificProject(@RequestHeader("token") String authToken,
+                                                                         @RequestParam("projectId") Long projectId,
+                                                                         @RequestParam(value = "since", defaultValue = "-1") long since) {
+        return ResponseEntity.ok(taskService.getTaskChangesFromProject(authToken, projectId, since));
+    }
+
+    @GetMapping(value = "tasks/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)//task board changes of the project, pushed as server-sent events
+    public SseEmitter streamTaskBoardOfSpecificProject(@RequestHeader("token") String authToken,
+                                                       @RequestParam("projectId") Long projectId) {
+        taskService.verifyAccessToProject(authToken, projectId);
+        return taskBoardBroadcaster.subscribe(projectId);
+    }
+
+    @GetMapping("tasks/counts")
+    public ResponseEntity<Map<Status, Long>> getTaskCountsOfSpecificProject(@RequestHeader("token") String authToken,
+                                                                            @RequestParam("projectId") Long projectId) {
+        return ResponseEntity.ok(taskService.getTaskCountsByStatus(authToken, projectId));
     }
 
     @GetMapping("tasks/task")
@@ -46,6 +143,20 @@ public class TaskController {
         return ResponseEntity.ok(taskService.performTaskModification(authToken, taskEntity, taskId));
     }
 
+    @PostMapping("tasks/bulk")
+    public ResponseEntity<List<BulkTaskResult>> createTasks(@RequestHeader("token") String authToken,
+                                                            @RequestBody List<TaskEntity> tasks,
+                                                            @RequestParam("projectId") Long projectId) {
+        return ResponseEntity.ok(taskService.performBulkTaskCreation(authToken, tasks, projectId));
+    }
+
+    @PutMapping("tasks/bulk")
+    public ResponseEntity<List<BulkTaskResult>> modifyTasks(@RequestHeader("token") String authToken,
+                                                            @RequestBody List<TaskEntity> tasks,
+                                                            @RequestParam("projectId") Long projectId) {
+        return ResponseEntity.ok(taskService.performBulkTaskModification(authToken, tasks, projectId));
+    }
+
     @PutMapping("tasks/assign")
     public ResponseEntity<TaskEntity> assignToTask(@RequestHeader("token") String authToken,
                                        @RequestParam("taskId") Long taskId,
@@ -1,31 +1,60 @@
 package pl.asap.asapbe.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import pl.asap.asapbe.entities.UserAuthDetailsEntity;
 import pl.asap.asapbe.entities.UserEntity;
 import pl.asap.asapbe.response_model.UserDetails;
+import pl.asap.asapbe.response_model.UserSummary;
 import pl.asap.asapbe.services.UserService;
 import pl.asap.asapbe.services.UserServiceImpl;
 
+import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
 import java.util.List;
 
 @RestController
 public class UserController {
+    private static final List<String> SORTABLE_PROPERTIES = Arrays.asList("id", "firstName", "lastName", "email");
+
     private UserService userService;
+    private Pagination pagination;
+    private JsonStreaming jsonStreaming;
 
     @Autowired
-    public UserController(UserServiceImpl userService) {
+    public UserController(UserServiceImpl userService, Pagination pagination, JsonStreaming jsonStreaming) {
         this.userService = userService;
+        this.pagination = pagination;
+        this.jsonStreaming = jsonStreaming;
     }
 
     @GetMapping("/users")
-    public ResponseEntity<List<UserEntity>> getAllUsers(@RequestHeader("token") String authToken) {
+    public ResponseEntity<List<UserSummary>> getAllUsers(@RequestHeader("token") String authToken) {
         return ResponseEntity.ok(userService.getListOfAllUsers(authToken));
     }
 
+    @GetMapping(value = "/users", params = "stream")//stream=ARRAY or stream=NDJSON, written while users are read
+    public WebAsyncTask<Void> streamAllUsers(@RequestHeader("token") String authToken,
+                                             @RequestParam("stream") JsonStreaming.Format format,
+                                             HttpServletResponse response) {
+        return jsonStreaming.response(format, response, action -> userService.streamAllUsers(authToken, action));
+    }
+
+    @GetMapping(value = "/users", params = "page")
+    public ResponseEntity<List<UserEntity>> getPageOfUsers(@RequestHeader("token") String authToken,
+                                                           @RequestParam("page") int page,
+                                                           @RequestParam(value = "size", required = false) Integer size,
+                                                           @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                           @RequestParam(value = "direction", defaultValue = "ASC") Sort.Direction direction,
+                                                           @RequestParam(value = "count", defaultValue = "true") boolean count) {
+        return pagination.response(userService.getPageOfUsers(authToken,
+                pagination.pageRequest(page, size, sort, direction, SORTABLE_PROPERTIES), count));
+    }
+
     @GetMapping("/users/details")
     public ResponseEntity<UserDetails> getUserDetails(@RequestHeader("token") String authToken) {
         return ResponseEntity.ok(userService.getUserDetails(authToken));
@@ -1,7 +1,14 @@
 package pl.asap.asapbe.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import pl.asap.asapbe.persistence.PooledIdGenerator;
 
 import javax.persistence.*;
 import java.util.Set;
@@ -10,18 +17,30 @@ import java.util.Set;
 @Data
 @EqualsAndHashCode(exclude = {"users", "tasks", "supervisor"})
 @NoArgsConstructor
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})//serialized lazy proxies
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ProjectEntity.CACHE_REGION)
 public class ProjectEntity {
 
+    public static final String CACHE_REGION = "project";
+    public static final String USERS_CACHE_REGION = "project-users";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "project_entity_id")
+    @GenericGenerator(name = "project_entity_id", strategy = PooledIdGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "project_entity_seq"))
     private Long id;
     private String title;
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     @JsonIgnore
     private UserEntity supervisor;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ProjectEntity.USERS_CACHE_REGION)//ids of members, users themselves come from user region
+    @JoinTable(name = "project_users",
+            joinColumns = @JoinColumn(name = "project_id"),
+            inverseJoinColumns = @JoinColumn(name = "user_id"))
     @JsonIgnore
     private Set<UserEntity> users;
 
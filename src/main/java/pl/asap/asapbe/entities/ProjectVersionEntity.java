@@ -0,0 +1,31 @@
+package pl.asap.asapbe.entities;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Version of project's task and member lists, incremented after every change of them. Kept apart from ProjectEntity,
+ * so increments (bulk updates) don't evict projects from second-level cache.
+ */
+@Entity
+@Table(name = "project_version")
+@Data
+@NoArgsConstructor
+public class ProjectVersionEntity {
+
+    @Id
+    @Column(name = "project_id")
+    private Long projectId;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    public ProjectVersionEntity(Long projectId) {
+        this.projectId = projectId;
+    }
+}
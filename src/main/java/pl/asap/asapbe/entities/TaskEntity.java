@@ -4,28 +4,49 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import pl.asap.asapbe.persistence.PooledIdGenerator;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "ix_task_entity_project_priority_id", columnList = "project_id, priority, id"),
+        @Index(name = "ix_task_entity_project_status_priority_id", columnList = "project_id, status, priority, id"),
+        @Index(name = "ix_task_entity_project_user_id", columnList = "project_id, user_id"),
+        @Index(name = "ix_task_entity_project_modified_seq", columnList = "project_id, modified_seq"),
+        @Index(name = TaskEntity.UNIQUE_TITLE_CONSTRAINT, columnList = "project_id, title", unique = true)
+})
+@NamedEntityGraph(name = TaskEntity.WITH_ASSIGNEE, attributeNodes = @NamedAttributeNode("assignee"))
 @Data
 @EqualsAndHashCode(exclude = {"assignee", "project"})
 @NoArgsConstructor
 public class TaskEntity {
 
+    public static final String UNIQUE_TITLE_CONSTRAINT = "ux_task_entity_project_title";
+    public static final String WITH_ASSIGNEE = "TaskEntity.withAssignee";//assignee is serialized with every task
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "task_entity_id")
+    @GenericGenerator(name = "task_entity_id", strategy = PooledIdGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "task_entity_seq"))
     private Long id;
     private String title;
     private String description;
     private Status status;
+    @Column(name = "priority", nullable = false)//part of keyset used by task scrolling, null would break seek predicate
     private Priority priority;
+    @Column(name = "modified_seq", nullable = false)//project version of the last change, see GET tasks/changes
+    @JsonIgnore
+    private long modifiedSeq;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserEntity assignee;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JsonIgnore
     private ProjectEntity project;
 
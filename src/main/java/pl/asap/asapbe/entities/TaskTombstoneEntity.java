@@ -0,0 +1,33 @@
+package pl.asap.asapbe.entities;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Id of a deleted task, kept so that clients synchronizing changes of the project learn about the deletion.
+ * Tombstones are removed together with their project.
+ */
+@Entity
+@Table(name = "task_tombstone", indexes = @Index(name = "ix_task_tombstone_project_modified_seq", columnList = "project_id, modified_seq"))
+@Data
+@NoArgsConstructor
+public class TaskTombstoneEntity {
+
+    @Id
+    @Column(name = "task_id")
+    private Long taskId;
+
+    @Column(name = "project_id", nullable = false)//no association, project may be deleted before its tombstones
+    private Long projectId;
+
+    @Column(name = "modified_seq", nullable = false)
+    private long modifiedSeq;
+
+    public TaskTombstoneEntity(Long taskId, Long projectId, long modifiedSeq) {
+        this.taskId = taskId;
+        this.projectId = projectId;
+        this.modifiedSeq = modifiedSeq;
+    }
+}
@@ -4,22 +4,34 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import pl.asap.asapbe.persistence.PooledIdGenerator;
 
-import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.Id;
+import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "ux_user_auth_details_token", columnList = "token", unique = true),
+        @Index(name = "ux_user_auth_details_user_id", columnList = "user_id", unique = true)
+})
 @Data
 @EqualsAndHashCode(exclude = {"assignee", "project"})
 @NoArgsConstructor
 public class UserAuthDetailsEntity {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "user_auth_details_entity_id")
+    @GenericGenerator(name = "user_auth_details_entity_id", strategy = PooledIdGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "user_auth_details_entity_seq"))
     @JsonIgnore
     private Long id;
+
+    @Column(name = "user_id", nullable = false)
     private Long userId;
+
+    @Column(name = "token", nullable = false, length = 36)
     private String token;
 
     public UserAuthDetailsEntity(String token) {
@@ -1,32 +1,49 @@
 package pl.asap.asapbe.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import pl.asap.asapbe.persistence.PooledIdGenerator;
 
 import javax.persistence.*;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "ux_user_entity_email", columnList = "email", unique = true))
 @Data
-@EqualsAndHashCode(exclude = {"tasks", "projects", "password", "id"})
+@EqualsAndHashCode(exclude = {"tasks", "projects", "supervisedProjects", "password", "id"})
 @NoArgsConstructor
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})//serialized lazy proxies
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserEntity.CACHE_REGION)
 public class UserEntity {
 
+    public static final String CACHE_REGION = "user";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "user_entity_id")
+    @GenericGenerator(name = "user_entity_id", strategy = PooledIdGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "user_entity_seq"))
     private Long id;
     private String firstName;
     private String lastName;
+
+    @Column(name = "email", nullable = false)
     private String email;
 
     @JsonIgnore
     private String password;
 
-    @OneToOne(cascade = CascadeType.ALL, mappedBy = "supervisor")
+    @OneToMany(cascade = CascadeType.ALL, mappedBy = "supervisor")//inverse one-to-one can't be lazy, collection can
     @JsonIgnore
-    private ProjectEntity projectEntity;
+    private Set<ProjectEntity> supervisedProjects;
 
     @OneToMany(mappedBy = "assignee")
     @JsonIgnore
@@ -0,0 +1,9 @@
+package pl.asap.asapbe.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.PAYLOAD_TOO_LARGE, reason = "Too many tasks in one bulk request")
+public class BulkRequestTooLargeException extends RuntimeException{
+
+}
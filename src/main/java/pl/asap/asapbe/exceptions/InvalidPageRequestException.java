@@ -0,0 +1,9 @@
+package pl.asap.asapbe.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Invalid page number, page size or sort property")
+public class InvalidPageRequestException extends RuntimeException{
+
+}
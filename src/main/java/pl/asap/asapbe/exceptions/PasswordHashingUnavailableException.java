@@ -0,0 +1,9 @@
+package pl.asap.asapbe.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE, reason = "Too many authentication requests, try again later")
+public class PasswordHashingUnavailableException extends RuntimeException{
+
+}
@@ -0,0 +1,53 @@
+package pl.asap.asapbe.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import pl.asap.asapbe.cache.ProjectMembershipCache;
+import pl.asap.asapbe.cache.ProjectTaskCountsCache;
+import pl.asap.asapbe.cache.UserAuthDetailsCache;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Hit, miss and eviction counters and size of the application caches, tagged with cache name. Counters are read
+ * from the caches when metrics are published, nothing is recorded on the lookup path.
+ */
+@Component
+public class CacheMetrics implements MeterBinder {
+    public static final String GETS_COUNTER = "asap.cache.gets";
+    public static final String EVICTIONS_COUNTER = "asap.cache.evictions";
+    public static final String SIZE_GAUGE = "asap.cache.size";
+
+    private final UserAuthDetailsCache userAuthDetailsCache;
+    private final ProjectMembershipCache projectMembershipCache;
+    private final ProjectTaskCountsCache projectTaskCountsCache;
+
+    @Autowired
+    public CacheMetrics(UserAuthDetailsCache userAuthDetailsCache, ProjectMembershipCache projectMembershipCache, ProjectTaskCountsCache projectTaskCountsCache) {
+        this.userAuthDetailsCache = userAuthDetailsCache;
+        this.projectMembershipCache = projectMembershipCache;
+        this.projectTaskCountsCache = projectTaskCountsCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, "auth-token", userAuthDetailsCache, UserAuthDetailsCache::getHitCount, UserAuthDetailsCache::getMissCount,
+                UserAuthDetailsCache::getEvictionCount, UserAuthDetailsCache::size);
+        bind(registry, "project-membership", projectMembershipCache, ProjectMembershipCache::getHitCount, ProjectMembershipCache::getMissCount,
+                ProjectMembershipCache::getEvictionCount, ProjectMembershipCache::size);
+        bind(registry, "project-task-counts", projectTaskCountsCache, ProjectTaskCountsCache::getHitCount, ProjectTaskCountsCache::getMissCount,
+                ProjectTaskCountsCache::getEvictionCount, ProjectTaskCountsCache::size);
+    }
+
+    private static <T> void bind(MeterRegistry registry, String cacheName, T cache, ToDoubleFunction<T> hits, ToDoubleFunction<T> misses,
+                                 ToDoubleFunction<T> evictions, ToDoubleFunction<T> size) {
+        FunctionCounter.builder(GETS_COUNTER, cache, hits).tags("cache", cacheName, "result", "hit").register(registry);
+        FunctionCounter.builder(GETS_COUNTER, cache, misses).tags("cache", cacheName, "result", "miss").register(registry);
+        FunctionCounter.builder(EVICTIONS_COUNTER, cache, evictions).tags("cache", cacheName).register(registry);
+        Gauge.builder(SIZE_GAUGE, cache, size).tags("cache", cacheName).register(registry);
+    }
+}
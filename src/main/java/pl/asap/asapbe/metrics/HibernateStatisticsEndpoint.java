@@ -0,0 +1,79 @@
+package pl.asap.asapbe.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Session factory wide Hibernate statistics, available over JMX and - when added to
+ * management.endpoints.web.exposure.include - at /actuator/hibernate. Statistics are collected only when
+ * spring.jpa.properties.hibernate.generate_statistics is true, otherwise endpoint reports them as disabled.
+ * Only counts and times are reported, no SQL text. Reset is a JMX operation (HibernateStatisticsJmxExtension).
+ * Second-level cache is reported per region too, hit ratio is the main input for sizing regions (asap.cache.*).
+ */
+@Component
+@Endpoint(id = "hibernate")
+public class HibernateStatisticsEndpoint {
+
+    private final Statistics statistics;
+
+    @Autowired
+    public HibernateStatisticsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("enabled", statistics.isStatisticsEnabled());
+        if (!statistics.isStatisticsEnabled())
+            return summary;
+        summary.put("statementsPrepared", statistics.getPrepareStatementCount());
+        summary.put("queriesExecuted", statistics.getQueryExecutionCount());
+        summary.put("slowestQueryTimeMs", statistics.getQueryExecutionMaxTime());
+        summary.put("entitiesLoaded", statistics.getEntityLoadCount());
+        summary.put("entitiesFetched", statistics.getEntityFetchCount());//loaded by separate select, main N+1 indicator
+        summary.put("collectionsLoaded", statistics.getCollectionLoadCount());
+        summary.put("collectionsFetched", statistics.getCollectionFetchCount());
+        summary.put("entitiesInserted", statistics.getEntityInsertCount());
+        summary.put("entitiesUpdated", statistics.getEntityUpdateCount());
+        summary.put("entitiesDeleted", statistics.getEntityDeleteCount());
+        summary.put("flushes", statistics.getFlushCount());
+        summary.put("transactions", statistics.getTransactionCount());
+        summary.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        summary.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        summary.put("secondLevelCacheRegions", secondLevelCacheRegions());
+        return summary;
+    }
+
+    private Map<String, Object> secondLevelCacheRegions() {
+        Map<String, Object> regions = new TreeMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(regionName);
+            Map<String, Object> region = new LinkedHashMap<>();
+            region.put("hits", regionStatistics.getHitCount());
+            region.put("misses", regionStatistics.getMissCount());
+            region.put("puts", regionStatistics.getPutCount());
+            region.put("hitRatio", hitRatio(regionStatistics.getHitCount(), regionStatistics.getMissCount()));
+            regions.put(regionName, region);
+        }
+        return regions;
+    }
+
+    private static Double hitRatio(long hits, long misses) {
+        return hits + misses == 0 ? null : (double) hits / (hits + misses);
+    }
+
+    void reset() {
+        statistics.clear();
+    }
+}
@@ -0,0 +1,27 @@
+package pl.asap.asapbe.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.jmx.annotation.EndpointJmxExtension;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds reset of Hibernate statistics to the JMX variant of HibernateStatisticsEndpoint only, so it can't be called
+ * over HTTP even when the endpoint is exposed there.
+ */
+@Component
+@EndpointJmxExtension(endpoint = HibernateStatisticsEndpoint.class)
+public class HibernateStatisticsJmxExtension {
+
+    private final HibernateStatisticsEndpoint hibernateStatisticsEndpoint;
+
+    @Autowired
+    public HibernateStatisticsJmxExtension(HibernateStatisticsEndpoint hibernateStatisticsEndpoint) {
+        this.hibernateStatisticsEndpoint = hibernateStatisticsEndpoint;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        hibernateStatisticsEndpoint.reset();
+    }
+}
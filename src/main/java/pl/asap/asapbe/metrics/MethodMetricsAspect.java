@@ -0,0 +1,67 @@
+package pl.asap.asapbe.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public method of rest controllers and services, and counts custom exceptions leaving controllers.
+ * Percentiles, histogram and SLA buckets of the timers are configured with management.metrics.distribution.*.asap
+ */
+@Aspect
+@Component
+public class MethodMetricsAspect {
+    public static final String ENDPOINT_TIMER = "asap.endpoint.calls";
+    public static final String SERVICE_TIMER = "asap.service.calls";
+    public static final String EXCEPTION_COUNTER = "asap.exceptions";
+
+    private static final String EXCEPTIONS_PACKAGE = "pl.asap.asapbe.exceptions";
+    private static final String NO_EXCEPTION = "None";
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public MethodMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("@within(org.springframework.web.bind.annotation.RestController) && execution(public * *(..))")
+    public Object timeEndpoint(ProceedingJoinPoint joinPoint) throws Throwable {
+        try {
+            return time(ENDPOINT_TIMER, joinPoint);
+        } catch (Throwable throwable) {
+            if (isCustomException(throwable))//counted once, at the outermost layer, even if thrown deep in services
+                meterRegistry.counter(EXCEPTION_COUNTER, "exception", throwable.getClass().getSimpleName()).increment();
+            throw throwable;
+        }
+    }
+
+    @Around("@within(org.springframework.stereotype.Service) && execution(public * *(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(SERVICE_TIMER, joinPoint);
+    }
+
+    private Object time(String timerName, ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = NO_EXCEPTION;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            exception = throwable.getClass().getSimpleName();
+            throw throwable;
+        } finally {
+            sample.stop(meterRegistry.timer(timerName,
+                    "class", joinPoint.getSignature().getDeclaringType().getSimpleName(),
+                    "method", joinPoint.getSignature().getName(),
+                    "exception", exception));
+        }
+    }
+
+    private static boolean isCustomException(Throwable throwable) {
+        return throwable.getClass().getName().startsWith(EXCEPTIONS_PACKAGE + ".");
+    }
+}
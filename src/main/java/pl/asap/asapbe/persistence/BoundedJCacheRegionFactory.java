@@ -0,0 +1,55 @@
+package pl.asap.asapbe.persistence;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.cache.CacheException;
+import org.hibernate.cache.jcache.JCacheRegionFactory;
+import org.hibernate.cache.spi.CacheDataDescription;
+
+import javax.cache.Cache;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Second-level cache regions kept in Ehcache (JCache provider, in-process heap). JCacheRegionFactory creates missing
+ * regions unbounded and without expiry, here every region gets an entry limit and time to live.
+ * Both are read from hibernate settings (spring.jpa.properties.*): REGION_PREFIX + region name + MAX_ENTRIES / TTL_SECONDS,
+ * with REGION_PREFIX + "default" as fallback.
+ */
+public class BoundedJCacheRegionFactory extends JCacheRegionFactory {
+
+    public static final String REGION_PREFIX = "asap.cache.";
+    public static final String MAX_ENTRIES = ".max-entries";
+    public static final String TTL_SECONDS = ".ttl-seconds";
+    static final long DEFAULT_MAX_ENTRIES = 1000;
+    static final long DEFAULT_TTL_SECONDS = 600;
+
+    @Override
+    protected Cache<Object, Object> createCache(String regionName, Properties properties, CacheDataDescription metadata) {
+        CacheConfigurationBuilder<Object, Object> configuration = CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(setting(properties, regionName, MAX_ENTRIES, DEFAULT_MAX_ENTRIES)))
+                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(
+                        Duration.ofSeconds(setting(properties, regionName, TTL_SECONDS, DEFAULT_TTL_SECONDS))));
+        return getCacheManager().createCache(regionName, Eh107Configuration.fromEhcacheCacheConfiguration(configuration));
+    }
+
+    static long setting(Map<?, ?> settings, String regionName, String suffix, long defaultValue) {
+        Object value = settings.get(REGION_PREFIX + regionName + suffix);
+        if (value == null)
+            value = settings.get(REGION_PREFIX + "default" + suffix);
+        if (value == null)
+            return defaultValue;
+        try {
+            long setting = Long.parseLong(value.toString().trim());
+            if (setting < 1)
+                throw new CacheException("Cache setting " + suffix.substring(1) + " of region " + regionName + " has to be positive, was " + setting);
+            return setting;
+        } catch (NumberFormatException e) {
+            throw new CacheException("Cache setting " + suffix.substring(1) + " of region " + regionName + " is not a number: " + value, e);
+        }
+    }
+}
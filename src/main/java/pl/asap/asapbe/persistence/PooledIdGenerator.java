@@ -0,0 +1,49 @@
+package pl.asap.asapbe.persistence;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Sequence per entity with pooled-lo optimizer - one database round trip allocates a block of ids, which are then
+ * handed out in memory. On databases without sequences (MySQL) each sequence is a single row table, so entities
+ * don't contend on a shared hibernate_sequence row.
+ * Block size is read from hibernate settings (spring.jpa.properties.*), key is ALLOCATION_SIZE_PREFIX followed by
+ * sequence name, with ALLOCATION_SIZE_PREFIX + "default" as fallback.
+ */
+public class PooledIdGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "pl.asap.asapbe.persistence.PooledIdGenerator";
+    public static final String ALLOCATION_SIZE_PREFIX = "asap.id.allocation-size.";
+    static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize(settings, params.getProperty(SEQUENCE_PARAM))));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+
+    static int allocationSize(Map<?, ?> settings, String sequenceName) {
+        Object size = settings.get(ALLOCATION_SIZE_PREFIX + sequenceName);
+        if (size == null)
+            size = settings.get(ALLOCATION_SIZE_PREFIX + "default");
+        if (size == null)
+            return DEFAULT_ALLOCATION_SIZE;
+        try {
+            int allocationSize = Integer.parseInt(size.toString().trim());
+            if (allocationSize < 1)
+                throw new MappingException("Id allocation size of " + sequenceName + " has to be positive, was " + allocationSize);
+            return allocationSize;
+        } catch (NumberFormatException e) {
+            throw new MappingException("Id allocation size of " + sequenceName + " is not a number: " + size, e);
+        }
+    }
+}
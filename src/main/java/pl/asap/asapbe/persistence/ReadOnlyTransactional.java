@@ -0,0 +1,18 @@
+package pl.asap.asapbe.persistence;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.annotation.*;
+
+/**
+ * Read-only transaction for service methods that only read. Hibernate session is switched to flush mode MANUAL,
+ * so entities are never dirty-checked nor flushed, and the JDBC connection is marked read-only.
+ * When a replica is configured (datasource.replica.*) statements of such transaction are sent to the replica,
+ * see ReadWriteRoutingDataSource - methods should tolerate replication lag.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Transactional(readOnly = true)
+public @interface ReadOnlyTransactional {
+}
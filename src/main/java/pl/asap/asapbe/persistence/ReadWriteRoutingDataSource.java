@@ -0,0 +1,65 @@
+package pl.asap.asapbe.persistence;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends connections of read-only transactions started by methods allowed to read from replica (ReadOnlyTransactional)
+ * to the replica database, everything else to the primary one. Repository calls made outside such methods are
+ * read-only transactions as well, but stay on the primary, so a read right after a write is never stale.
+ * Lookup happens when a connection is taken, which has to be after transaction has started - target should be
+ * wrapped in LazyConnectionDataSourceProxy.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {PRIMARY, REPLICA}
+
+    private static final ThreadLocal<Boolean> replicaAllowed = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private Runnable onReplicaRoute = () -> {
+    };
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Allows or forbids replica reads in current thread, returns previous setting so it can be restored.
+     */
+    public static boolean setReplicaAllowed(boolean allowed) {
+        boolean previous = replicaAllowed.get();
+        replicaAllowed.set(allowed);
+        return previous;
+    }
+
+    /**
+     * Action run in a transaction whose connection is taken from the replica, before its first statement.
+     */
+    public void setOnReplicaRoute(Runnable onReplicaRoute) {
+        this.onReplicaRoute = onReplicaRoute;
+    }
+
+    public static Route currentRoute() {
+        if (replicaAllowed.get() && TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+            return Route.REPLICA;
+        return Route.PRIMARY;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Route route = currentRoute();
+        if (route == Route.REPLICA)
+            onReplicaRoute.run();
+        return route;
+    }
+}
@@ -0,0 +1,23 @@
+package pl.asap.asapbe.persistence;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Allows ReadWriteRoutingDataSource to use the replica during methods annotated with ReadOnlyTransactional.
+ * Registered only when replica is configured (ReplicaDataSourceConfig).
+ */
+@Aspect
+public class ReplicaRoutingAspect {
+
+    @Around("@annotation(pl.asap.asapbe.persistence.ReadOnlyTransactional)")
+    public Object allowReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReadWriteRoutingDataSource.setReplicaAllowed(true);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadWriteRoutingDataSource.setReplicaAllowed(previous);
+        }
+    }
+}
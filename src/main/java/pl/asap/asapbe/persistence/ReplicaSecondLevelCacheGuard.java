@@ -0,0 +1,46 @@
+package pl.asap.asapbe.persistence;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Keeps entities read from the replica out of second-level cache, which is shared with transactions reading the
+ * primary - a row behind by the replication lag would be served to them until it expires. Run by
+ * ReadWriteRoutingDataSource when a transaction's connection goes to the replica, before anything is read: Hibernate
+ * session of the transaction then only reads the cache (CacheMode.GET) until the transaction ends.
+ */
+public class ReplicaSecondLevelCacheGuard implements Runnable {
+
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;//looked up when used, factory depends on the datasource
+
+    public ReplicaSecondLevelCacheGuard(ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void run() {
+        EntityManagerFactory factory = entityManagerFactory.getIfAvailable();
+        if (factory == null || !TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.getResource(factory);
+        if (holder == null)//not a JPA transaction
+            return;
+        Session session = holder.getEntityManager().unwrap(Session.class);
+        CacheMode previousMode = session.getCacheMode();
+        if (previousMode == CacheMode.GET || previousMode == CacheMode.IGNORE)
+            return;
+        session.setCacheMode(CacheMode.GET);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {//session may outlive the transaction (open in view)
+                session.setCacheMode(previousMode);
+            }
+        });
+    }
+}
@@ -1,10 +1,43 @@
 package pl.asap.asapbe.repositories;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import pl.asap.asapbe.entities.ProjectEntity;
+import pl.asap.asapbe.response_model.ProjectSummary;
+import pl.asap.asapbe.response_model.UserSummary;
 
+import javax.persistence.QueryHint;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProjectRepository extends JpaRepository<ProjectEntity, Long> {
     Optional<ProjectEntity> findByTitle(String title);
+
+    Slice<ProjectEntity> findAllBy(Pageable pageable);//no count query, unlike findAll(Pageable)
+
+    @Query("select new pl.asap.asapbe.response_model.ProjectSummary(p.id, p.title) from ProjectEntity p order by p.id")
+    List<ProjectSummary> findAllSummaries();
+
+    //streamed variant, rows are fetched from database in batches while the response is written - needs a transaction
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new pl.asap.asapbe.response_model.ProjectSummary(p.id, p.title) from ProjectEntity p order by p.id")
+    Stream<ProjectSummary> streamAllSummaries();
+
+    @Query("select new pl.asap.asapbe.response_model.UserSummary(u.id, u.firstName, u.lastName, u.email) " +
+            "from ProjectEntity p join p.users u where p.id = :projectId order by u.id")
+    List<UserSummary> findMemberSummaries(@Param("projectId") Long projectId);
+
+    @Query("select p.id from ProjectEntity p where p.supervisor.id = :userId")
+    List<Long> findIdsBySupervisorId(@Param("userId") Long userId);
+
+    @Query(value = "select count(*) from project_users where project_id = :projectId and user_id = :userId", nativeQuery = true)
+    long countMembership(@Param("projectId") Long projectId, @Param("userId") Long userId);
+
+    @Query(value = "select user_id from project_users where project_id = :projectId", nativeQuery = true)
+    List<Number> findMemberIds(@Param("projectId") Long projectId);
 }
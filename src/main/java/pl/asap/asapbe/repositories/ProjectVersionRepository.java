@@ -0,0 +1,37 @@
+package pl.asap.asapbe.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import pl.asap.asapbe.entities.ProjectVersionEntity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+//increments are single atomic updates, concurrent changes of one project never lose a version
+public interface ProjectVersionRepository extends JpaRepository<ProjectVersionEntity, Long> {
+
+    @Query("select v.version from ProjectVersionEntity v where v.projectId = :projectId")
+    Optional<Long> findVersion(@Param("projectId") Long projectId);
+
+    @Query("select p.id from ProjectEntity p join p.users u where u.id = :userId")
+    List<Long> findProjectIdsOfMember(@Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("update ProjectVersionEntity v set v.version = v.version + 1 where v.projectId = :projectId")
+    int increment(@Param("projectId") Long projectId);
+
+    @Modifying
+    @Transactional
+    @Query("update ProjectVersionEntity v set v.version = v.version + 1 where v.projectId in :projectIds")
+    int incrementAll(@Param("projectIds") Collection<Long> projectIds);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ProjectVersionEntity v where v.projectId = :projectId")
+    int deleteByProjectId(@Param("projectId") Long projectId);
+}
@@ -0,0 +1,27 @@
+package pl.asap.asapbe.repositories;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.Status;
+
+import java.util.Set;
+
+/**
+ * Task search criteria, every criterion left empty matches all tasks.
+ */
+@Data
+@NoArgsConstructor
+public class TaskFilter {
+    private Set<Status> statuses;
+    private Set<Priority> priorities;
+    private Long assigneeId;
+    private String titlePrefix;
+
+    public TaskFilter(Set<Status> statuses, Set<Priority> priorities, Long assigneeId, String titlePrefix) {
+        this.statuses = statuses;
+        this.priorities = priorities;
+        this.assigneeId = assigneeId;
+        this.titlePrefix = titlePrefix;
+    }
+}
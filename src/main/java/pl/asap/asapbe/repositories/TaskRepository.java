@@ -1,7 +1,115 @@
 package pl.asap.asapbe.repositories;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.Status;
 import pl.asap.asapbe.entities.TaskEntity;
+import pl.asap.asapbe.response_model.TaskSummary;
 
-public interface TaskRepository extends JpaRepository<TaskEntity, Long> {
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+//methods returning tasks to clients load assignees in the same select, associations are lazy otherwise
+public interface TaskRepository extends JpaRepository<TaskEntity, Long>, JpaSpecificationExecutor<TaskEntity> {
+    @Override
+    @EntityGraph(TaskEntity.WITH_ASSIGNEE)
+    Optional<TaskEntity> findById(Long id);
+
+    @Override
+    @EntityGraph(TaskEntity.WITH_ASSIGNEE)
+    List<TaskEntity> findAllById(Iterable<Long> ids);
+
+    @Override
+    @EntityGraph(TaskEntity.WITH_ASSIGNEE)
+    Page<TaskEntity> findAll(Specification<TaskEntity> specification, Pageable pageable);
+
+    @Query("select new pl.asap.asapbe.response_model.TaskSummary(t.id, t.title, t.description, t.status, t.priority, " +
+            "a.id, a.firstName, a.lastName, a.email) " +
+            "from TaskEntity t left join t.assignee a where t.project.id = :projectId order by t.id")
+    List<TaskSummary> findSummariesByProjectId(@Param("projectId") Long projectId);
+
+    //streamed variant, rows are fetched from database in batches while the response is written - needs a transaction
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new pl.asap.asapbe.response_model.TaskSummary(t.id, t.title, t.description, t.status, t.priority, " +
+            "a.id, a.firstName, a.lastName, a.email) " +
+            "from TaskEntity t left join t.assignee a where t.project.id = :projectId order by t.id")
+    Stream<TaskSummary> streamSummariesByProjectId(@Param("projectId") Long projectId);
+
+    @Query("select new pl.asap.asapbe.response_model.TaskSummary(t.id, t.title, t.description, t.status, t.priority, " +
+            "a.id, a.firstName, a.lastName, a.email) " +
+            "from TaskEntity t left join t.assignee a where t.project.id = :projectId and t.modifiedSeq > :since " +
+            "order by t.modifiedSeq, t.id")
+    List<TaskSummary> findSummariesModifiedSince(@Param("projectId") Long projectId, @Param("since") long since);
+
+    @Query("select distinct t.project.id from TaskEntity t where t.assignee.id = :userId")
+    List<Long> findProjectIdsOfAssignee(@Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("update TaskEntity t set t.modifiedSeq = :modifiedSeq where t.assignee.id = :userId and t.project.id = :projectId")
+    int updateModifiedSeqOfAssignedTasks(@Param("userId") Long userId, @Param("projectId") Long projectId,
+                                         @Param("modifiedSeq") long modifiedSeq);
+
+    @EntityGraph(TaskEntity.WITH_ASSIGNEE)
+    Page<TaskEntity> findByProjectId(Long projectId, Pageable pageable);
+
+    @EntityGraph(TaskEntity.WITH_ASSIGNEE)
+    Slice<TaskEntity> findSliceByProjectId(Long projectId, Pageable pageable);//no count query
+
+    boolean existsByProjectIdAndTitle(Long projectId, String title);
+
+    boolean existsByProjectIdAndTitleAndIdNot(Long projectId, String title, Long id);
+
+    @Query("select t.title from TaskEntity t where t.project.id = :projectId and t.title in :titles")
+    List<String> findTitlesByProjectIdAndTitleIn(@Param("projectId") Long projectId, @Param("titles") Collection<String> titles);
+
+    List<TaskEntity> findByProjectIdAndTitleIn(Long projectId, Collection<String> titles);
+
+    @Query("select t.status as status, count(t) as count from TaskEntity t " +
+            "where t.project.id = :projectId and t.status is not null group by t.status")
+    List<TaskStatusCount> countByStatus(@Param("projectId") Long projectId);
+
+    //keyset scrolling, ordered by (priority, id) descending, pageable is used only as a row limit
+    @EntityGraph(TaskEntity.WITH_ASSIGNEE)
+    @Query("select t from TaskEntity t where t.project.id = :projectId order by t.priority desc, t.id desc")
+    List<TaskEntity> findScrollStart(@Param("projectId") Long projectId, Pageable limit);
+
+    @EntityGraph(TaskEntity.WITH_ASSIGNEE)
+    @Query("select t from TaskEntity t where t.project.id = :projectId " +
+            "and (t.priority < :priority or (t.priority = :priority and t.id < :id)) " +
+            "order by t.priority desc, t.id desc")
+    List<TaskEntity> findScrollAfter(@Param("projectId") Long projectId,
+                                     @Param("priority") Priority priority,
+                                     @Param("id") Long id,
+                                     Pageable limit);
+
+    @EntityGraph(TaskEntity.WITH_ASSIGNEE)
+    @Query("select t from TaskEntity t where t.project.id = :projectId and t.status = :status order by t.priority desc, t.id desc")
+    List<TaskEntity> findScrollStartWithStatus(@Param("projectId") Long projectId,
+                                               @Param("status") Status status,
+                                               Pageable limit);
+
+    @EntityGraph(TaskEntity.WITH_ASSIGNEE)
+    @Query("select t from TaskEntity t where t.project.id = :projectId and t.status = :status " +
+            "and (t.priority < :priority or (t.priority = :priority and t.id < :id)) " +
+            "order by t.priority desc, t.id desc")
+    List<TaskEntity> findScrollAfterWithStatus(@Param("projectId") Long projectId,
+                                               @Param("status") Status status,
+                                               @Param("priority") Priority priority,
+                                               @Param("id") Long id,
+                                               Pageable limit);
 }
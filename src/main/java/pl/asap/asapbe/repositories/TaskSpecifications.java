@@ -0,0 +1,56 @@
+package pl.asap.asapbe.repositories;
+
+import org.springframework.data.jpa.domain.Specification;
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.Status;
+import pl.asap.asapbe.entities.TaskEntity;
+
+import java.util.Collection;
+
+/**
+ * Criteria of TaskRepository searches, every one of them is covered by an index starting with project_id.
+ */
+public final class TaskSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private TaskSpecifications() {
+    }
+
+    public static Specification<TaskEntity> matching(Long projectId, TaskFilter filter) {
+        Specification<TaskEntity> specification = Specification.where(inProject(projectId));
+        if (filter.getStatuses() != null && !filter.getStatuses().isEmpty())
+            specification = specification.and(statusIn(filter.getStatuses()));
+        if (filter.getPriorities() != null && !filter.getPriorities().isEmpty())
+            specification = specification.and(priorityIn(filter.getPriorities()));
+        if (filter.getAssigneeId() != null)
+            specification = specification.and(assignedTo(filter.getAssigneeId()));
+        if (filter.getTitlePrefix() != null && !filter.getTitlePrefix().isEmpty())
+            specification = specification.and(titleStartsWith(filter.getTitlePrefix()));
+        return specification;
+    }
+
+    public static Specification<TaskEntity> inProject(Long projectId) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("project").get("id"), projectId);
+    }
+
+    public static Specification<TaskEntity> statusIn(Collection<Status> statuses) {
+        return (root, query, criteriaBuilder) -> root.get("status").in(statuses);
+    }
+
+    public static Specification<TaskEntity> priorityIn(Collection<Priority> priorities) {
+        return (root, query, criteriaBuilder) -> root.get("priority").in(priorities);
+    }
+
+    public static Specification<TaskEntity> assignedTo(Long userId) {
+        return (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("assignee").get("id"), userId);//compares foreign key, no join
+    }
+
+    public static Specification<TaskEntity> titleStartsWith(String prefix) {//prefix only, so that title index can be used
+        return (root, query, criteriaBuilder) -> criteriaBuilder.like(root.get("title"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
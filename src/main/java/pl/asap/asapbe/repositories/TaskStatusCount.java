@@ -0,0 +1,13 @@
+package pl.asap.asapbe.repositories;
+
+import pl.asap.asapbe.entities.Status;
+
+/**
+ * Row of the task count per status aggregate of a project.
+ */
+public interface TaskStatusCount {
+
+    Status getStatus();
+
+    Long getCount();
+}
@@ -0,0 +1,22 @@
+package pl.asap.asapbe.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import pl.asap.asapbe.entities.TaskTombstoneEntity;
+
+import java.util.List;
+
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstoneEntity, Long> {
+
+    @Query("select t.taskId from TaskTombstoneEntity t where t.projectId = :projectId and t.modifiedSeq > :since " +
+            "order by t.modifiedSeq, t.taskId")
+    List<Long> findTaskIdsDeletedSince(@Param("projectId") Long projectId, @Param("since") long since);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TaskTombstoneEntity t where t.projectId = :projectId")
+    int deleteByProjectId(@Param("projectId") Long projectId);
+}
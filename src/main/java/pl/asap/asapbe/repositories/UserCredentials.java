@@ -0,0 +1,11 @@
+package pl.asap.asapbe.repositories;
+
+/**
+ * Projection of UserEntity with only the columns needed to verify a login.
+ */
+public interface UserCredentials {
+
+    Long getId();
+
+    String getPassword();
+}
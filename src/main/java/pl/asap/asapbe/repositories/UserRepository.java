@@ -1,15 +1,43 @@
 package pl.asap.asapbe.repositories;
 
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import pl.asap.asapbe.entities.UserEntity;
+import pl.asap.asapbe.response_model.UserSummary;
 
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<UserEntity, Long> {
     UserEntity findByEmail(String email);
-    UserEntity findByEmailAndPassword(String email, String password);
-}
\ No newline at end of file
+
+    Slice<UserEntity> findAllBy(Pageable pageable);//no count query, unlike findAll(Pageable)
+
+    Optional<UserCredentials> findCredentialsByEmail(String email);
+
+    //list endpoints read only serialized columns, no entities are loaded into persistence context
+    @Query("select new pl.asap.asapbe.response_model.UserSummary(u.id, u.firstName, u.lastName, u.email) " +
+            "from UserEntity u order by u.id")
+    List<UserSummary> findAllSummaries();
+
+    //streamed variant, rows are fetched from database in batches while the response is written - needs a transaction
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new pl.asap.asapbe.response_model.UserSummary(u.id, u.firstName, u.lastName, u.email) " +
+            "from UserEntity u order by u.id")
+    Stream<UserSummary> streamAllSummaries();
+
+    @Modifying
+    @Transactional
+    @Query("update UserEntity u set u.password = :password where u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+}
@@ -0,0 +1,47 @@
+package pl.asap.asapbe.response_model;
+
+import pl.asap.asapbe.entities.TaskEntity;
+
+public class BulkTaskResult {
+
+    public enum Outcome {
+        CREATED,
+        UPDATED,
+        DUPLICATED_TITLE,
+        NO_SUCH_TASK
+    }
+
+    private int index;//position of the task in request body
+    private Outcome outcome;
+    private TaskEntity task;//null if task was not written
+
+    public BulkTaskResult(int index, Outcome outcome, TaskEntity task) {
+        this.index = index;
+        this.outcome = outcome;
+        this.task = task;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    public TaskEntity getTask() {
+        return task;
+    }
+
+    public void setTask(TaskEntity task) {
+        this.task = task;
+    }
+}
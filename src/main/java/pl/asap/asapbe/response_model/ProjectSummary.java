@@ -0,0 +1,30 @@
+package pl.asap.asapbe.response_model;
+
+/**
+ * Project as returned by list endpoints, populated directly by repository constructor expressions.
+ */
+public class ProjectSummary {
+    private Long id;
+    private String title;
+
+    public ProjectSummary(Long id, String title) {
+        this.id = id;
+        this.title = title;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+}
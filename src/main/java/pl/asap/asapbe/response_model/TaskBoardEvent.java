@@ -0,0 +1,78 @@
+package pl.asap.asapbe.response_model;
+
+/**
+ * Change of a project's task, published by TaskServiceImpl and pushed to clients streaming the project's task board
+ * once the change is committed. modifiedSeq is the project version the change was stamped with (see GET tasks/changes).
+ * Bulk operations publish a single RESYNC instead of one event per task, without task - clients fetch the changes
+ * with GET tasks/changes.
+ */
+public class TaskBoardEvent {
+
+    public enum Type {CREATED, MODIFIED, ASSIGNED, DELETED, RESYNC}
+
+    private Type type;
+    private Long projectId;
+    private Long taskId;
+    private long modifiedSeq;
+    private TaskSummary task;//null for deleted task and resync
+
+    public TaskBoardEvent(Type type, Long projectId, Long taskId, long modifiedSeq, TaskSummary task) {
+        this.type = type;
+        this.projectId = projectId;
+        this.taskId = taskId;
+        this.modifiedSeq = modifiedSeq;
+        this.task = task;
+    }
+
+    public static TaskBoardEvent changed(Type type, Long projectId, TaskSummary task, long modifiedSeq) {
+        return new TaskBoardEvent(type, projectId, task.getId(), modifiedSeq, task);
+    }
+
+    public static TaskBoardEvent deleted(Long projectId, Long taskId, long modifiedSeq) {
+        return new TaskBoardEvent(Type.DELETED, projectId, taskId, modifiedSeq, null);
+    }
+
+    public static TaskBoardEvent resync(Long projectId, long modifiedSeq) {
+        return new TaskBoardEvent(Type.RESYNC, projectId, null, modifiedSeq, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public Long getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(Long projectId) {
+        this.projectId = projectId;
+    }
+
+    public Long getTaskId() {
+        return taskId;
+    }
+
+    public void setTaskId(Long taskId) {
+        this.taskId = taskId;
+    }
+
+    public long getModifiedSeq() {
+        return modifiedSeq;
+    }
+
+    public void setModifiedSeq(long modifiedSeq) {
+        this.modifiedSeq = modifiedSeq;
+    }
+
+    public TaskSummary getTask() {
+        return task;
+    }
+
+    public void setTask(TaskSummary task) {
+        this.task = task;
+    }
+}
@@ -0,0 +1,43 @@
+package pl.asap.asapbe.response_model;
+
+import java.util.List;
+
+/**
+ * Changes of project's tasks since a client's watermark - tasks created or modified after it and ids of tasks deleted
+ * after it. Watermark is passed back as since on the next call.
+ */
+public class TaskChanges {
+    private List<TaskSummary> changedTasks;
+    private List<Long> deletedTaskIds;
+    private long watermark;
+
+    public TaskChanges(List<TaskSummary> changedTasks, List<Long> deletedTaskIds, long watermark) {
+        this.changedTasks = changedTasks;
+        this.deletedTaskIds = deletedTaskIds;
+        this.watermark = watermark;
+    }
+
+    public List<TaskSummary> getChangedTasks() {
+        return changedTasks;
+    }
+
+    public void setChangedTasks(List<TaskSummary> changedTasks) {
+        this.changedTasks = changedTasks;
+    }
+
+    public List<Long> getDeletedTaskIds() {
+        return deletedTaskIds;
+    }
+
+    public void setDeletedTaskIds(List<Long> deletedTaskIds) {
+        this.deletedTaskIds = deletedTaskIds;
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(long watermark) {
+        this.watermark = watermark;
+    }
+}
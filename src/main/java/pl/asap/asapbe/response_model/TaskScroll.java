@@ -0,0 +1,31 @@
+package pl.asap.asapbe.response_model;
+
+import pl.asap.asapbe.entities.TaskEntity;
+
+import java.util.List;
+
+public class TaskScroll {
+    private List<TaskEntity> tasks;
+    private String nextCursor;//null when there are no more tasks
+
+    public TaskScroll(List<TaskEntity> tasks, String nextCursor) {
+        this.tasks = tasks;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<TaskEntity> getTasks() {
+        return tasks;
+    }
+
+    public void setTasks(List<TaskEntity> tasks) {
+        this.tasks = tasks;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,88 @@
+package pl.asap.asapbe.response_model;
+
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.Status;
+import pl.asap.asapbe.entities.TaskEntity;
+import pl.asap.asapbe.entities.UserEntity;
+
+/**
+ * Task with its assignee as returned by list endpoints, populated directly by repository constructor expressions
+ * (assignee columns come from a left join, so they are all null for unassigned task).
+ */
+public class TaskSummary {
+    private Long id;
+    private String title;
+    private String description;
+    private Status status;
+    private Priority priority;
+    private UserSummary assignee;
+
+    public TaskSummary(Long id, String title, String description, Status status, Priority priority, UserSummary assignee) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.status = status;
+        this.priority = priority;
+        this.assignee = assignee;
+    }
+
+    public TaskSummary(Long id, String title, String description, Status status, Priority priority,
+                       Long assigneeId, String assigneeFirstName, String assigneeLastName, String assigneeEmail) {
+        this(id, title, description, status, priority,
+                assigneeId == null ? null : new UserSummary(assigneeId, assigneeFirstName, assigneeLastName, assigneeEmail));
+    }
+
+    public static TaskSummary of(TaskEntity task) {//assignee has to be loaded
+        UserEntity assignee = task.getAssignee();
+        return new TaskSummary(task.getId(), task.getTitle(), task.getDescription(), task.getStatus(), task.getPriority(),
+                assignee == null ? null : new UserSummary(assignee.getId(), assignee.getFirstName(), assignee.getLastName(), assignee.getEmail()));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    public UserSummary getAssignee() {
+        return assignee;
+    }
+
+    public void setAssignee(UserSummary assignee) {
+        this.assignee = assignee;
+    }
+}
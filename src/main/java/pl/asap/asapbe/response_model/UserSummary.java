@@ -0,0 +1,50 @@
+package pl.asap.asapbe.response_model;
+
+/**
+ * User as returned by list endpoints, populated directly by repository constructor expressions.
+ */
+public class UserSummary {
+    private Long id;
+    private String firstName;
+    private String lastName;
+    private String email;
+
+    public UserSummary(Long id, String firstName, String lastName, String email) {
+        this.id = id;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+}
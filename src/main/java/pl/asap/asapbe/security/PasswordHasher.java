@@ -0,0 +1,12 @@
+package pl.asap.asapbe.security;
+
+public interface PasswordHasher {
+
+    String hash(String password);
+
+    boolean matches(String password, String hashedPassword);
+
+    boolean supports(String hashedPassword);
+
+    boolean needsRehash(String hashedPassword);
+}
@@ -0,0 +1,74 @@
+package pl.asap.asapbe.security;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Salted PBKDF2 (HMAC-SHA256) hashes stored as pbkdf2$iterations$salt$hash, iterations being the cost factor.
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final String SEPARATOR = "$";
+    private static final Pattern HASH_FORMAT = Pattern.compile("^pbkdf2\\$\\d{1,9}\\$[A-Za-z0-9+/=]+\\$[A-Za-z0-9+/=]+$");
+    private static final int SALT_LENGTH = 16;
+    private static final int KEY_LENGTH = 256;
+
+    private final int iterations;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public Pbkdf2PasswordHasher(int iterations) {
+        if (iterations < 1)
+            throw new IllegalArgumentException("PBKDF2 iterations must be positive");
+        this.iterations = iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        secureRandom.nextBytes(salt);
+        byte[] key = deriveKey(password, salt, iterations, KEY_LENGTH);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + SEPARATOR + iterations + SEPARATOR + encoder.encodeToString(salt) + SEPARATOR + encoder.encodeToString(key);
+    }
+
+    public boolean matches(String password, String hashedPassword) {
+        if (!supports(hashedPassword))
+            return false;
+        String[] parts = hashedPassword.split("\\$");
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] salt = decoder.decode(parts[2]);
+        byte[] expectedKey = decoder.decode(parts[3]);
+        byte[] actualKey = deriveKey(password, salt, Integer.parseInt(parts[1]), expectedKey.length * 8);
+        return MessageDigest.isEqual(expectedKey, actualKey);//constant time comparison
+    }
+
+    public boolean supports(String hashedPassword) {
+        return hashedPassword != null && HASH_FORMAT.matcher(hashedPassword).matches();
+    }
+
+    public boolean needsRehash(String hashedPassword) {
+        return !supports(hashedPassword) || Integer.parseInt(hashedPassword.split("\\$")[1]) < iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    private byte[] deriveKey(String password, byte[] salt, int iterations, int keyLength) {
+        PBEKeySpec keySpec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(keySpec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new IllegalStateException("Unable to hash password with " + ALGORITHM, e);
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+}
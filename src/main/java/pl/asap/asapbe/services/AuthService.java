@@ -6,7 +6,15 @@ public interface AuthService {
 
     UserAuthDetailsEntity authenticateUserByToken(String authToken);
 
+    void invalidateToken(String authToken);
+
     String generateToken();
 
     String encryptPassword(String password);
+
+    String hashPassword(String password);
+
+    boolean verifyPassword(String password, String hashedPassword);
+
+    boolean isPasswordRehashNeeded(String hashedPassword);
 }
\ No newline at end of file
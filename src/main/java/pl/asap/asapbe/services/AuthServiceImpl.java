@@ -1,39 +1,85 @@
 package pl.asap.asapbe.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.asap.asapbe.cache.UserAuthDetailsCache;
 import pl.asap.asapbe.entities.UserAuthDetailsEntity;
+import pl.asap.asapbe.exceptions.PasswordHashingUnavailableException;
 import pl.asap.asapbe.exceptions.UserAuthenticationException;
+import pl.asap.asapbe.persistence.ReadWriteRoutingDataSource;
 import pl.asap.asapbe.repositories.UserAuthDetailsRepository;
+import pl.asap.asapbe.security.PasswordHasher;
+
 import javax.xml.bind.annotation.adapters.HexBinaryAdapter;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.*;
 
 @Service
 public class AuthServiceImpl implements AuthService {
 
     private final UserAuthDetailsRepository userAuthDetailsRepository;
+    private final UserAuthDetailsCache userAuthDetailsCache;
+    private final PasswordHasher passwordHasher;
+    private final ExecutorService passwordHashingExecutor;
+    private final long passwordHashingTimeoutMillis;
 
     @Autowired
-    public AuthServiceImpl(UserAuthDetailsRepository userAuthDetailsRepository) {
+    public AuthServiceImpl(UserAuthDetailsRepository userAuthDetailsRepository,
+                           UserAuthDetailsCache userAuthDetailsCache,
+                           PasswordHasher passwordHasher,
+                           @Qualifier("passwordHashingExecutor") ExecutorService passwordHashingExecutor,
+                           @Value("${auth.password.hashing-timeout-ms:5000}") long passwordHashingTimeoutMillis) {
         this.userAuthDetailsRepository = userAuthDetailsRepository;
+        this.userAuthDetailsCache = userAuthDetailsCache;
+        this.passwordHasher = passwordHasher;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.passwordHashingTimeoutMillis = passwordHashingTimeoutMillis;
     }
 
      public UserAuthDetailsEntity authenticateUserByToken(String authToken) {
+        Optional<UserAuthDetailsEntity> cachedDetails = userAuthDetailsCache.get(authToken);
+        if (cachedDetails.isPresent())//token already verified recently, no need to ask database
+            return cachedDetails.get();
+        long stamp = userAuthDetailsCache.currentStamp();
         Optional<UserAuthDetailsEntity> userDetailsOptional = userAuthDetailsRepository.findByToken(authToken);
         if (!userDetailsOptional.isPresent())
             throw new UserAuthenticationException();
+        if (ReadWriteRoutingDataSource.currentRoute() == ReadWriteRoutingDataSource.Route.PRIMARY)//replica may still have a deleted token
+            userAuthDetailsCache.put(userDetailsOptional.get(), stamp);
         return userDetailsOptional.get();
     }
 
+    /**
+     * Inside a transaction token is removed from cache after commit - removed earlier, it could be cached again by
+     * a request reading the token row that is not deleted yet.
+     */
+    public void invalidateToken(String authToken) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            userAuthDetailsCache.invalidate(authToken);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                userAuthDetailsCache.invalidate(authToken);
+            }
+        });
+    }
+
     public String generateToken() {
         String uuid = UUID.randomUUID().toString();
         return uuid;
     }
 
-    public String encryptPassword(String password) {
+    public String encryptPassword(String password) {//legacy unsalted MD5, only used to verify passwords stored before hashing change
         MessageDigest md5 = null;
         try {
             md5 = MessageDigest.getInstance("MD5");
@@ -42,4 +88,42 @@ public class AuthServiceImpl implements AuthService {
         }
         return new HexBinaryAdapter().marshal(md5.digest(password.getBytes()));
     }
+
+    public String hashPassword(String password) {
+        return runOnPasswordHashingExecutor(() -> passwordHasher.hash(password));
+    }
+
+    public boolean verifyPassword(String password, String hashedPassword) {
+        if (hashedPassword == null)
+            return false;
+        if (passwordHasher.supports(hashedPassword))
+            return runOnPasswordHashingExecutor(() -> passwordHasher.matches(password, hashedPassword));
+        //password stored before hashing change
+        return MessageDigest.isEqual(hashedPassword.getBytes(StandardCharsets.UTF_8), encryptPassword(password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isPasswordRehashNeeded(String hashedPassword) {
+        return passwordHasher.needsRehash(hashedPassword);
+    }
+
+    private <T> T runOnPasswordHashingExecutor(Callable<T> hashingTask) {
+        Future<T> result;
+        try {
+            result = passwordHashingExecutor.submit(hashingTask);
+        } catch (RejectedExecutionException e) {//all hashing threads busy and queue full
+            throw new PasswordHashingUnavailableException();
+        }
+        try {
+            return result.get(passwordHashingTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new PasswordHashingUnavailableException();
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new PasswordHashingUnavailableException();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
 }
@@ -1,16 +1,34 @@
 package pl.asap.asapbe.services;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import pl.asap.asapbe.entities.ProjectEntity;
 import pl.asap.asapbe.entities.TaskEntity;
 import pl.asap.asapbe.entities.UserAuthDetailsEntity;
 import pl.asap.asapbe.entities.UserEntity;
+import pl.asap.asapbe.response_model.ProjectSummary;
+import pl.asap.asapbe.response_model.UserSummary;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
 
 public interface ProjectService {
 
-    List<ProjectEntity> getListOfAllProjects(String authToken);
+    List<ProjectSummary> getListOfAllProjects(String authToken);
 
-    List<UserEntity> getAllUsersFromSpecificProject(String authToken, Long projectId);
+    void streamAllProjects(String authToken, Consumer<? super ProjectSummary> action);
+
+    Slice<ProjectEntity> getPageOfProjects(String authToken, Pageable pageable, boolean withTotalCount);
+
+    List<UserSummary> getAllUsersFromSpecificProject(String authToken, Long projectId);
+
+    Optional<List<UserSummary>> getAllUsersFromSpecificProjectIfModified(String authToken, Long projectId, LongPredicate notModified);
+
+    Optional<Long> getProjectVersion(UserAuthDetailsEntity requestingUser, Long projectId);
+
+    Optional<Long> findProjectVersion(Long projectId);
+
+    long incrementProjectVersion(Long projectId);
 
     ProjectEntity performProjectCreation(String authToken, ProjectEntity projectEntity);
 
@@ -20,11 +38,9 @@ public interface ProjectService {
 
     ProjectEntity getProjectFromDbById(Long projectId);
 
-    List<UserEntity> performAddingUserToProjectOperation(String authToken, Long projectId, Long userId);
-
-    List<UserEntity> performDeletingUserFromProjectOperation(String authToken, Long projectId, Long userId);
+    List<UserSummary> performAddingUserToProjectOperation(String authToken, Long projectId, Long userId);
 
-    void updateProjectWithModifiedTaskData(ProjectEntity projectEntity, String title, TaskEntity taskAfterModification);
+    List<UserSummary> performDeletingUserFromProjectOperation(String authToken, Long projectId, Long userId);
 
     void updateProjectTasksSetByRemovingDeletedItem(ProjectEntity projectEntity, String titleOfTaskToDelete);
 
@@ -2,8 +2,13 @@ package pl.asap.asapbe.services;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.asap.asapbe.cache.ProjectMembershipCache;
 import pl.asap.asapbe.entities.ProjectEntity;
+import pl.asap.asapbe.entities.ProjectVersionEntity;
 import pl.asap.asapbe.entities.TaskEntity;
 import pl.asap.asapbe.entities.UserAuthDetailsEntity;
 import pl.asap.asapbe.entities.UserEntity;
@@ -11,10 +16,19 @@ import pl.asap.asapbe.exceptions.InsufficientPermissionException;
 import pl.asap.asapbe.exceptions.NoSuchProjectException;
 import pl.asap.asapbe.exceptions.ProjectAlreadyExistsInDatabaseException;
 import pl.asap.asapbe.exceptions.UserAuthenticationException;
+import pl.asap.asapbe.persistence.ReadOnlyTransactional;
+import pl.asap.asapbe.persistence.ReadWriteRoutingDataSource;
 import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.ProjectVersionRepository;
+import pl.asap.asapbe.repositories.TaskTombstoneRepository;
+import pl.asap.asapbe.response_model.ProjectSummary;
+import pl.asap.asapbe.response_model.UserSummary;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -22,31 +36,100 @@ public class ProjectServiceImpl implements ProjectService{
     private final UserServiceImpl userServiceImpl;
     private final AuthServiceImpl authServiceImpl;
     private final ProjectRepository projectRepository;
+    private final ProjectMembershipCache projectMembershipCache;
+    private final ProjectVersionRepository projectVersionRepository;
+    private final TaskTombstoneRepository taskTombstoneRepository;
 
     @Autowired
-    public ProjectServiceImpl(UserServiceImpl userServiceImpl, AuthServiceImpl authServiceImpl, ProjectRepository projectRepository) {
+    public ProjectServiceImpl(UserServiceImpl userServiceImpl, AuthServiceImpl authServiceImpl, ProjectRepository projectRepository, ProjectMembershipCache projectMembershipCache, ProjectVersionRepository projectVersionRepository, TaskTombstoneRepository taskTombstoneRepository) {
         this.userServiceImpl = userServiceImpl;
         this.authServiceImpl = authServiceImpl;
         this.projectRepository = projectRepository;
+        this.projectMembershipCache = projectMembershipCache;
+        this.projectVersionRepository = projectVersionRepository;
+        this.taskTombstoneRepository = taskTombstoneRepository;
     }
 
-    public List<ProjectEntity> getListOfAllProjects(String authToken) {
+    @ReadOnlyTransactional
+    public List<ProjectSummary> getListOfAllProjects(String authToken) {
         if (authServiceImpl.authenticateUserByToken(authToken) != null) //user authenticated
-            return projectRepository.findAll();
+            return projectRepository.findAllSummaries();
         else
             throw new UserAuthenticationException();
     }
 
-    public List<UserEntity> getAllUsersFromSpecificProject(String authToken, Long projectId) {
+    @ReadOnlyTransactional//projects are passed to action as they are read, see UserServiceImpl.streamAllUsers
+    public void streamAllProjects(String authToken, Consumer<? super ProjectSummary> action) {
+        if (authServiceImpl.authenticateUserByToken(authToken) == null)
+            throw new UserAuthenticationException();
+        try (Stream<ProjectSummary> projects = projectRepository.streamAllSummaries()) {
+            projects.forEach(action);
+        }
+    }
+
+    public Slice<ProjectEntity> getPageOfProjects(String authToken, Pageable pageable, boolean withTotalCount) {
+        if (authServiceImpl.authenticateUserByToken(authToken) != null) //user authenticated
+            return withTotalCount ? projectRepository.findAll(pageable) : projectRepository.findAllBy(pageable);
+        else
+            throw new UserAuthenticationException();
+    }
+
+    @ReadOnlyTransactional
+    public List<UserSummary> getAllUsersFromSpecificProject(String authToken, Long projectId) {
         UserAuthDetailsEntity userRequesting = authServiceImpl.authenticateUserByToken(authToken);//possible users from project and outside project
+        return getAllUsersFromSpecificProject(userRequesting, projectId);
+    }
+
+    /**
+     * Members of project, or empty if notModified returns true for the current version of project's lists. Version
+     * is read before members, so it is never newer than them, and user is authenticated and checked once for both.
+     * Members of a project without version are always read.
+     */
+    @ReadOnlyTransactional
+    public Optional<List<UserSummary>> getAllUsersFromSpecificProjectIfModified(String authToken, Long projectId, LongPredicate notModified) {
+        UserAuthDetailsEntity userRequesting = authServiceImpl.authenticateUserByToken(authToken);
+        Optional<Long> version = getProjectVersion(userRequesting, projectId);
+        if (!version.isPresent())
+            return Optional.of(getAllUsersFromSpecificProject(userRequesting, projectId));
+        if (notModified.test(version.get()))
+            return Optional.empty();
+        return Optional.of(projectRepository.findMemberSummaries(projectId));//access already checked with the version
+    }
+
+    private List<UserSummary> getAllUsersFromSpecificProject(UserAuthDetailsEntity userRequesting, Long projectId) {
         ProjectEntity projectToGetUsersFrom = getProjectFromDbById(projectId);
         if (isUserPartOfProject(userRequesting, projectToGetUsersFrom)) {
-            return new ArrayList<>(projectToGetUsersFrom.getUsers());
+            return projectRepository.findMemberSummaries(projectId);//project's users collection is not initialized
         } else {
             throw new InsufficientPermissionException();
         }
     }
 
+    /**
+     * Version of project's task and member lists, checked before the lists are loaded. Empty for a project without
+     * version (or without project), which then always has to be loaded - access is checked only for a versioned one.
+     */
+    public Optional<Long> getProjectVersion(UserAuthDetailsEntity requestingUser, Long projectId) {
+        Optional<Long> version = findProjectVersion(projectId);
+        if (version.isPresent() && !isUserPartOfProject(projectId, requestingUser.getUserId()))
+            throw new InsufficientPermissionException();
+        return version;
+    }
+
+    public Optional<Long> findProjectVersion(Long projectId) {
+        return projectVersionRepository.findVersion(projectId);
+    }
+
+    /**
+     * Increments project's version and returns the new one (0 for a project without version), which changed tasks
+     * are stamped with. Version row stays locked until caller's transaction ends, so changes of a project commit in
+     * order of their versions - it has to be locked before task and member rows, to keep the same lock order everywhere.
+     */
+    public long incrementProjectVersion(Long projectId) {
+        projectVersionRepository.increment(projectId);
+        return findProjectVersion(projectId).orElse(0L);
+    }
+
     public ProjectEntity performProjectCreation(String authToken, ProjectEntity projectEntity) {
         if (projectRepository.findByTitle(projectEntity.getTitle()).isPresent())//project already exsits
             throw new ProjectAlreadyExistsInDatabaseException();
@@ -57,7 +140,9 @@ public class ProjectServiceImpl implements ProjectService{
             usersInProject.add(supervisor);
             projectEntity.setSupervisor(supervisor);
             projectEntity.setUsers(usersInProject);
-            return projectRepository.save(projectEntity);
+            ProjectEntity savedProject = projectRepository.save(projectEntity);
+            projectVersionRepository.save(new ProjectVersionEntity(savedProject.getId()));
+            return savedProject;
         }
     }
 
@@ -71,12 +156,17 @@ public class ProjectServiceImpl implements ProjectService{
             throw new InsufficientPermissionException();
     }
 
+    @Transactional//version row is locked before project's rows are deleted, like by every other change of the project
     public void performProjectDeletion(String authToken, Long projectId) {
         ProjectEntity projectToDelete = getProjectFromDbById(projectId);
         UserAuthDetailsEntity modifier = authServiceImpl.authenticateUserByToken(authToken);//possible supervisor or basic user
-        if (modifier.getUserId().equals(projectToDelete.getSupervisor().getId())) //user is authorized to modify (only supervisor allowed to change project)
+        if (modifier.getUserId().equals(projectToDelete.getSupervisor().getId())) {//user is authorized to modify (only supervisor allowed to change project)
+            incrementProjectVersion(projectId);
             projectRepository.delete(projectToDelete);
-        else
+            projectMembershipCache.invalidateUntilCompletion(projectId);
+            projectVersionRepository.deleteByProjectId(projectId);
+            taskTombstoneRepository.deleteByProjectId(projectId);//clients learn about deletion of the whole project from 404
+        } else
             throw new InsufficientPermissionException();
     }
 
@@ -88,40 +178,36 @@ public class ProjectServiceImpl implements ProjectService{
             return project.get();
     }
 
-    public List<UserEntity> performAddingUserToProjectOperation(String authToken, Long projectId, Long userId) {
+    @Transactional//members are changed while project version is locked
+    public List<UserSummary> performAddingUserToProjectOperation(String authToken, Long projectId, Long userId) {
         UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
         ProjectEntity projectEntity = getProjectFromDbById(projectId);
         if (requestingUser.getUserId().equals(projectEntity.getSupervisor().getId())) {//only supervisor can add new members to project
+            incrementProjectVersion(projectId);
             UserEntity userAddedToProject = userServiceImpl.getUserFromDbById(userId);
             Set<UserEntity> usersInProject = projectEntity.getUsers();
             log.debug(projectEntity.toString());
             usersInProject.add(userAddedToProject);
             projectEntity.setUsers(usersInProject);
             ProjectEntity savedProject = projectRepository.save(projectEntity);
+            projectMembershipCache.invalidateUntilCompletion(savedProject.getId());
             return getAllUsersFromSpecificProject(authToken, savedProject.getId());
         } else
             throw new InsufficientPermissionException();
     }
 
-    public List<UserEntity> performDeletingUserFromProjectOperation(String authToken, Long projectId, Long userId) {
+    @Transactional
+    public List<UserSummary> performDeletingUserFromProjectOperation(String authToken, Long projectId, Long userId) {
         UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
         ProjectEntity projectEntity = getProjectFromDbById(projectId);
         if (requestingUser.getUserId().equals(projectEntity.getSupervisor().getId())) {//only supervisor can add new members to project
             UserEntity userDeletedFromProject = userServiceImpl.getUserFromDbById(userId);
-            return new ArrayList<>(updateUsersSetByRemovingDeletedItem(projectEntity, userDeletedFromProject).getUsers());
+            updateUsersSetByRemovingDeletedItem(projectEntity, userDeletedFromProject);
+            return projectRepository.findMemberSummaries(projectId);//access is not checked again - supervisor may have removed themselves
         } else
             throw new InsufficientPermissionException();
     }
 
-    public void updateProjectWithModifiedTaskData(ProjectEntity projectEntity, String title, TaskEntity taskAfterModification) {
-        projectEntity
-                .getTasks()
-                .stream()
-                .filter(task -> task.getTitle().equals(title))
-                .forEach(task -> task = taskAfterModification);//replacing reference, with this already in database
-        projectRepository.save(projectEntity);
-    }
-
     public void updateProjectTasksSetByRemovingDeletedItem(ProjectEntity projectEntity, String titleOfTaskToDelete) {
         Set<TaskEntity> updatedTasksSet = projectEntity
                 .getTasks()
@@ -132,20 +218,37 @@ public class ProjectServiceImpl implements ProjectService{
         projectRepository.save(projectEntity);
     }
 
+    @Transactional//members are changed while project version is locked
     public ProjectEntity updateUsersSetByRemovingDeletedItem(ProjectEntity projectEntity, UserEntity userEntity) {
+        incrementProjectVersion(projectEntity.getId());
         Set<UserEntity> updatedUsersSet = projectEntity
                 .getUsers()
                 .stream()
                 .filter(user -> !(user.getId().equals(userEntity.getId())))
                 .collect(Collectors.toSet());
         projectEntity.setUsers(updatedUsersSet);
-        return projectRepository.save(projectEntity);
+        ProjectEntity savedProject = projectRepository.save(projectEntity);
+        projectMembershipCache.invalidateUntilCompletion(projectEntity.getId());
+        return savedProject;
     }
 
-    public boolean isUserPartOfProject(UserAuthDetailsEntity userAuthDetailsEntity, ProjectEntity projectEntity) {
-        return projectEntity
-                .getUsers()
-                .stream()
-                .anyMatch(teamMember -> userAuthDetailsEntity.getUserId().equals(teamMember.getId()));
+    public boolean isUserPartOfProject(UserAuthDetailsEntity userAuthDetailsEntity, ProjectEntity projectEntity) {//users collection is not initialized, only member ids are read
+        return isUserPartOfProject(projectEntity.getId(), userAuthDetailsEntity.getUserId());
+    }
+
+    private boolean isUserPartOfProject(Long projectId, Long userId) {
+        Optional<Boolean> cachedMembership = projectMembershipCache.isMember(projectId, userId);
+        if (cachedMembership.isPresent())
+            return cachedMembership.get();
+        if (projectMembershipCache.isEnabled() && ReadWriteRoutingDataSource.currentRoute() == ReadWriteRoutingDataSource.Route.PRIMARY) {//members read from replica may be behind, they are not cached
+            long stamp = projectMembershipCache.currentStamp();
+            if (projectMembershipCache.put(projectId, projectRepository.findMemberIds(projectId), stamp))
+                return projectMembershipCache.isMember(projectId, userId).orElseGet(() -> isUserPartOfProjectInDb(projectId, userId));
+        }
+        return isUserPartOfProjectInDb(projectId, userId);
+    }
+
+    private boolean isUserPartOfProjectInDb(Long projectId, Long userId) {
+        return projectRepository.countMembership(projectId, userId) > 0;
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package pl.asap.asapbe.services;
+
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.Status;
+import pl.asap.asapbe.entities.TaskEntity;
+import pl.asap.asapbe.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Continuation token of task scrolling - position (priority, id) of the last returned task together with the
+ * filter it was issued for. Clients get it as an opaque url safe string and are not supposed to build it.
+ */
+final class TaskCursor {
+
+    private static final String SEPARATOR = ":";
+    private static final String NO_STATUS = "-";
+
+    private final Long projectId;
+    private final Status status;
+    private final Priority priority;
+    private final Long id;
+
+    private TaskCursor(Long projectId, Status status, Priority priority, Long id) {
+        this.projectId = projectId;
+        this.status = status;
+        this.priority = priority;
+        this.id = id;
+    }
+
+    static TaskCursor after(Long projectId, Status status, TaskEntity lastTask) {
+        return new TaskCursor(projectId, status, lastTask.getPriority(), lastTask.getId());
+    }
+
+    /**
+     * @throws InvalidCursorException if token is malformed or was issued for another project or status filter
+     */
+    static TaskCursor decode(String token, Long projectId, Status status) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR);
+            if (parts.length != 4)
+                throw new InvalidCursorException();
+            TaskCursor cursor = new TaskCursor(Long.valueOf(parts[0]),
+                    NO_STATUS.equals(parts[1]) ? null : Status.valueOf(parts[1]),
+                    Priority.valueOf(parts[2]),
+                    Long.valueOf(parts[3]));
+            if (!cursor.projectId.equals(projectId) || cursor.status != status)
+                throw new InvalidCursorException();
+            return cursor;
+        } catch (IllegalArgumentException e) {//covers base64, number and enum parsing failures
+            throw new InvalidCursorException();
+        }
+    }
+
+    String encode() {
+        String plain = projectId + SEPARATOR + (status == null ? NO_STATUS : status.name()) + SEPARATOR
+                + priority.name() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Priority getPriority() {
+        return priority;
+    }
+
+    Long getId() {
+        return id;
+    }
+
+}
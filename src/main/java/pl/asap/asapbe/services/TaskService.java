@@ -1,12 +1,40 @@
 package pl.asap.asapbe.services;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import pl.asap.asapbe.entities.Status;
 import pl.asap.asapbe.entities.TaskEntity;
+import pl.asap.asapbe.repositories.TaskFilter;
+import pl.asap.asapbe.response_model.BulkTaskResult;
+import pl.asap.asapbe.response_model.TaskChanges;
+import pl.asap.asapbe.response_model.TaskScroll;
+import pl.asap.asapbe.response_model.TaskSummary;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
 
 public interface TaskService {
 
-    List<TaskEntity> getAllTasksFromProject(String authToken, Long projectId);
+    List<TaskSummary> getAllTasksFromProject(String authToken, Long projectId);
+
+    void streamAllTasksFromProject(String authToken, Long projectId, Consumer<? super TaskSummary> action);
+
+    Optional<List<TaskSummary>> getAllTasksFromProjectIfModified(String authToken, Long projectId, LongPredicate notModified);
+
+    TaskChanges getTaskChangesFromProject(String authToken, Long projectId, long since);
+
+    void verifyAccessToProject(String authToken, Long projectId);
+
+    Slice<TaskEntity> getPageOfTasksFromProject(String authToken, Long projectId, Pageable pageable, boolean withTotalCount);
+
+    Page<TaskEntity> searchTasksInProject(String authToken, Long projectId, TaskFilter filter, Pageable pageable);
+
+    TaskScroll scrollTasksFromProject(String authToken, Long projectId, Status status, String cursor, int size);
+
+    Map<Status, Long> getTaskCountsByStatus(String authToken, Long projectId);
 
     TaskEntity getTaskById(String authToken, Long taskId);
 
@@ -14,11 +42,13 @@ public interface TaskService {
 
     TaskEntity performTaskModification(String authToken, TaskEntity modifiedTask, Long taskId);
 
+    List<BulkTaskResult> performBulkTaskCreation(String authToken, List<TaskEntity> tasks, Long projectId);
+
+    List<BulkTaskResult> performBulkTaskModification(String authToken, List<TaskEntity> modifiedTasks, Long projectId);
+
     void performTaskDeletion(String authToken, Long taskId);
 
     TaskEntity performTaskAssignment(String authToken, Long taskId, Long userId);
 
-    boolean isTaskAlreadyCreatedInProject(Set<TaskEntity> tasksInProject, TaskEntity taskEntity);
-
     TaskEntity getTaskFromDbById(Long id);
 }
\ No newline at end of file
@@ -1,20 +1,39 @@
 package pl.asap.asapbe.services;
 
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
-import pl.asap.asapbe.entities.ProjectEntity;
-import pl.asap.asapbe.entities.TaskEntity;
-import pl.asap.asapbe.entities.UserAuthDetailsEntity;
-import pl.asap.asapbe.entities.UserEntity;
+import org.springframework.transaction.annotation.Transactional;
+import pl.asap.asapbe.cache.ProjectTaskCountsCache;
+import pl.asap.asapbe.cache.TaskStatusChanges;
+import pl.asap.asapbe.entities.*;
 import pl.asap.asapbe.exceptions.*;
+import pl.asap.asapbe.persistence.ReadOnlyTransactional;
 import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.TaskFilter;
 import pl.asap.asapbe.repositories.TaskRepository;
+import pl.asap.asapbe.repositories.TaskSpecifications;
+import pl.asap.asapbe.repositories.TaskStatusCount;
+import pl.asap.asapbe.repositories.TaskTombstoneRepository;
+import pl.asap.asapbe.response_model.BulkTaskResult;
+import pl.asap.asapbe.response_model.TaskBoardEvent;
+import pl.asap.asapbe.response_model.TaskChanges;
+import pl.asap.asapbe.response_model.TaskScroll;
+import pl.asap.asapbe.response_model.TaskSummary;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -26,26 +45,153 @@ public class TaskServiceImpl implements TaskService{
     private final AuthServiceImpl authServiceImpl;
     private final ProjectRepository projectRepository;
     private final TaskRepository taskRepository;
+    private final TaskTombstoneRepository taskTombstoneRepository;
+    private final ProjectTaskCountsCache projectTaskCountsCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int bulkMaxSize;
 
     @Autowired
-    public TaskServiceImpl(ProjectServiceImpl projectServiceImpl, UserServiceImpl userServiceImpl, UserAuthDetailsServiceImpl userAuthDetailsServiceImpl, AuthServiceImpl authServiceImpl, ProjectRepository projectRepository, TaskRepository taskRepository) {
+    public TaskServiceImpl(ProjectServiceImpl projectServiceImpl, UserServiceImpl userServiceImpl, UserAuthDetailsServiceImpl userAuthDetailsServiceImpl, AuthServiceImpl authServiceImpl, ProjectRepository projectRepository, TaskRepository taskRepository, TaskTombstoneRepository taskTombstoneRepository, ProjectTaskCountsCache projectTaskCountsCache, ApplicationEventPublisher eventPublisher,
+                           @Value("${tasks.bulk-max-size:1000}") int bulkMaxSize) {
         this.projectServiceImpl = projectServiceImpl;
         this.userServiceImpl = userServiceImpl;
         this.userAuthDetailsServiceImpl = userAuthDetailsServiceImpl;
         this.authServiceImpl = authServiceImpl;
         this.projectRepository = projectRepository;
         this.taskRepository = taskRepository;
+        this.taskTombstoneRepository = taskTombstoneRepository;
+        this.projectTaskCountsCache = projectTaskCountsCache;
+        this.eventPublisher = eventPublisher;
+        this.bulkMaxSize = bulkMaxSize;
     }
 
-    public List<TaskEntity> getAllTasksFromProject(String authToken, Long projectId) {
+    @ReadOnlyTransactional
+    public List<TaskSummary> getAllTasksFromProject(String authToken, Long projectId) {
+        ProjectEntity projectToGetTasksFrom = projectServiceImpl.getProjectFromDbById(projectId);
+        UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
+        return getAllTasksFromProject(requestingUser, projectToGetTasksFrom);
+    }
+
+    /**
+     * Tasks of project, or empty if notModified returns true for the current project version (which covers its tasks),
+     * see ProjectServiceImpl.getAllUsersFromSpecificProjectIfModified.
+     */
+    @ReadOnlyTransactional
+    public Optional<List<TaskSummary>> getAllTasksFromProjectIfModified(String authToken, Long projectId, LongPredicate notModified) {
+        UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
+        Optional<Long> version = projectServiceImpl.getProjectVersion(requestingUser, projectId);
+        if (!version.isPresent())
+            return Optional.of(getAllTasksFromProject(requestingUser, projectServiceImpl.getProjectFromDbById(projectId)));
+        if (notModified.test(version.get()))
+            return Optional.empty();
+        return Optional.of(taskRepository.findSummariesByProjectId(projectId));//access already checked with the version
+    }
+
+    private List<TaskSummary> getAllTasksFromProject(UserAuthDetailsEntity requestingUser, ProjectEntity projectToGetTasksFrom) {
+        if (projectServiceImpl.isUserPartOfProject(requestingUser, projectToGetTasksFrom)) {
+            return taskRepository.findSummariesByProjectId(projectToGetTasksFrom.getId());//tasks with assignees in one select, project's collection is not initialized
+        } else
+            throw new InsufficientPermissionException();
+    }
+
+    @ReadOnlyTransactional//tasks are passed to action as they are read, see UserServiceImpl.streamAllUsers
+    public void streamAllTasksFromProject(String authToken, Long projectId, Consumer<? super TaskSummary> action) {
+        ProjectEntity projectToGetTasksFrom = projectServiceImpl.getProjectFromDbById(projectId);
+        UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
+        if (!projectServiceImpl.isUserPartOfProject(requestingUser, projectToGetTasksFrom))
+            throw new InsufficientPermissionException();
+        try (Stream<TaskSummary> tasks = taskRepository.streamSummariesByProjectId(projectId)) {
+            tasks.forEach(action);
+        }
+    }
+
+    /**
+     * Tasks created or modified and ids of tasks deleted after since (project version the client has synchronized
+     * to). Version is read first - a change committed while changes are read may be returned again by the next call,
+     * but is never skipped. Project without version has no stamped changes, all its tasks are returned every time.
+     */
+    @ReadOnlyTransactional
+    public TaskChanges getTaskChangesFromProject(String authToken, Long projectId, long since) {
+        ProjectEntity projectToGetChangesFrom = projectServiceImpl.getProjectFromDbById(projectId);
+        UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
+        if (!projectServiceImpl.isUserPartOfProject(requestingUser, projectToGetChangesFrom))
+            throw new InsufficientPermissionException();
+
+        Optional<Long> version = projectServiceImpl.findProjectVersion(projectId);
+        if (!version.isPresent())
+            return new TaskChanges(taskRepository.findSummariesByProjectId(projectId), Collections.emptyList(), 0L);
+        return new TaskChanges(taskRepository.findSummariesModifiedSince(projectId, since),
+                taskTombstoneRepository.findTaskIdsDeletedSince(projectId, since), version.get());
+    }
+
+    public void verifyAccessToProject(String authToken, Long projectId) {//task board stream is checked once, when subscribing
+        ProjectEntity projectToAccess = projectServiceImpl.getProjectFromDbById(projectId);
+        UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
+        if (!projectServiceImpl.isUserPartOfProject(requestingUser, projectToAccess))
+            throw new InsufficientPermissionException();
+    }
+
+    public Slice<TaskEntity> getPageOfTasksFromProject(String authToken, Long projectId, Pageable pageable, boolean withTotalCount) {
         ProjectEntity projectToGetTasksFrom = projectServiceImpl.getProjectFromDbById(projectId);
         UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
         if (projectServiceImpl.isUserPartOfProject(requestingUser, projectToGetTasksFrom)) {
-            return new ArrayList<>(projectToGetTasksFrom.getTasks());
+            return withTotalCount ? taskRepository.findByProjectId(projectId, pageable) : taskRepository.findSliceByProjectId(projectId, pageable);
         } else
             throw new InsufficientPermissionException();
     }
 
+    public Page<TaskEntity> searchTasksInProject(String authToken, Long projectId, TaskFilter filter, Pageable pageable) {
+        ProjectEntity projectToGetTasksFrom = projectServiceImpl.getProjectFromDbById(projectId);
+        UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
+        if (projectServiceImpl.isUserPartOfProject(requestingUser, projectToGetTasksFrom)) {
+            return taskRepository.findAll(TaskSpecifications.matching(projectId, filter), pageable);
+        } else
+            throw new InsufficientPermissionException();
+    }
+
+    public TaskScroll scrollTasksFromProject(String authToken, Long projectId, Status status, String cursor, int size) {
+        ProjectEntity projectToGetTasksFrom = projectServiceImpl.getProjectFromDbById(projectId);
+        UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
+        if (!projectServiceImpl.isUserPartOfProject(requestingUser, projectToGetTasksFrom))
+            throw new InsufficientPermissionException();
+
+        Pageable limit = PageRequest.of(0, size + 1);//one extra row tells whether there is anything after this batch
+        List<TaskEntity> tasks;
+        if (cursor == null) {
+            tasks = status == null
+                    ? taskRepository.findScrollStart(projectId, limit)
+                    : taskRepository.findScrollStartWithStatus(projectId, status, limit);
+        } else {
+            TaskCursor after = TaskCursor.decode(cursor, projectId, status);
+            tasks = status == null
+                    ? taskRepository.findScrollAfter(projectId, after.getPriority(), after.getId(), limit)
+                    : taskRepository.findScrollAfterWithStatus(projectId, status, after.getPriority(), after.getId(), limit);
+        }
+
+        if (tasks.size() <= size)
+            return new TaskScroll(tasks, null);
+        List<TaskEntity> batch = new ArrayList<>(tasks.subList(0, size));
+        return new TaskScroll(batch, TaskCursor.after(projectId, status, batch.get(size - 1)).encode());
+    }
+
+    public Map<Status, Long> getTaskCountsByStatus(String authToken, Long projectId) {
+        ProjectEntity projectToCountTasksIn = projectServiceImpl.getProjectFromDbById(projectId);
+        UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
+        if (!projectServiceImpl.isUserPartOfProject(requestingUser, projectToCountTasksIn))
+            throw new InsufficientPermissionException();
+
+        Optional<Map<Status, Long>> cachedCounts = projectTaskCountsCache.get(projectId);
+        if (cachedCounts.isPresent())
+            return cachedCounts.get();
+        long stamp = projectTaskCountsCache.currentStamp();
+        Map<Status, Long> counts = new EnumMap<>(Status.class);
+        for (TaskStatusCount statusCount : taskRepository.countByStatus(projectId))
+            counts.put(statusCount.getStatus(), statusCount.getCount());
+        projectTaskCountsCache.put(projectId, counts, stamp);
+        return ProjectTaskCountsCache.withAllStatuses(counts);
+    }
+
+    @ReadOnlyTransactional
     public TaskEntity getTaskById(String authToken, Long taskId) {
         if (authServiceImpl.authenticateUserByToken(authToken) != null)
             return getTaskFromDbById(taskId);
@@ -53,66 +199,229 @@ public class TaskServiceImpl implements TaskService{
             throw new UserAuthenticationException();
     }
 
+    @Transactional//project reference and task insert share one persistence context
     public TaskEntity performTaskCreation(String authToken, TaskEntity taskEntity, Long projectId) {
         UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
         UserEntity userThatCreatedTask = userServiceImpl.getUserEntityFromUserAuthDetailsEntity(requestingUser);
-        ProjectEntity projectEntity = projectServiceImpl.getProjectFromDbById(projectId);
-        if (!isTaskAlreadyCreatedInProject(projectEntity.getTasks(), taskEntity)) {//check if there is task with the same title already in this project
-            Set<TaskEntity> tasks = projectEntity.getTasks();
+        if (!projectRepository.existsById(projectId))
+            throw new NoSuchProjectException();
+        if (!taskRepository.existsByProjectIdAndTitle(projectId, taskEntity.getTitle())) {//check if there is task with the same title already in this project
             taskEntity.setAssignee(userThatCreatedTask);//user that triggered creation is assigned by default
-            tasks.add(taskEntity);
-            projectEntity.setTasks(tasks);
-            ProjectEntity savedProject = projectRepository.save(projectEntity);
-            taskEntity.setProject(savedProject);
-            return taskRepository.save(taskEntity);
+            if (taskEntity.getPriority() == null)
+                taskEntity.setPriority(Priority.NORMAL);
+            taskEntity.setProject(projectRepository.getOne(projectId));//reference only, project and its tasks are not loaded
+            taskEntity.setModifiedSeq(projectServiceImpl.incrementProjectVersion(projectId));
+            TaskEntity savedTask;
+            try {
+                savedTask = taskRepository.saveAndFlush(taskEntity);//single insert, project row is not touched
+            } catch (DataIntegrityViolationException e) {
+                throw translateTitleConflict(e);
+            }
+            eventPublisher.publishEvent(projectTaskCountsCache.statusChanges(projectId).moved(null, savedTask.getStatus()));
+            publishTaskChange(TaskBoardEvent.Type.CREATED, projectId, savedTask);
+            return savedTask;
         } else
             throw new TaskAlreadyExistsInProjectException();
     }
 
+    @Transactional//task is stamped with project version, which stays locked until the modification commits
     public TaskEntity performTaskModification(String authToken, TaskEntity modifiedTask, Long taskId) {
         authServiceImpl.authenticateUserByToken(authToken);
         TaskEntity taskToChange = getTaskFromDbById(taskId);
-        ProjectEntity correspondingProject = projectServiceImpl.getProjectFromDbById(taskToChange.getProject().getId());
-        if (!isTaskAlreadyCreatedInProject(correspondingProject.getTasks(), modifiedTask)) {//check if there is task with the same title already in this project
-            //refreshing task's data (without assignee change, this is handled elsewhere)
-            taskToChange.setTitle(modifiedTask.getTitle());
-            taskToChange.setDescription(modifiedTask.getDescription());
-            taskToChange.setPriority(modifiedTask.getPriority());
-            taskToChange.setStatus(modifiedTask.getStatus());
-            return taskRepository.save(taskToChange);
+        Long projectId = taskToChange.getProject().getId();
+        if (!taskRepository.existsByProjectIdAndTitleAndIdNot(projectId, modifiedTask.getTitle(), taskId)) {//check if there is another task with the same title already in this project
+            Status statusBeforeModification = taskToChange.getStatus();
+            taskToChange.setModifiedSeq(projectServiceImpl.incrementProjectVersion(projectId));
+            applyModification(taskToChange, modifiedTask);
+            TaskEntity savedTask;
+            try {
+                savedTask = taskRepository.saveAndFlush(taskToChange);
+            } catch (DataIntegrityViolationException e) {
+                throw translateTitleConflict(e);
+            }
+            eventPublisher.publishEvent(projectTaskCountsCache.statusChanges(projectId).moved(statusBeforeModification, savedTask.getStatus()));
+            publishTaskChange(TaskBoardEvent.Type.MODIFIED, projectId, savedTask);
+            return savedTask;
         } else
             throw new TaskAlreadyExistsInProjectException();
     }
 
+    /**
+     * Creates valid tasks of the list in one transaction, inserts are sent in JDBC batches. Tasks with a title that
+     * is taken in the project (or repeated in the list) are skipped and reported in their result.
+     */
+    @Transactional
+    public List<BulkTaskResult> performBulkTaskCreation(String authToken, List<TaskEntity> tasks, Long projectId) {
+        if (tasks.size() > bulkMaxSize)
+            throw new BulkRequestTooLargeException();
+        UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
+        UserEntity userThatCreatedTasks = userServiceImpl.getUserEntityFromUserAuthDetailsEntity(requestingUser);
+        if (!projectRepository.existsById(projectId))
+            throw new NoSuchProjectException();
+
+        Set<String> takenTitles = new HashSet<>(findExistingTitles(projectId, tasks));
+        ProjectEntity projectReference = projectRepository.getOne(projectId);
+        List<BulkTaskResult> results = new ArrayList<>(tasks.size());
+        List<TaskEntity> tasksToCreate = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            TaskEntity taskEntity = tasks.get(i);
+            if (!takenTitles.add(taskEntity.getTitle())) {
+                results.add(new BulkTaskResult(i, BulkTaskResult.Outcome.DUPLICATED_TITLE, null));
+                continue;
+            }
+            taskEntity.setId(null);
+            taskEntity.setAssignee(userThatCreatedTasks);//user that triggered creation is assigned by default
+            if (taskEntity.getPriority() == null)
+                taskEntity.setPriority(Priority.NORMAL);
+            taskEntity.setProject(projectReference);
+            tasksToCreate.add(taskEntity);
+            results.add(new BulkTaskResult(i, BulkTaskResult.Outcome.CREATED, taskEntity));
+        }
+
+        if (tasksToCreate.isEmpty())
+            return results;
+        long modifiedSeq = projectServiceImpl.incrementProjectVersion(projectId);
+        tasksToCreate.forEach(task -> task.setModifiedSeq(modifiedSeq));
+        try {
+            taskRepository.saveAll(tasksToCreate);
+            taskRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw translateTitleConflict(e);
+        }
+        TaskStatusChanges statusChanges = projectTaskCountsCache.statusChanges(projectId);
+        tasksToCreate.forEach(task -> statusChanges.moved(null, task.getStatus()));
+        eventPublisher.publishEvent(statusChanges);
+        eventPublisher.publishEvent(TaskBoardEvent.resync(projectId, modifiedSeq));//one event per import, not one per task
+        return results;
+    }
+
+    /**
+     * Modifies tasks of the list (identified by their ids) in one transaction, updates are sent in JDBC batches.
+     * Tasks that are not part of the project or would get a title taken by another task are skipped and reported
+     * in their result.
+     */
+    @Transactional
+    public List<BulkTaskResult> performBulkTaskModification(String authToken, List<TaskEntity> modifiedTasks, Long projectId) {
+        if (modifiedTasks.size() > bulkMaxSize)
+            throw new BulkRequestTooLargeException();
+        authServiceImpl.authenticateUserByToken(authToken);
+
+        Map<Long, TaskEntity> tasksToChange = new HashMap<>();
+        List<Long> ids = modifiedTasks.stream().map(TaskEntity::getId).filter(Objects::nonNull).collect(Collectors.toList());
+        for (TaskEntity task : taskRepository.findAllById(ids)) {
+            if (task.getProject() != null && projectId.equals(task.getProject().getId()))
+                tasksToChange.put(task.getId(), task);
+        }
+        Map<String, Long> titleOwners = new HashMap<>();
+        List<String> titles = titlesOf(modifiedTasks);
+        if (!titles.isEmpty()) {
+            for (TaskEntity task : taskRepository.findByProjectIdAndTitleIn(projectId, titles))
+                titleOwners.put(task.getTitle(), task.getId());
+        }
+
+        List<BulkTaskResult> results = new ArrayList<>(modifiedTasks.size());
+        Set<String> titlesInRequest = new HashSet<>();
+        Map<TaskEntity, Status> statusesBeforeModification = new IdentityHashMap<>();
+        for (int i = 0; i < modifiedTasks.size(); i++) {
+            TaskEntity modifiedTask = modifiedTasks.get(i);
+            TaskEntity taskToChange = tasksToChange.get(modifiedTask.getId());
+            if (taskToChange == null) {
+                results.add(new BulkTaskResult(i, BulkTaskResult.Outcome.NO_SUCH_TASK, null));
+                continue;
+            }
+            Long titleOwner = titleOwners.get(modifiedTask.getTitle());
+            if ((titleOwner != null && !titleOwner.equals(taskToChange.getId())) || !titlesInRequest.add(modifiedTask.getTitle())) {
+                results.add(new BulkTaskResult(i, BulkTaskResult.Outcome.DUPLICATED_TITLE, null));
+                continue;
+            }
+            statusesBeforeModification.putIfAbsent(taskToChange, taskToChange.getStatus());
+            applyModification(taskToChange, modifiedTask);//managed entity, written by dirty checking on flush
+            results.add(new BulkTaskResult(i, BulkTaskResult.Outcome.UPDATED, taskToChange));
+        }
+
+        if (statusesBeforeModification.isEmpty())
+            return results;
+        long modifiedSeq = projectServiceImpl.incrementProjectVersion(projectId);//modified tasks are written on flush, after version is locked
+        statusesBeforeModification.keySet().forEach(task -> task.setModifiedSeq(modifiedSeq));
+        try {
+            taskRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw translateTitleConflict(e);
+        }
+        TaskStatusChanges statusChanges = projectTaskCountsCache.statusChanges(projectId);
+        statusesBeforeModification.forEach((task, statusBefore) -> statusChanges.moved(statusBefore, task.getStatus()));
+        eventPublisher.publishEvent(statusChanges);
+        eventPublisher.publishEvent(TaskBoardEvent.resync(projectId, modifiedSeq));
+        return results;
+    }
+
+    @Transactional//tombstone is stamped with project version, which stays locked until the deletion commits
     public void performTaskDeletion(String authToken, Long taskId) {//only project supervisor allowed
         UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
         TaskEntity taskToDelete = getTaskFromDbById(taskId);
         ProjectEntity projectToUpdate = taskToDelete.getProject();
         if (projectToUpdate.getSupervisor().getId().equals(requestingUser.getUserId())) {//user that is deleting must be project's supervisor
+            long modifiedSeq = projectServiceImpl.incrementProjectVersion(projectToUpdate.getId());
             taskRepository.delete(taskToDelete);
+            taskTombstoneRepository.save(new TaskTombstoneEntity(taskToDelete.getId(), projectToUpdate.getId(), modifiedSeq));
+            eventPublisher.publishEvent(projectTaskCountsCache.statusChanges(projectToUpdate.getId()).moved(taskToDelete.getStatus(), null));
+            eventPublisher.publishEvent(TaskBoardEvent.deleted(projectToUpdate.getId(), taskToDelete.getId(), modifiedSeq));
         } else
             throw new InsufficientPermissionException();
     }
 
+    @Transactional//task is stamped with project version, which stays locked until the assignment commits
     public TaskEntity performTaskAssignment(String authToken, Long taskId, Long userId){
         authServiceImpl.authenticateUserByToken(authToken);
         TaskEntity taskToUpdate = getTaskFromDbById(taskId);
         UserEntity newAssignee = userServiceImpl.getUserFromDbById(userId);
         ProjectEntity projectEntity = taskToUpdate.getProject();
         if (projectServiceImpl.isUserPartOfProject(userAuthDetailsServiceImpl.getUserAuthDetailsFromUserEntity(newAssignee), projectEntity)){
+            taskToUpdate.setModifiedSeq(projectServiceImpl.incrementProjectVersion(projectEntity.getId()));
             taskToUpdate.setAssignee(newAssignee);
-            projectServiceImpl.updateProjectWithModifiedTaskData(projectEntity, taskToUpdate.getTitle(), taskToUpdate);
-            return taskToUpdate;
+            TaskEntity savedTask = taskRepository.save(taskToUpdate);//single update, project's tasks are not loaded
+            publishTaskChange(TaskBoardEvent.Type.ASSIGNED, projectEntity.getId(), savedTask);
+            return savedTask;
         } else {
             throw new UserNotPartOfProjectException();
         }
     }
 
-    public boolean isTaskAlreadyCreatedInProject(Set<TaskEntity> tasksInProject, TaskEntity taskEntity) {//validating by title
-        return tasksInProject
-                .stream()
-                .anyMatch(projectTask -> projectTask.getTitle().equals(taskEntity.getTitle()) && !(projectTask.getId().equals(taskEntity.getId())));
+    private void publishTaskChange(TaskBoardEvent.Type type, Long projectId, TaskEntity task) {//delivered to task board streams after commit
+        eventPublisher.publishEvent(TaskBoardEvent.changed(type, projectId, TaskSummary.of(task), task.getModifiedSeq()));
+    }
 
+    private void applyModification(TaskEntity taskToChange, TaskEntity modifiedTask) {
+        //refreshing task's data (without assignee change, this is handled elsewhere)
+        taskToChange.setTitle(modifiedTask.getTitle());
+        taskToChange.setDescription(modifiedTask.getDescription());
+        if (modifiedTask.getPriority() != null)
+            taskToChange.setPriority(modifiedTask.getPriority());
+        taskToChange.setStatus(modifiedTask.getStatus());
+    }
+
+    private List<String> findExistingTitles(Long projectId, List<TaskEntity> tasks) {
+        List<String> titles = titlesOf(tasks);
+        return titles.isEmpty() ? Collections.emptyList() : taskRepository.findTitlesByProjectIdAndTitleIn(projectId, titles);
+    }
+
+    private static List<String> titlesOf(List<TaskEntity> tasks) {
+        return tasks.stream().map(TaskEntity::getTitle).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * Title check and write are not atomic - a concurrent creation or modification with the same title ends up
+     * violating unique (project_id, title) constraint, which is reported the same way as the check.
+     */
+    private RuntimeException translateTitleConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                if (constraintName != null && constraintName.toLowerCase().contains(TaskEntity.UNIQUE_TITLE_CONSTRAINT))
+                    return new TaskAlreadyExistsInProjectException();
+            }
+        }
+        return e;
     }
 
     public TaskEntity getTaskFromDbById(Long id) {
@@ -6,4 +6,6 @@ import pl.asap.asapbe.entities.UserEntity;
 public interface UserAuthDetailsService {
 
     UserAuthDetailsEntity getUserAuthDetailsFromUserEntity(UserEntity userEntity);
+
+    UserAuthDetailsEntity getUserAuthDetailsByUserId(Long userId);
 }
\ No newline at end of file
@@ -18,7 +18,11 @@ public class UserAuthDetailsServiceImpl implements UserAuthDetailsService{
     }
 
     public UserAuthDetailsEntity getUserAuthDetailsFromUserEntity(UserEntity userEntity){
-        Optional<UserAuthDetailsEntity> userAuthDetails = userAuthDetailsRepository.findByUserId(userEntity.getId());
+        return getUserAuthDetailsByUserId(userEntity.getId());
+    }
+
+    public UserAuthDetailsEntity getUserAuthDetailsByUserId(Long userId){
+        Optional<UserAuthDetailsEntity> userAuthDetails = userAuthDetailsRepository.findByUserId(userId);
         if (!userAuthDetails.isPresent()){
             throw new UserNotFoundException();
         } else {
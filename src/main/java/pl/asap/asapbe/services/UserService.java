@@ -1,14 +1,23 @@
 package pl.asap.asapbe.services;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import pl.asap.asapbe.entities.UserAuthDetailsEntity;
 import pl.asap.asapbe.entities.UserEntity;
 import pl.asap.asapbe.response_model.UserDetails;
+import pl.asap.asapbe.response_model.UserSummary;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface UserService {
 
-    List<UserEntity> getListOfAllUsers(String authToken);
+    List<UserSummary> getListOfAllUsers(String authToken);
+
+    void streamAllUsers(String authToken, Consumer<? super UserSummary> action);
+
+    Slice<UserEntity> getPageOfUsers(String authToken, Pageable pageable, boolean withTotalCount);
 
     UserAuthDetailsEntity performUserLogin(String email, String password);
 
@@ -26,5 +35,5 @@ public interface UserService {
 
     UserEntity getUserFromDbById(Long id);
 
-    void updateTasksDataAfterUserDeletion(UserEntity userEntity);
+    void updateTasksDataAfterUserDeletion(UserEntity userEntity, Map<Long, Long> projectVersions);
 }
\ No newline at end of file
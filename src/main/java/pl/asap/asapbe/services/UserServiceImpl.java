@@ -2,17 +2,28 @@ package pl.asap.asapbe.services;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import pl.asap.asapbe.cache.ProjectMembershipCache;
 import pl.asap.asapbe.entities.UserAuthDetailsEntity;
 import pl.asap.asapbe.entities.UserEntity;
 import pl.asap.asapbe.exceptions.*;
+import pl.asap.asapbe.persistence.ReadOnlyTransactional;
+import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.ProjectVersionRepository;
 import pl.asap.asapbe.repositories.TaskRepository;
+import pl.asap.asapbe.repositories.TaskTombstoneRepository;
 import pl.asap.asapbe.repositories.UserAuthDetailsRepository;
+import pl.asap.asapbe.repositories.UserCredentials;
 import pl.asap.asapbe.repositories.UserRepository;
 import pl.asap.asapbe.response_model.UserDetails;
+import pl.asap.asapbe.response_model.UserSummary;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -22,27 +33,58 @@ public class UserServiceImpl implements UserService{
     private UserRepository userRepository;
     private UserAuthDetailsRepository userAuthDetailsRepository;
     private TaskRepository taskRepository;
+    private ProjectVersionRepository projectVersionRepository;
+    private ProjectRepository projectRepository;
+    private TaskTombstoneRepository taskTombstoneRepository;
+    private ProjectMembershipCache projectMembershipCache;
 
     @Autowired
-    public UserServiceImpl(UserAuthDetailsServiceImpl userAuthDetailsServiceImpl, AuthServiceImpl authServiceImpl, UserRepository userRepository, UserAuthDetailsRepository userAuthDetailsRepository, TaskRepository taskRepository) {
+    public UserServiceImpl(UserAuthDetailsServiceImpl userAuthDetailsServiceImpl, AuthServiceImpl authServiceImpl, UserRepository userRepository, UserAuthDetailsRepository userAuthDetailsRepository, TaskRepository taskRepository, ProjectVersionRepository projectVersionRepository,
+                           ProjectRepository projectRepository, TaskTombstoneRepository taskTombstoneRepository, ProjectMembershipCache projectMembershipCache) {
         this.userAuthDetailsServiceImpl = userAuthDetailsServiceImpl;
         this.authServiceImpl = authServiceImpl;
         this.userRepository = userRepository;
         this.userAuthDetailsRepository = userAuthDetailsRepository;
         this.taskRepository = taskRepository;
+        this.projectVersionRepository = projectVersionRepository;
+        this.projectRepository = projectRepository;
+        this.taskTombstoneRepository = taskTombstoneRepository;
+        this.projectMembershipCache = projectMembershipCache;
     }
 
-    public List<UserEntity> getListOfAllUsers(String authToken) {
+    public List<UserSummary> getListOfAllUsers(String authToken) {
         if (authServiceImpl.authenticateUserByToken(authToken) != null) //user authenticated
-            return userRepository.findAll();
+            return userRepository.findAllSummaries();
+        else
+            throw new UserAuthenticationException();
+    }
+
+    /**
+     * Passes all users to action one by one, as they are read from database, so the list is never held in memory.
+     * Rows are mapped straight to summaries - no entities enter persistence context, there is nothing to detach.
+     */
+    @ReadOnlyTransactional
+    public void streamAllUsers(String authToken, Consumer<? super UserSummary> action) {
+        if (authServiceImpl.authenticateUserByToken(authToken) == null)
+            throw new UserAuthenticationException();
+        try (Stream<UserSummary> users = userRepository.streamAllSummaries()) {//closing releases the result set
+            users.forEach(action);
+        }
+    }
+
+    public Slice<UserEntity> getPageOfUsers(String authToken, Pageable pageable, boolean withTotalCount) {
+        if (authServiceImpl.authenticateUserByToken(authToken) != null) //user authenticated
+            return withTotalCount ? userRepository.findAll(pageable) : userRepository.findAllBy(pageable);
         else
             throw new UserAuthenticationException();
     }
 
     public UserAuthDetailsEntity performUserLogin(String email, String password) {
-        UserEntity userEntity = userRepository.findByEmailAndPassword(email, authServiceImpl.encryptPassword(password));
-        if (userEntity != null) {
-            return userAuthDetailsServiceImpl.getUserAuthDetailsFromUserEntity(userEntity);
+        Optional<UserCredentials> credentials = userRepository.findCredentialsByEmail(email);//only id and password hash are fetched
+        if (credentials.isPresent() && authServiceImpl.verifyPassword(password, credentials.get().getPassword())) {
+            if (authServiceImpl.isPasswordRehashNeeded(credentials.get().getPassword()))//migrating legacy or weaker hash while plain password is known
+                userRepository.updatePassword(credentials.get().getId(), authServiceImpl.hashPassword(password));
+            return userAuthDetailsServiceImpl.getUserAuthDetailsByUserId(credentials.get().getId());
         } else
             throw new UserAuthenticationException();
     }
@@ -50,14 +92,14 @@ public class UserServiceImpl implements UserService{
     public UserAuthDetailsEntity performUserRegistration(String firstName, String lastName, String email, String password) {
         UserEntity searchedUser = userRepository.findByEmail(email);
         if (searchedUser == null) {//user with such email not registered, performing creation
-            UserEntity userEntity = new UserEntity(firstName, lastName, email, authServiceImpl.encryptPassword(password));
+            UserEntity userEntity = new UserEntity(firstName, lastName, email, authServiceImpl.hashPassword(password));
             String authToken = authServiceImpl.generateToken();
             UserAuthDetailsEntity userAuthDetailsToSave = new UserAuthDetailsEntity(authToken);
             UserEntity savedUser = userRepository.save(userEntity);
             userAuthDetailsToSave.setUserId(savedUser.getId());
             return userAuthDetailsRepository.save(userAuthDetailsToSave);
         } else {
-            UserEntity userEntity = new UserEntity(firstName, lastName, email, authServiceImpl.encryptPassword(password));
+            UserEntity userEntity = new UserEntity(firstName, lastName, email);//password is not part of equality, so no need to hash it here
             if (searchedUser.equals(userEntity))
                 return performUserLogin(email, password);
             else
@@ -65,12 +107,26 @@ public class UserServiceImpl implements UserService{
         }
     }
 
+    @Transactional(noRollbackFor = UserNotFoundException.class)//reassigned tasks are stamped with versions locked until commit, orphaned auth details are deleted anyway
     public void performUserDeletion(String authToken) {
         UserAuthDetailsEntity userAuthDetailsEntity = authServiceImpl.authenticateUserByToken(authToken);
         UserEntity userToDelete = getUserEntityFromUserAuthDetailsEntity(userAuthDetailsEntity); //no way there is null, because of above if statement
-        updateTasksDataAfterUserDeletion(userToDelete);
+        List<Long> supervisedProjectIds = projectRepository.findIdsBySupervisorId(userToDelete.getId());//deleted together with the user by cascade
+        updateTasksDataAfterUserDeletion(userToDelete, incrementVersionsOfProjects(userToDelete.getId(), supervisedProjectIds));
         userRepository.delete(userToDelete);
+        supervisedProjectIds.forEach(this::removeDataOfDeletedProject);
         userAuthDetailsRepository.delete(userAuthDetailsEntity);
+        authServiceImpl.invalidateToken(userAuthDetailsEntity.getToken());
+    }
+
+    /**
+     * Project rows deleted by cascade bypass ProjectServiceImpl.performProjectDeletion, so its version, tombstones
+     * and cached members are removed here - without version the project answers 404, as a deleted one should.
+     */
+    private void removeDataOfDeletedProject(Long projectId) {
+        projectMembershipCache.invalidateUntilCompletion(projectId);
+        projectVersionRepository.deleteByProjectId(projectId);
+        taskTombstoneRepository.deleteByProjectId(projectId);
     }
 
     public UserEntity getUserEntityFromUserAuthDetailsEntity(UserAuthDetailsEntity userAuthDetailsEntity) {
@@ -79,6 +135,7 @@ public class UserServiceImpl implements UserService{
             return userEntity.get();
         } else {
             userAuthDetailsRepository.delete(userAuthDetailsEntity);// deleting auth details since there is no corresponding user in UserEntity table (very unlikely to happen)
+            authServiceImpl.invalidateToken(userAuthDetailsEntity.getToken());
             throw new UserNotFoundException();
         }
     }
@@ -86,22 +143,47 @@ public class UserServiceImpl implements UserService{
     public void performUserPasswordChangeOperation(String authToken, String oldPassword, String newPassword) {
         UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
         UserEntity userEntity = getUserEntityFromUserAuthDetailsEntity(requestingUser);
-        if (userEntity.getPassword().equals(authServiceImpl.encryptPassword(oldPassword))) {//old password matching
-            userEntity.setPassword(authServiceImpl.encryptPassword(newPassword));
+        if (authServiceImpl.verifyPassword(oldPassword, userEntity.getPassword())) {//old password matching
+            userEntity.setPassword(authServiceImpl.hashPassword(newPassword));
             userRepository.save(userEntity);
         } else
             throw new UserAuthenticationException();
     }
 
+    @Transactional(noRollbackFor = UserNotFoundException.class)//assigned tasks are stamped with versions locked until commit
     public UserEntity performUserModification(String authToken, UserEntity changedUser) {
         UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
         UserEntity userToBeChanged = getUserEntityFromUserAuthDetailsEntity(requestingUser);
+        UserEntity userWithSameEmail = userRepository.findByEmail(changedUser.getEmail());
+        if (userWithSameEmail != null && !userWithSameEmail.getId().equals(userToBeChanged.getId()))//email is unique
+            throw new EmailAlreadyExistsInDatabaseException();
         userToBeChanged.setFirstName(changedUser.getFirstName());
         userToBeChanged.setLastName(changedUser.getLastName());
         userToBeChanged.setEmail(changedUser.getEmail());
-        return userRepository.save(userToBeChanged);
+        UserEntity savedUser = userRepository.save(userToBeChanged);
+        incrementVersionsOfProjects(savedUser.getId(), Collections.emptyList())//user is listed in members and as assignee of tasks
+                .forEach((projectId, version) -> taskRepository.updateModifiedSeqOfAssignedTasks(savedUser.getId(), projectId, version));
+        return savedUser;
+    }
+
+    /**
+     * Increments versions of projects the user is member of or has tasks assigned in, and of otherProjectIds,
+     * returns new versions by project id (projects without version are left out).
+     */
+    private Map<Long, Long> incrementVersionsOfProjects(Long userId, Collection<Long> otherProjectIds) {
+        Set<Long> projectIds = new TreeSet<>(projectVersionRepository.findProjectIdsOfMember(userId));
+        projectIds.addAll(taskRepository.findProjectIdsOfAssignee(userId));//tasks can be created outside of user's projects
+        projectIds.addAll(otherProjectIds);
+        Map<Long, Long> versions = new HashMap<>();
+        if (!projectIds.isEmpty()) {
+            projectVersionRepository.incrementAll(projectIds);
+            for (Long projectId : projectIds)
+                projectVersionRepository.findVersion(projectId).ifPresent(version -> versions.put(projectId, version));
+        }
+        return versions;
     }
 
+    @ReadOnlyTransactional
     public UserDetails getUserDetails(String authToken) {
         UserAuthDetailsEntity requestingUser = authServiceImpl.authenticateUserByToken(authToken);
         UserEntity userEntity = getUserEntityFromUserAuthDetailsEntity(requestingUser);
@@ -116,13 +198,14 @@ public class UserServiceImpl implements UserService{
             throw new UserNotFoundException();
     }
 
-    public void updateTasksDataAfterUserDeletion(UserEntity userEntity) {
+    public void updateTasksDataAfterUserDeletion(UserEntity userEntity, Map<Long, Long> projectVersions) {
         userEntity.getTasks()
                 .stream()
                 .filter(task -> task.getAssignee().getId().equals(userEntity.getId()))
                 .forEach(task -> {
                     UserEntity supervisor = task.getProject().getSupervisor();
                     task.setAssignee(supervisor);//assigning supervisor of project task is in, to avoid unassigned state
+                    task.setModifiedSeq(projectVersions.getOrDefault(task.getProject().getId(), task.getModifiedSeq()));
                     taskRepository.save(task);
                 });
     }
@@ -0,0 +1,284 @@
+package pl.asap.asapbe.stream;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.asap.asapbe.response_model.TaskBoardEvent;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans task board events out to subscribers of their project. Publishing never blocks: an event is serialized once
+ * and offered to the bounded buffer of every subscriber, buffers are drained by sender threads. A subscriber whose
+ * buffer is full (client not keeping up, or not reading at all) is dropped - it has to reconnect and catch up with
+ * GET tasks/changes, since the id of every event is the project version it was stamped with.
+ * Writes to a client are blocking, so a send taking longer than the send timeout (socket of a client that stopped
+ * reading) drops its subscriber as well, and the sender pool gets an extra thread until that send returns - stuck
+ * clients never take delivery capacity from the others. The stuck write itself ends with the container's socket
+ * write timeout (server.connection-timeout), then the sender thread completes the emitter - completing it from another
+ * thread would wait for the same lock as the send.
+ */
+@Component
+@Slf4j
+public class TaskBoardBroadcaster {
+
+    /**
+     * Receiver of a subscriber's events, called by one sender thread at a time.
+     */
+    public interface Sink {
+        void send(String name, long id, String data) throws IOException;
+
+        void close();
+    }
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final ThreadPoolExecutor senderExecutor;
+    private final ScheduledExecutorService sendWatchdog;
+    private final Set<Subscription> sending = ConcurrentHashMap.newKeySet();//subscriptions with a send in progress
+    private final ConcurrentMap<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong droppedSubscriptions = new AtomicLong();
+
+    @Autowired
+    public TaskBoardBroadcaster(ObjectMapper objectMapper,
+                                @Value("${tasks.stream.buffer-size:64}") int bufferSize,
+                                @Value("${tasks.stream.timeout-seconds:1800}") long timeoutSeconds,
+                                @Value("${tasks.stream.sender-threads:4}") int senderThreads,
+                                @Value("${tasks.stream.send-timeout-ms:5000}") long sendTimeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutSeconds * 1000;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.senderExecutor = newSenderExecutor(senderThreads);
+        this.sendWatchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-board-send-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkIntervalMillis = Math.max(sendTimeoutMillis / 4, 1);
+        sendWatchdog.scheduleWithFixedDelay(this::dropStuckSubscriptions, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadPoolExecutor newSenderExecutor(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        //queue holds at most one drain per subscriber, so it is bounded by number of subscribers
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "task-board-sender-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Server-sent events response streaming the project's task board until the client disconnects, the stream times
+     * out or the client is dropped.
+     */
+    public SseEmitter subscribe(Long projectId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = subscribe(projectId, new Sink() {
+            public void send(String name, long id, String data) throws IOException {
+                emitter.send(SseEmitter.event().name(name).id(Long.toString(id)).data(data));
+            }
+
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        return emitter;
+    }
+
+    public Subscription subscribe(Long projectId, Sink sink) {
+        Subscription subscription = new Subscription(projectId, sink);
+        subscriptions.compute(projectId, (id, projectSubscriptions) -> {
+            Set<Subscription> updated = projectSubscriptions == null ? ConcurrentHashMap.newKeySet() : projectSubscriptions;
+            updated.add(subscription);
+            return updated;
+        });
+        return subscription;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)//after commit, so clients never see a change that is rolled back
+    public void onTaskBoardEvent(TaskBoardEvent event) {
+        publish(event);
+    }
+
+    public void publish(TaskBoardEvent event) {
+        Set<Subscription> projectSubscriptions = subscriptions.get(event.getProjectId());
+        if (projectSubscriptions == null)
+            return;
+        Message message;
+        try {
+            message = new Message(event.getType().name(), event.getModifiedSeq(), objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {//change is already committed, failure must not reach its caller
+            log.warn("Task board event of project {} could not be serialized", event.getProjectId(), e);
+            return;
+        }
+        for (Subscription subscription : projectSubscriptions)
+            subscription.offer(message);
+    }
+
+    public int getSubscriptionCount() {
+        return subscriptions.values().stream().mapToInt(Set::size).sum();
+    }
+
+    public long getDroppedSubscriptionCount() {
+        return droppedSubscriptions.get();
+    }
+
+    int getSenderThreadCount() {//configured threads plus one per stuck send
+        return senderExecutor.getMaximumPoolSize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendWatchdog.shutdownNow();
+        senderExecutor.shutdownNow();
+    }
+
+    private void dropStuckSubscriptions() {
+        long now = System.nanoTime();
+        for (Subscription subscription : sending)
+            if (now - subscription.sendStartedAt > sendTimeoutNanos && subscription.sendState.compareAndSet(SENDING, STUCK)) {
+                subscription.drop();
+                resizeSenderExecutor(1);//replaces the blocked thread until its send returns
+            }
+    }
+
+    private synchronized void resizeSenderExecutor(int delta) {
+        int size = senderExecutor.getMaximumPoolSize() + delta;
+        if (delta > 0) {//maximum can never be below core size
+            senderExecutor.setMaximumPoolSize(size);
+            senderExecutor.setCorePoolSize(size);
+        } else {
+            senderExecutor.setCorePoolSize(size);
+            senderExecutor.setMaximumPoolSize(size);
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.projectId, (id, projectSubscriptions) -> {
+            projectSubscriptions.remove(subscription);
+            return projectSubscriptions.isEmpty() ? null : projectSubscriptions;
+        });
+    }
+
+    private static final class Message {
+        private final String name;
+        private final long id;
+        private final String data;
+
+        private Message(String name, long id, String data) {
+            this.name = name;
+            this.id = id;
+            this.data = data;
+        }
+    }
+
+    private static final int IDLE = 0, SENDING = 1, STUCK = 2;
+
+    public final class Subscription {
+        private final Long projectId;
+        private final Sink sink;
+        private final BlockingQueue<Message> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicBoolean dropped = new AtomicBoolean();
+        private final AtomicInteger sendState = new AtomicInteger(IDLE);
+        private volatile long sendStartedAt;
+        private volatile boolean cancelled;
+
+        private Subscription(Long projectId, Sink sink) {
+            this.projectId = projectId;
+            this.sink = sink;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        /**
+         * Stops delivery, called when the client is gone. Sink is not closed.
+         */
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void offer(Message message) {
+            if (cancelled)
+                return;
+            if (!buffer.offer(message))//slow consumer, sink is closed by sender thread, publisher never waits for it
+                drop();
+            scheduleDrain();
+        }
+
+        private void drop() {
+            if (dropped.compareAndSet(false, true))
+                droppedSubscriptions.incrementAndGet();
+            cancel();
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true))
+                return;//sender thread checks the buffer again before it stops
+            try {
+                senderExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {//broadcaster is shut down
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                Message message;
+                while (!cancelled && (message = buffer.poll()) != null)
+                    send(message);
+            } catch (Exception e) {//client disconnected
+                log.debug("Task board subscriber of project {} is gone", projectId, e);
+                cancel();
+            } finally {
+                draining.set(false);
+            }
+            if (cancelled) {
+                buffer.clear();
+                if (closed.compareAndSet(false, true))
+                    sink.close();
+            } else if (!buffer.isEmpty()) {//offered after the last poll, while draining was still set
+                scheduleDrain();
+            }
+        }
+
+        private void send(Message message) throws IOException {
+            sendStartedAt = System.nanoTime();
+            sendState.set(SENDING);
+            sending.add(this);
+            try {
+                sink.send(message.name, message.id, message.data);
+            } finally {
+                sending.remove(this);
+                if (!sendState.compareAndSet(SENDING, IDLE)) {//watchdog dropped it meanwhile, its extra thread is not needed anymore
+                    sendState.set(IDLE);
+                    resizeSenderExecutor(-1);
+                }
+            }
+        }
+    }
+}
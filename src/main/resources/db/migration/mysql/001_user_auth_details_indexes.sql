@@ -0,0 +1,7 @@
+-- Unique indexes backing UserAuthDetailsRepository.findByToken and findByUserId.
+-- Duplicated tokens or user ids have to be removed before running this script.
+ALTER TABLE user_auth_details_entity
+    MODIFY user_id BIGINT NOT NULL,
+    MODIFY token VARCHAR(36) NOT NULL,
+    ADD UNIQUE INDEX ux_user_auth_details_token (token),
+    ADD UNIQUE INDEX ux_user_auth_details_user_id (user_id);
@@ -0,0 +1,5 @@
+-- Unique index backing login lookup by email (UserRepository.findCredentialsByEmail).
+-- Duplicated emails have to be removed before running this script.
+ALTER TABLE user_entity
+    MODIFY email VARCHAR(255) NOT NULL,
+    ADD UNIQUE INDEX ux_user_entity_email (email);
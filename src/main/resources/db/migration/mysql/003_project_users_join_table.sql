@@ -0,0 +1,5 @@
+-- ProjectEntity.users join table renamed, so membership checks can query it directly.
+RENAME TABLE project_entity_users TO project_users;
+ALTER TABLE project_users
+    CHANGE project_entity_id project_id BIGINT NOT NULL,
+    CHANGE users_id user_id BIGINT NOT NULL;
@@ -0,0 +1,7 @@
+-- Composite indexes backing keyset scrolling of tasks (TaskRepository.findScrollStart* / findScrollAfter*).
+-- Tasks without priority get the default one, as priority is part of the seek key.
+UPDATE task_entity SET priority = 1 WHERE priority IS NULL;
+ALTER TABLE task_entity
+    MODIFY priority INT NOT NULL,
+    ADD INDEX ix_task_entity_project_priority_id (project_id, priority, id),
+    ADD INDEX ix_task_entity_project_status_priority_id (project_id, status, priority, id);
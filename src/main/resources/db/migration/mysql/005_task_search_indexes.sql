@@ -0,0 +1,5 @@
+-- Indexes backing task search by assignee and title prefix (TaskSpecifications.assignedTo / titleStartsWith).
+-- Status and priority filters use ix_task_entity_project_status_priority_id from 004.
+ALTER TABLE task_entity
+    ADD INDEX ix_task_entity_project_user_id (project_id, user_id),
+    ADD INDEX ix_task_entity_project_title (project_id, title);
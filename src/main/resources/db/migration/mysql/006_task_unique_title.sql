@@ -0,0 +1,5 @@
+-- Task titles are unique within a project (TaskRepository.existsByProjectIdAndTitle backed by this index).
+-- Replaces the non unique index from 005. Duplicated titles have to be renamed before running this script.
+ALTER TABLE task_entity
+    DROP INDEX ix_task_entity_project_title,
+    ADD UNIQUE INDEX ux_task_entity_project_title (project_id, title);
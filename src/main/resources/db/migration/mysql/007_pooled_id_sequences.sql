@@ -0,0 +1,11 @@
+-- Per entity id sequences (PooledIdGenerator) replacing the shared hibernate_sequence row.
+-- On MySQL a sequence is a single row table, next_val is the first id of the next allocated block.
+CREATE TABLE user_entity_seq (next_val BIGINT);
+INSERT INTO user_entity_seq SELECT COALESCE(MAX(id), 0) + 1 FROM user_entity;
+CREATE TABLE user_auth_details_entity_seq (next_val BIGINT);
+INSERT INTO user_auth_details_entity_seq SELECT COALESCE(MAX(id), 0) + 1 FROM user_auth_details_entity;
+CREATE TABLE project_entity_seq (next_val BIGINT);
+INSERT INTO project_entity_seq SELECT COALESCE(MAX(id), 0) + 1 FROM project_entity;
+CREATE TABLE task_entity_seq (next_val BIGINT);
+INSERT INTO task_entity_seq SELECT COALESCE(MAX(id), 0) + 1 FROM task_entity;
+-- hibernate_sequence is no longer used and can be dropped once no older application instance is running.
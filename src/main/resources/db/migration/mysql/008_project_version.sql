@@ -0,0 +1,9 @@
+-- Version of project's task and member lists (ETag of GET /tasks and GET /projects/users), see ProjectVersionEntity.
+-- Projects without a row are served without ETag.
+CREATE TABLE project_version (
+    project_id BIGINT NOT NULL,
+    version BIGINT NOT NULL,
+    PRIMARY KEY (project_id)
+);
+INSERT INTO project_version (project_id, version)
+SELECT id, 0 FROM project_entity;
@@ -0,0 +1,12 @@
+-- Delta synchronization of tasks (GET tasks/changes): every task change is stamped with the new version of its project,
+-- deleted tasks leave a tombstone. Existing tasks keep 0, clients get them with their first, full synchronization.
+ALTER TABLE task_entity
+    ADD COLUMN modified_seq BIGINT NOT NULL DEFAULT 0,
+    ADD INDEX ix_task_entity_project_modified_seq (project_id, modified_seq);
+CREATE TABLE task_tombstone (
+    task_id BIGINT NOT NULL,
+    project_id BIGINT NOT NULL,
+    modified_seq BIGINT NOT NULL,
+    PRIMARY KEY (task_id),
+    INDEX ix_task_tombstone_project_modified_seq (project_id, modified_seq)
+);
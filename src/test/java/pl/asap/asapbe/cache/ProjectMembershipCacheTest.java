@@ -0,0 +1,79 @@
+package pl.asap.asapbe.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProjectMembershipCacheTest {
+
+    Clock clock;
+
+    ProjectMembershipCache projectMembershipCache;
+
+    @Before
+    public void setUp() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        projectMembershipCache = new ProjectMembershipCache(2, 60, clock);
+    }
+
+    @Test
+    public void testIsMember() {
+        assertFalse(projectMembershipCache.isMember(1L, 1L).isPresent());
+
+        projectMembershipCache.put(1L, Arrays.asList(1L, 5L), projectMembershipCache.currentStamp());
+
+        assertTrue(projectMembershipCache.isMember(1L, 1L).get());
+        assertTrue(projectMembershipCache.isMember(1L, 5L).get());
+        assertFalse(projectMembershipCache.isMember(1L, 2L).get());
+        assertEquals(3, projectMembershipCache.getHitCount());
+        assertEquals(1, projectMembershipCache.getMissCount());
+    }
+
+    @Test
+    public void testStaleReadIsNotCached() {
+        long stamp = projectMembershipCache.currentStamp();
+        projectMembershipCache.invalidate(1L);//membership changed while ids were read
+
+        assertFalse(projectMembershipCache.put(1L, Collections.singletonList(1L), stamp));
+        assertFalse(projectMembershipCache.isMember(1L, 1L).isPresent());
+    }
+
+    @Test
+    public void testLargeIdsAreCached() {
+        assertTrue(projectMembershipCache.put(1L, Arrays.asList(Long.MAX_VALUE, Integer.MAX_VALUE + 1L, 3L), projectMembershipCache.currentStamp()));
+
+        assertTrue(projectMembershipCache.isMember(1L, Integer.MAX_VALUE + 1L).get());
+        assertTrue(projectMembershipCache.isMember(1L, Long.MAX_VALUE).get());
+        assertTrue(projectMembershipCache.isMember(1L, 3L).get());
+        assertFalse(projectMembershipCache.isMember(1L, 2L).get());
+    }
+
+    @Test
+    public void testExpiredEntryIsEvicted() {
+        projectMembershipCache.put(1L, Collections.singletonList(1L), projectMembershipCache.currentStamp());
+        when(clock.millis()).thenReturn(60_000L);
+
+        assertFalse(projectMembershipCache.isMember(1L, 1L).isPresent());
+        assertEquals(1, projectMembershipCache.getEvictionCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedProjectIsEvictedWhenFull() {
+        projectMembershipCache.put(1L, Collections.singletonList(1L), projectMembershipCache.currentStamp());
+        projectMembershipCache.put(2L, Collections.singletonList(1L), projectMembershipCache.currentStamp());
+        projectMembershipCache.isMember(1L, 1L);//project 2 becomes least recently used
+        projectMembershipCache.put(3L, Collections.singletonList(1L), projectMembershipCache.currentStamp());
+
+        assertEquals(2, projectMembershipCache.size());
+        assertTrue(projectMembershipCache.isMember(1L, 1L).isPresent());
+        assertFalse(projectMembershipCache.isMember(2L, 1L).isPresent());
+    }
+}
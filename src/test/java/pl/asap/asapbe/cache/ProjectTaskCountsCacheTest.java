@@ -0,0 +1,105 @@
+package pl.asap.asapbe.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import pl.asap.asapbe.entities.Status;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ProjectTaskCountsCacheTest {
+
+    Clock clock;
+
+    ProjectTaskCountsCache projectTaskCountsCache;
+
+    @Before
+    public void setUp() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        projectTaskCountsCache = new ProjectTaskCountsCache(2, 60, clock);
+    }
+
+    @Test
+    public void testCountsFollowTaskChanges() {
+        assertFalse(projectTaskCountsCache.get(1L).isPresent());
+        projectTaskCountsCache.put(1L, Collections.singletonMap(Status.OPEN, 2L), projectTaskCountsCache.currentStamp());
+
+        projectTaskCountsCache.onTaskStatusChanges(projectTaskCountsCache.statusChanges(1L).moved(null, Status.OPEN));//created
+        projectTaskCountsCache.onTaskStatusChanges(projectTaskCountsCache.statusChanges(1L).moved(Status.OPEN, Status.DONE));//modified
+        projectTaskCountsCache.onTaskStatusChanges(projectTaskCountsCache.statusChanges(1L).moved(Status.OPEN, null));//deleted
+
+        Map<Status, Long> counts = projectTaskCountsCache.get(1L).get();
+        assertEquals(Long.valueOf(1), counts.get(Status.OPEN));
+        assertEquals(Long.valueOf(0), counts.get(Status.IN_PROGRESS));
+        assertEquals(Long.valueOf(0), counts.get(Status.IN_TESTS));
+        assertEquals(Long.valueOf(1), counts.get(Status.DONE));
+        assertEquals(1, projectTaskCountsCache.getHitCount());
+        assertEquals(1, projectTaskCountsCache.getMissCount());
+    }
+
+    @Test
+    public void testReturnedCountsAreCopies() {
+        projectTaskCountsCache.put(1L, new EnumMap<>(Status.class), projectTaskCountsCache.currentStamp());
+
+        projectTaskCountsCache.get(1L).get().put(Status.OPEN, 10L);
+
+        assertEquals(Long.valueOf(0), projectTaskCountsCache.get(1L).get().get(Status.OPEN));
+    }
+
+    @Test
+    public void testStaleReadIsNotCached() {
+        long stamp = projectTaskCountsCache.currentStamp();
+        projectTaskCountsCache.onTaskStatusChanges(projectTaskCountsCache.statusChanges(1L).moved(null, Status.OPEN));//task created while counts were read
+
+        assertFalse(projectTaskCountsCache.put(1L, Collections.singletonMap(Status.OPEN, 2L), stamp));
+        assertFalse(projectTaskCountsCache.get(1L).isPresent());
+    }
+
+    @Test
+    public void testChangeIsAppliedOnlyWhenCommitted() {
+        projectTaskCountsCache.put(1L, Collections.singletonMap(Status.OPEN, 2L), projectTaskCountsCache.currentStamp());
+
+        projectTaskCountsCache.statusChanges(1L).moved(null, Status.OPEN);//transaction rolled back, event never delivered
+
+        assertEquals(Long.valueOf(2), projectTaskCountsCache.get(1L).get().get(Status.OPEN));
+    }
+
+    @Test
+    public void testCountsReadDuringChangeAreDroppedOnCommit() {
+        TaskStatusChanges changes = projectTaskCountsCache.statusChanges(1L).moved(null, Status.OPEN);
+        assertTrue(projectTaskCountsCache.put(1L, Collections.singletonMap(Status.OPEN, 3L), projectTaskCountsCache.currentStamp()));//may already contain the change
+
+        projectTaskCountsCache.onTaskStatusChanges(changes);
+
+        assertFalse(projectTaskCountsCache.get(1L).isPresent());
+    }
+
+    @Test
+    public void testExpiredEntryIsEvicted() {
+        projectTaskCountsCache.put(1L, Collections.singletonMap(Status.OPEN, 2L), projectTaskCountsCache.currentStamp());
+        when(clock.millis()).thenReturn(60_000L);
+
+        assertFalse(projectTaskCountsCache.get(1L).isPresent());
+        assertEquals(0, projectTaskCountsCache.size());
+        assertEquals(1, projectTaskCountsCache.getEvictionCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        projectTaskCountsCache.put(1L, Collections.singletonMap(Status.OPEN, 1L), projectTaskCountsCache.currentStamp());
+        projectTaskCountsCache.put(2L, Collections.singletonMap(Status.OPEN, 2L), projectTaskCountsCache.currentStamp());
+        projectTaskCountsCache.get(1L);
+        projectTaskCountsCache.put(3L, Collections.singletonMap(Status.OPEN, 3L), projectTaskCountsCache.currentStamp());
+
+        assertTrue(projectTaskCountsCache.get(1L).isPresent());
+        assertFalse(projectTaskCountsCache.get(2L).isPresent());
+        assertTrue(projectTaskCountsCache.get(3L).isPresent());
+    }
+}
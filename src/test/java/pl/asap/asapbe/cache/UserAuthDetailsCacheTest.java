@@ -0,0 +1,86 @@
+package pl.asap.asapbe.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import pl.asap.asapbe.entities.UserAuthDetailsEntity;
+
+import java.time.Clock;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UserAuthDetailsCacheTest {
+
+    Clock clock;
+
+    UserAuthDetailsCache userAuthDetailsCache;
+
+    @Before
+    public void setUp() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(0L);
+        userAuthDetailsCache = new UserAuthDetailsCache(2, 60, clock);
+    }
+
+    @Test
+    public void testGetCachedEntry() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        userAuthDetailsCache.put(userAuthDetailsEntity, userAuthDetailsCache.currentStamp());
+
+        assertEquals(userAuthDetailsEntity, userAuthDetailsCache.get("1231-123-123").get());
+        assertFalse(userAuthDetailsCache.get("9999-999-999").isPresent());
+        assertEquals(1, userAuthDetailsCache.getHitCount());
+        assertEquals(1, userAuthDetailsCache.getMissCount());
+    }
+
+    @Test
+    public void testExpiredEntryIsEvicted() {
+        userAuthDetailsCache.put(new UserAuthDetailsEntity(1L, "1231-123-123"), userAuthDetailsCache.currentStamp());
+        when(clock.millis()).thenReturn(60_000L);
+
+        assertFalse(userAuthDetailsCache.get("1231-123-123").isPresent());
+        assertEquals(1, userAuthDetailsCache.getEvictionCount());
+        assertEquals(0, userAuthDetailsCache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvictedWhenFull() {
+        userAuthDetailsCache.put(new UserAuthDetailsEntity(1L, "token-1"), userAuthDetailsCache.currentStamp());
+        userAuthDetailsCache.put(new UserAuthDetailsEntity(2L, "token-2"), userAuthDetailsCache.currentStamp());
+        userAuthDetailsCache.get("token-1");//token-2 becomes least recently used
+        userAuthDetailsCache.put(new UserAuthDetailsEntity(3L, "token-3"), userAuthDetailsCache.currentStamp());
+
+        assertEquals(2, userAuthDetailsCache.size());
+        assertEquals(1, userAuthDetailsCache.getEvictionCount());
+        assertTrue(userAuthDetailsCache.get("token-1").isPresent());
+        assertFalse(userAuthDetailsCache.get("token-2").isPresent());
+        assertTrue(userAuthDetailsCache.get("token-3").isPresent());
+    }
+
+    @Test
+    public void testInvalidate() {
+        userAuthDetailsCache.put(new UserAuthDetailsEntity(1L, "1231-123-123"), userAuthDetailsCache.currentStamp());
+        userAuthDetailsCache.invalidate("1231-123-123");
+
+        assertFalse(userAuthDetailsCache.get("1231-123-123").isPresent());
+    }
+
+    @Test
+    public void testReadBeforeInvalidationIsNotCached() {
+        long stamp = userAuthDetailsCache.currentStamp();//token row read, then deleted and invalidated
+        userAuthDetailsCache.invalidate("1231-123-123");
+
+        assertFalse(userAuthDetailsCache.put(new UserAuthDetailsEntity(1L, "1231-123-123"), stamp));
+        assertFalse(userAuthDetailsCache.get("1231-123-123").isPresent());
+    }
+
+    @Test
+    public void testDisabledCacheStoresNothing() {
+        UserAuthDetailsCache disabledCache = new UserAuthDetailsCache(0, 60, clock);
+        disabledCache.put(new UserAuthDetailsEntity(1L, "1231-123-123"), disabledCache.currentStamp());
+
+        assertFalse(disabledCache.get("1231-123-123").isPresent());
+        assertEquals(0, disabledCache.size());
+    }
+}
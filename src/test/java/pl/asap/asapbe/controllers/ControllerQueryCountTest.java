@@ -0,0 +1,183 @@
+package pl.asap.asapbe.controllers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import pl.asap.asapbe.entities.UserEntity;
+import pl.asap.asapbe.persistence.SqlStatementCounter;
+import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.TaskRepository;
+import pl.asap.asapbe.repositories.UserAuthDetailsRepository;
+import pl.asap.asapbe.repositories.UserRepository;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Number of SQL statements executed by controller calls, against data seeded by DevBootstrap in an in-memory
+ * database. Application caches in front of the database are disabled, so every call pays the full price of its queries.
+ * Hibernate second-level cache stays enabled - the user and project read in setUp are cached, as hot rows are in
+ * production, so lookups by id of users and projects are not counted. A changed count
+ * means that a query was added or removed (e.g. an association started to be loaded one row at a time) - if that
+ * was intended, expected value should be updated together with the change.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query_count;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=pl.asap.asapbe.persistence.SqlStatementCounter",
+        "auth.password.pbkdf2-iterations=1000",
+        "auth.token-cache.max-size=0",
+        "project.membership-cache.max-size=0",
+        "project.task-counts-cache.max-size=0"
+})
+@AutoConfigureMockMvc
+public class ControllerQueryCountTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserAuthDetailsRepository userAuthDetailsRepository;
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    TaskRepository taskRepository;
+
+    String token;
+    Long projectId;
+    Long taskId;
+
+    @Before
+    public void setUp() {
+        UserEntity supervisor = userRepository.findByEmail("marek_kowalski@gmail.com");
+        token = userAuthDetailsRepository.findByUserId(supervisor.getId()).get().getToken();
+        projectId = projectRepository.findByTitle("School project").get().getId();
+        taskId = taskRepository.findByProjectIdAndTitleIn(projectId, Collections.singletonList("Init repository")).get(0).getId();
+        SqlStatementCounter.reset();
+    }
+
+    @Test
+    public void testGetAllProjects() throws Exception {
+        mockMvc.perform(get("/projects").header("token", token))
+                .andExpect(status().isOk());
+
+        SqlStatementCounter.assertStatementCount(2);
+    }
+
+    @Test
+    public void testGetUsersInProject() throws Exception {
+        mockMvc.perform(get("/projects/users").header("token", token).param("projectId", projectId.toString()))
+                .andExpect(status().isOk());
+
+        SqlStatementCounter.assertStatementCount(4);//token, version, member ids, members
+    }
+
+    @Test
+    public void testGetAllTasksFromProject() throws Exception {
+        mockMvc.perform(get("/tasks").header("token", token).param("projectId", projectId.toString()))
+                .andExpect(status().isOk());
+
+        SqlStatementCounter.assertStatementCount(4);//token, version, member ids, tasks - access is checked once for version and tasks
+    }
+
+    @Test
+    public void testGetUnmodifiedTasksFromProject() throws Exception {
+        String etag = mockMvc.perform(get("/tasks").header("token", token).param("projectId", projectId.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        SqlStatementCounter.reset();
+
+        mockMvc.perform(get("/tasks").header("token", token).header("If-None-Match", etag).param("projectId", projectId.toString()))
+                .andExpect(status().isNotModified());
+
+        SqlStatementCounter.assertStatementCount(3);
+    }
+
+    @Test
+    public void testStreamAllTasksFromProject() throws Exception {
+        MvcResult result = mockMvc.perform(get("/tasks").header("token", token).param("projectId", projectId.toString()).param("stream", "NDJSON"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        //statements run on the thread writing the response, not counted here - one line per task of the project is checked instead
+        assertEquals(taskRepository.findSummariesByProjectId(projectId).size(), body.split("\n").length);
+    }
+
+    @Test
+    public void testGetPageOfTasksFromProject() throws Exception {
+        mockMvc.perform(get("/tasks").header("token", token).param("projectId", projectId.toString()).param("page", "0"))
+                .andExpect(status().isOk());
+
+        SqlStatementCounter.assertStatementCount(3);
+    }
+
+    @Test
+    public void testGetTaskChanges() throws Exception {
+        mockMvc.perform(get("/tasks/changes").header("token", token).param("projectId", projectId.toString()).param("since", "0"))
+                .andExpect(status().isOk());
+
+        SqlStatementCounter.assertStatementCount(5);
+    }
+
+    @Test
+    public void testGetTaskCounts() throws Exception {
+        mockMvc.perform(get("/tasks/counts").header("token", token).param("projectId", projectId.toString()))
+                .andExpect(status().isOk());
+
+        SqlStatementCounter.assertStatementCount(3);
+    }
+
+    @Test
+    public void testGetTask() throws Exception {
+        mockMvc.perform(get("/tasks/task").header("token", token).param("id", taskId.toString()))
+                .andExpect(status().isOk());
+
+        SqlStatementCounter.assertStatementCount(2);
+    }
+
+    @Test
+    public void testGetUserDetails() throws Exception {
+        mockMvc.perform(get("/users/details").header("token", token))
+                .andExpect(status().isOk());
+
+        SqlStatementCounter.assertStatementCount(1);
+    }
+
+    @Test
+    public void testCreateTask() throws Exception {
+        try {
+            mockMvc.perform(post("/tasks").header("token", token).param("projectId", projectId.toString())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"title\":\"Counted task\",\"description\":\"Description\",\"status\":\"OPEN\",\"priority\":\"HIGH\"}"))
+                    .andExpect(status().isOk());
+
+            SqlStatementCounter.assertStatementCount(6);
+        } finally {//other tests expect only seeded tasks
+            taskRepository.deleteAll(taskRepository.findByProjectIdAndTitleIn(projectId, Collections.singletonList("Counted task")));
+        }
+    }
+}
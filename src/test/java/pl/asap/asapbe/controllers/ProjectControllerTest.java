@@ -1,26 +1,44 @@
 package pl.asap.asapbe.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import pl.asap.asapbe.entities.ProjectEntity;
-import pl.asap.asapbe.entities.UserEntity;
+import pl.asap.asapbe.response_model.ProjectSummary;
+import pl.asap.asapbe.response_model.UserSummary;
 import pl.asap.asapbe.services.ProjectServiceImpl;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -35,18 +53,16 @@ public class ProjectControllerTest {
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        projectController = new ProjectController(projectServiceImpl);
+        projectController = new ProjectController(projectServiceImpl, new Pagination(20, 100), new JsonStreaming(new ObjectMapper(), new SimpleAsyncTaskExecutor(), 15));
         mockMvc = MockMvcBuilders.standaloneSetup(projectController).build();
 
     }
 
     @Test
     public void testGetAllProjects() throws Exception {
-        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
-        projectEntity1.setId(1L);
-        ProjectEntity projectEntity2 = new ProjectEntity("Test project2");
-        projectEntity2.setId(2L);
-        List<ProjectEntity> projects = Arrays.asList(projectEntity1, projectEntity2);
+        ProjectSummary projectSummary1 = new ProjectSummary(1L, "Test project");
+        ProjectSummary projectSummary2 = new ProjectSummary(2L, "Test project2");
+        List<ProjectSummary> projects = Arrays.asList(projectSummary1, projectSummary2);
 
         when(projectServiceImpl.getListOfAllProjects(anyString())).thenReturn(projects);
 
@@ -64,16 +80,36 @@ public class ProjectControllerTest {
         verifyNoMoreInteractions(projectServiceImpl);
     }
 
+    @Test
+    public void testStreamAllProjects() throws Exception {
+        List<ProjectSummary> projects = Arrays.asList(new ProjectSummary(1L, "Test project"), new ProjectSummary(2L, "Test project2"));
+        doAnswer(invocation -> {
+            projects.forEach(invocation.<Consumer<ProjectSummary>>getArgument(1));
+            return null;
+        }).when(projectServiceImpl).streamAllProjects(eq("134123"), any());
+
+        MvcResult result = mockMvc.perform(get("/projects")
+                .header("token", "134123")
+                .param("stream", "NDJSON"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1,\"title\":\"Test project\"}\n{\"id\":2,\"title\":\"Test project2\"}\n"));
+
+        verify(projectServiceImpl, never()).getListOfAllProjects(anyString());
+    }
+
     @Test
     public void testGetAllUsersInProject() throws Exception {
-        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
-        user1.setId(1L);
-        UserEntity user2 = new UserEntity("Marek", "Kostrzewa", "marek_kostrzewa@gmail.com", "pass2123");
-        user2.setId(2L);
-        List<UserEntity> users = Arrays.asList(user1, user2);
+        UserSummary user1 = new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com");
+        UserSummary user2 = new UserSummary(2L, "Marek", "Kostrzewa", "marek_kostrzewa@gmail.com");
+        List<UserSummary> users = Arrays.asList(user1, user2);
 
 
-        when(projectServiceImpl.getAllUsersFromSpecificProject(anyString(), anyLong())).thenReturn(users);
+        when(projectServiceImpl.getAllUsersFromSpecificProjectIfModified(anyString(), anyLong(), any())).thenReturn(Optional.of(users));
         mockMvc.perform(get("/projects/users")
                 .param("projectId", "1")
                 .header("token", "134123"))
@@ -89,10 +125,25 @@ public class ProjectControllerTest {
                 .andExpect(jsonPath("$[1].lastName", is("Kostrzewa")))
                 .andExpect(jsonPath("$[1].email", is("marek_kostrzewa@gmail.com")));
 
-        verify(projectServiceImpl, times(1)).getAllUsersFromSpecificProject(anyString(), anyLong());
+        verify(projectServiceImpl, times(1)).getAllUsersFromSpecificProjectIfModified(anyString(), anyLong(), any());//version and members in one call
         verifyNoMoreInteractions(projectServiceImpl);
     }
 
+    @Test
+    public void testGetAllUsersInProjectNotModified() throws Exception {
+        when(projectServiceImpl.getAllUsersFromSpecificProjectIfModified(anyString(), eq(1L), any())).thenAnswer(invocation ->
+                invocation.<LongPredicate>getArgument(2).test(7L) ? Optional.empty() : Optional.of(Arrays.asList()));
+
+        mockMvc.perform(get("/projects/users")
+                .param("projectId", "1")
+                .header("token", "134123")
+                .header("If-None-Match", "\"users-1-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"users-1-7\""));
+
+        verify(projectServiceImpl, times(1)).getAllUsersFromSpecificProjectIfModified(anyString(), eq(1L), any());
+    }
+
     @Test
     public void testCreateProject() throws Exception {
         ProjectEntity projectEntity = new ProjectEntity("Test project");
@@ -144,12 +195,10 @@ public class ProjectControllerTest {
 
     @Test
     public void testAddUserToProject() throws Exception {
-        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
-        user1.setId(1L);
-        UserEntity user2 = new UserEntity("Marek", "Kostrzewa", "marek_kostrzewa@gmail.com", "pass2123");
-        user2.setId(2L);
+        UserSummary user1 = new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com");
+        UserSummary user2 = new UserSummary(2L, "Marek", "Kostrzewa", "marek_kostrzewa@gmail.com");
 
-        List<UserEntity> usersInProject = Arrays.asList(user1, user2);
+        List<UserSummary> usersInProject = Arrays.asList(user1, user2);
         when(projectServiceImpl.performAddingUserToProjectOperation(anyString(), anyLong(), anyLong())).thenReturn(usersInProject);
 
         mockMvc.perform(put("/projects/addUser")
@@ -173,12 +222,10 @@ public class ProjectControllerTest {
 
     @Test
     public void testDeleteUserFromProject() throws Exception {
-        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
-        user1.setId(1L);
-        UserEntity user2 = new UserEntity("Marek", "Kostrzewa", "marek_kostrzewa@gmail.com", "pass2123");
-        user2.setId(2L);
+        UserSummary user1 = new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com");
+        UserSummary user2 = new UserSummary(2L, "Marek", "Kostrzewa", "marek_kostrzewa@gmail.com");
 
-        List<UserEntity> usersInProject = Arrays.asList(user1, user2);
+        List<UserSummary> usersInProject = Arrays.asList(user1, user2);
         when(projectServiceImpl.performDeletingUserFromProjectOperation(anyString(), anyLong(), anyLong())).thenReturn(usersInProject);
 
         mockMvc.perform(put("/projects/deleteUser")
@@ -210,6 +257,47 @@ public class ProjectControllerTest {
         verify(projectServiceImpl, times(1)).performProjectDeletion(anyString(), anyLong());
         verifyNoMoreInteractions(projectServiceImpl);
     }
+
+    @Test
+    public void testGetPageOfProjects() throws Exception {
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        ProjectEntity projectEntity2 = new ProjectEntity("Test project2");
+        projectEntity2.setId(2L);
+        List<ProjectEntity> projects = Arrays.asList(projectEntity1, projectEntity2);
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+
+        when(projectServiceImpl.getPageOfProjects(anyString(), any(Pageable.class), anyBoolean()))
+                .thenReturn(new PageImpl<>(projects, PageRequest.of(0, 2), 5));
+
+        mockMvc.perform(get("/projects")
+                .header("token", "134123")
+                .param("page", "0")
+                .param("size", "2")
+                .param("sort", "title"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(Pagination.TOTAL_COUNT_HEADER, "5"))
+                .andExpect(header().string(Pagination.HAS_NEXT_PAGE_HEADER, "true"))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].id", is(2)));
+
+        verify(projectServiceImpl, times(1)).getPageOfProjects(anyString(), pageableCaptor.capture(), eq(true));
+        assertEquals(2, pageableCaptor.getValue().getPageSize());
+        assertEquals(Sort.by("title").and(Sort.by("id")), pageableCaptor.getValue().getSort());
+        verifyNoMoreInteractions(projectServiceImpl);
+    }
+
+    @Test
+    public void testGetPageOfProjectsUnknownSortProperty() throws Exception {
+        mockMvc.perform(get("/projects")
+                .header("token", "134123")
+                .param("page", "0")
+                .param("sort", "supervisor"))
+                .andExpect(status().isBadRequest());
+
+        verifyZeroInteractions(projectServiceImpl);
+    }
 }
 
 //        MvcResult mvcResult =
@@ -1,26 +1,55 @@
 package pl.asap.asapbe.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.asap.asapbe.exceptions.InsufficientPermissionException;
 import pl.asap.asapbe.entities.*;
+import pl.asap.asapbe.repositories.TaskFilter;
+import pl.asap.asapbe.response_model.BulkTaskResult;
+import pl.asap.asapbe.response_model.TaskChanges;
+import pl.asap.asapbe.response_model.TaskScroll;
+import pl.asap.asapbe.response_model.TaskSummary;
+import pl.asap.asapbe.response_model.UserSummary;
 import pl.asap.asapbe.services.TaskServiceImpl;
+import pl.asap.asapbe.stream.TaskBoardBroadcaster;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class TaskControllerTest {
@@ -28,26 +57,28 @@ public class TaskControllerTest {
     @Mock
     TaskServiceImpl taskServiceImpl;
 
+    @Mock
+    TaskBoardBroadcaster taskBoardBroadcaster;
+
     TaskController taskController;
     MockMvc mockMvc;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        taskController = new TaskController(taskServiceImpl);
+        taskController = new TaskController(taskServiceImpl, new Pagination(20, 100), taskBoardBroadcaster, new JsonStreaming(new ObjectMapper(), new SimpleAsyncTaskExecutor("list-streaming-"), 15));
         mockMvc = MockMvcBuilders.standaloneSetup(taskController).build();
     }
 
     @Test
     public void testGetAllTasksFromSpecificProject() throws Exception {
-        TaskEntity task1 = new TaskEntity("Test title", "Test description", Status.OPEN, Priority.HIGH);
-        task1.setId(1L);
-        TaskEntity task2 = new TaskEntity("Test title2", "Test description2", Status.DONE, Priority.LOW);
-        task2.setId(2L);
+        TaskSummary task1 = new TaskSummary(1L, "Test title", "Test description", Status.OPEN, Priority.HIGH,
+                new UserSummary(5L, "Jan", "Kowalski", "jan_kowalski@gmail.com"));
+        TaskSummary task2 = new TaskSummary(2L, "Test title2", "Test description2", Status.DONE, Priority.LOW, null);
 
-        List<TaskEntity> tasks = Arrays.asList(task1, task2);
+        List<TaskSummary> tasks = Arrays.asList(task1, task2);
 
-        when(taskServiceImpl.getAllTasksFromProject(anyString(), anyLong())).thenReturn(tasks);
+        when(taskServiceImpl.getAllTasksFromProjectIfModified(anyString(), anyLong(), any())).thenReturn(Optional.of(tasks));
 
         mockMvc.perform(get("/tasks")
                 .header("token", "134123")
@@ -60,16 +91,175 @@ public class TaskControllerTest {
                 .andExpect(jsonPath("$[0].description", is("Test description")))
                 .andExpect(jsonPath("$[0].status", is("OPEN")))
                 .andExpect(jsonPath("$[0].priority", is("HIGH")))
+                .andExpect(jsonPath("$[0].assignee.id", is(5)))
+                .andExpect(jsonPath("$[0].assignee.email", is("jan_kowalski@gmail.com")))
                 .andExpect(jsonPath("$[1].id", is(2)))
                 .andExpect(jsonPath("$[1].title", is("Test title2")))
                 .andExpect(jsonPath("$[1].description", is("Test description2")))
                 .andExpect(jsonPath("$[1].status", is("DONE")))
                 .andExpect(jsonPath("$[1].priority", is("LOW")));
 
-        verify(taskServiceImpl, times(1)).getAllTasksFromProject(anyString(), anyLong());
+        verify(taskServiceImpl, times(1)).getAllTasksFromProjectIfModified(anyString(), anyLong(), any());//version and tasks in one call
         verifyNoMoreInteractions(taskServiceImpl);
     }
 
+    @Test
+    public void testGetAllTasksFromSpecificProjectWithVersion() throws Exception {
+        stubTasksWithVersion(3L, Arrays.asList(new TaskSummary(1L, "Test title", "Test description", Status.OPEN, Priority.HIGH, null)));
+
+        mockMvc.perform(get("/tasks")
+                .header("token", "134123")
+                .param("projectId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"tasks-1-3\""))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    public void testGetAllTasksFromSpecificProjectNotModified() throws Exception {
+        stubTasksWithVersion(3L, Arrays.asList());
+
+        mockMvc.perform(get("/tasks")
+                .header("token", "134123")
+                .header("If-None-Match", "\"tasks-1-3\"")
+                .param("projectId", "1"))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(taskServiceImpl, times(1)).getAllTasksFromProjectIfModified(anyString(), eq(1L), any());
+    }
+
+    @Test
+    public void testGetAllTasksFromSpecificProjectModifiedSinceEtag() throws Exception {
+        stubTasksWithVersion(4L, Arrays.asList());
+
+        mockMvc.perform(get("/tasks")
+                .header("token", "134123")
+                .header("If-None-Match", "\"tasks-1-3\"")
+                .param("projectId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"tasks-1-4\""));
+    }
+
+    @Test
+    public void testGetTaskChanges() throws Exception {
+        TaskChanges changes = new TaskChanges(Arrays.asList(new TaskSummary(1L, "Test title", "Test description", Status.OPEN, Priority.HIGH, null)),
+                Arrays.asList(2L), 9L);
+
+        when(taskServiceImpl.getTaskChangesFromProject(anyString(), eq(1L), eq(5L))).thenReturn(changes);
+
+        mockMvc.perform(get("/tasks/changes")
+                .header("token", "134123")
+                .param("projectId", "1")
+                .param("since", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changedTasks", hasSize(1)))
+                .andExpect(jsonPath("$.changedTasks[0].id", is(1)))
+                .andExpect(jsonPath("$.deletedTaskIds[0]", is(2)))
+                .andExpect(jsonPath("$.watermark", is(9)));
+    }
+
+    @Test
+    public void testGetTaskChangesWithoutSince() throws Exception {
+        when(taskServiceImpl.getTaskChangesFromProject(anyString(), anyLong(), anyLong()))
+                .thenReturn(new TaskChanges(Arrays.asList(), Arrays.asList(), 0L));
+
+        mockMvc.perform(get("/tasks/changes")
+                .header("token", "134123")
+                .param("projectId", "1"))
+                .andExpect(status().isOk());
+
+        verify(taskServiceImpl, times(1)).getTaskChangesFromProject(anyString(), eq(1L), eq(-1L));//all tasks
+    }
+
+    @Test
+    public void testStreamAllTasksFromSpecificProject() throws Exception {
+        List<TaskSummary> tasks = Arrays.asList(new TaskSummary(1L, "Test task", "Description", Status.OPEN, Priority.HIGH, null),
+                new TaskSummary(2L, "Test task2", "Description2", Status.DONE, Priority.LOW, null));
+        doAnswer(invocation -> {
+            tasks.forEach(invocation.<Consumer<TaskSummary>>getArgument(2));
+            return null;
+        }).when(taskServiceImpl).streamAllTasksFromProject(eq("134123"), eq(1L), any());
+
+        MvcResult result = mockMvc.perform(get("/tasks")
+                .header("token", "134123")
+                .param("projectId", "1")
+                .param("stream", "ARRAY"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].title", is("Test task")))
+                .andExpect(jsonPath("$[1].status", is("DONE")));
+
+        verify(taskServiceImpl, never()).getAllTasksFromProjectIfModified(anyString(), anyLong(), any());
+    }
+
+    @Test
+    public void testStreamUsesStreamingExecutorAndTimeout() throws Exception {
+        List<String> writingThreads = new ArrayList<>();
+        doAnswer(invocation -> {
+            writingThreads.add(Thread.currentThread().getName());
+            return null;
+        }).when(taskServiceImpl).streamAllTasksFromProject(eq("134123"), eq(1L), any());
+
+        MvcResult result = mockMvc.perform(get("/tasks")
+                .header("token", "134123")
+                .param("projectId", "1")
+                .param("stream", "NDJSON"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+
+        assertEquals(15000, result.getRequest().getAsyncContext().getTimeout());
+        assertEquals(1, writingThreads.size());
+        assertTrue(writingThreads.get(0).startsWith("list-streaming-"));
+    }
+
+    @Test
+    public void testStreamAllTasksFromSpecificProjectWithoutAccess() throws Exception {
+        doThrow(new InsufficientPermissionException()).when(taskServiceImpl).streamAllTasksFromProject(anyString(), anyLong(), any());
+
+        MvcResult result = mockMvc.perform(get("/tasks")
+                .header("token", "134123")
+                .param("projectId", "1")
+                .param("stream", "NDJSON"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    public void testStreamTaskBoard() throws Exception {
+        when(taskBoardBroadcaster.subscribe(1L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/tasks/stream")
+                .header("token", "134123")
+                .param("projectId", "1"))
+                .andExpect(request().asyncStarted());
+
+        verify(taskServiceImpl, times(1)).verifyAccessToProject("134123", 1L);
+        verify(taskBoardBroadcaster, times(1)).subscribe(1L);
+    }
+
+    @Test
+    public void testStreamTaskBoardWithoutAccess() throws Exception {
+        doThrow(new InsufficientPermissionException()).when(taskServiceImpl).verifyAccessToProject(anyString(), anyLong());
+
+        mockMvc.perform(get("/tasks/stream")
+                .header("token", "134123")
+                .param("projectId", "1"))
+                .andExpect(status().isForbidden());
+
+        verify(taskBoardBroadcaster, never()).subscribe(anyLong());
+    }
+
     @Test
     public void testGetTask() throws Exception {
         TaskEntity task1 = new TaskEntity("Test title", "Test description", Status.OPEN, Priority.HIGH);
@@ -183,4 +373,133 @@ public class TaskControllerTest {
         verify(taskServiceImpl, times(1)).performTaskDeletion(anyString(), anyLong());
         verifyNoMoreInteractions(taskServiceImpl);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetPageOfTasksFromSpecificProject() throws Exception {
+        TaskEntity task1 = new TaskEntity("Test title", "Test description", Status.OPEN, Priority.HIGH);
+        task1.setId(1L);
+
+        when(taskServiceImpl.getPageOfTasksFromProject(anyString(), anyLong(), any(Pageable.class), anyBoolean()))
+                .thenReturn(new PageImpl<>(Arrays.asList(task1), PageRequest.of(0, 20), 1));
+
+        mockMvc.perform(get("/tasks")
+                .header("token", "134123")
+                .param("projectId", "1")
+                .param("page", "0")
+                .param("sort", "priority")
+                .param("direction", "DESC"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(Pagination.TOTAL_COUNT_HEADER, "1"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title", is("Test title")));
+
+        verify(taskServiceImpl, times(1)).getPageOfTasksFromProject(anyString(), eq(1L), any(Pageable.class), eq(true));
+        verifyNoMoreInteractions(taskServiceImpl);
+    }
+
+    @Test
+    public void testScrollTasksFromSpecificProject() throws Exception {
+        TaskEntity task1 = new TaskEntity("Test title", "Test description", Status.OPEN, Priority.HIGH);
+        task1.setId(1L);
+
+        when(taskServiceImpl.scrollTasksFromProject(anyString(), anyLong(), any(), any(), anyInt()))
+                .thenReturn(new TaskScroll(Arrays.asList(task1), "MTpPUEVOOkhJR0g6MQ"));
+
+        mockMvc.perform(get("/tasks/scroll")
+                .header("token", "134123")
+                .param("projectId", "1")
+                .param("status", "OPEN")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(Pagination.NEXT_CURSOR_HEADER, "MTpPUEVOOkhJR0g6MQ"))
+                .andExpect(header().string(Pagination.HAS_NEXT_PAGE_HEADER, "true"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title", is("Test title")));
+
+        verify(taskServiceImpl, times(1)).scrollTasksFromProject(anyString(), eq(1L), eq(Status.OPEN), isNull(), eq(1));
+        verifyNoMoreInteractions(taskServiceImpl);
+    }
+
+    @Test
+    public void testSearchTasksInSpecificProject() throws Exception {
+        TaskEntity task1 = new TaskEntity("Test title", "Test description", Status.OPEN, Priority.HIGH);
+        task1.setId(1L);
+        ArgumentCaptor<TaskFilter> filterCaptor = ArgumentCaptor.forClass(TaskFilter.class);
+
+        when(taskServiceImpl.searchTasksInProject(anyString(), anyLong(), any(TaskFilter.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(Arrays.asList(task1), PageRequest.of(0, 20), 1));
+
+        mockMvc.perform(get("/tasks/search")
+                .header("token", "134123")
+                .param("projectId", "1")
+                .param("status", "OPEN", "IN_PROGRESS")
+                .param("priority", "HIGH")
+                .param("assigneeId", "3")
+                .param("titlePrefix", "Test"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(Pagination.TOTAL_COUNT_HEADER, "1"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].title", is("Test title")));
+
+        verify(taskServiceImpl, times(1)).searchTasksInProject(anyString(), eq(1L), filterCaptor.capture(), any(Pageable.class));
+        assertEquals(new TaskFilter(EnumSet.of(Status.OPEN, Status.IN_PROGRESS), EnumSet.of(Priority.HIGH), 3L, "Test"), filterCaptor.getValue());
+        verifyNoMoreInteractions(taskServiceImpl);
+    }
+
+    @Test
+    public void testGetTaskCountsOfSpecificProject() throws Exception {
+        EnumMap<Status, Long> counts = new EnumMap<>(Status.class);
+        counts.put(Status.OPEN, 3L);
+        counts.put(Status.IN_PROGRESS, 1L);
+        counts.put(Status.IN_TESTS, 0L);
+        counts.put(Status.DONE, 2L);
+
+        when(taskServiceImpl.getTaskCountsByStatus(anyString(), anyLong())).thenReturn(counts);
+
+        mockMvc.perform(get("/tasks/counts")
+                .header("token", "134123")
+                .param("projectId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$.OPEN", is(3)))
+                .andExpect(jsonPath("$.IN_PROGRESS", is(1)))
+                .andExpect(jsonPath("$.IN_TESTS", is(0)))
+                .andExpect(jsonPath("$.DONE", is(2)));
+
+        verify(taskServiceImpl, times(1)).getTaskCountsByStatus(anyString(), eq(1L));
+        verifyNoMoreInteractions(taskServiceImpl);
+    }
+
+    @Test
+    public void testCreateTasksInBulk() throws Exception {
+        TaskEntity task1 = new TaskEntity("Test title", "Test description", Status.OPEN, Priority.HIGH);
+        TaskEntity task2 = new TaskEntity("Test title", "Test description2", Status.DONE, Priority.LOW);
+        TaskEntity task1Created = new TaskEntity("Test title", "Test description", Status.OPEN, Priority.HIGH);
+        task1Created.setId(1L);
+        String jsonObj = new Gson().toJson(Arrays.asList(task1, task2));
+
+        when(taskServiceImpl.performBulkTaskCreation(anyString(), anyList(), anyLong())).thenReturn(Arrays.asList(
+                new BulkTaskResult(0, BulkTaskResult.Outcome.CREATED, task1Created),
+                new BulkTaskResult(1, BulkTaskResult.Outcome.DUPLICATED_TITLE, null)));
+
+        mockMvc.perform(post("/tasks/bulk")
+                .header("token", "134123")
+                .param("projectId", "1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(jsonObj))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].outcome", is("CREATED")))
+                .andExpect(jsonPath("$[0].task.id", is(1)))
+                .andExpect(jsonPath("$[1].index", is(1)))
+                .andExpect(jsonPath("$[1].outcome", is("DUPLICATED_TITLE")));
+
+        verify(taskServiceImpl, times(1)).performBulkTaskCreation(anyString(), anyList(), eq(1L));
+        verifyNoMoreInteractions(taskServiceImpl);
+    }
+
+    private void stubTasksWithVersion(long version, List<TaskSummary> tasks) {//tasks are returned unless client has the version already
+        when(taskServiceImpl.getAllTasksFromProjectIfModified(anyString(), eq(1L), any())).thenAnswer(invocation ->
+                invocation.<LongPredicate>getArgument(2).test(version) ? Optional.empty() : Optional.of(tasks));
+    }
+}
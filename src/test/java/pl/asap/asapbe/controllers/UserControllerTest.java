@@ -1,28 +1,44 @@
 package pl.asap.asapbe.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import pl.asap.asapbe.entities.UserAuthDetailsEntity;
 import pl.asap.asapbe.entities.UserEntity;
+import pl.asap.asapbe.exceptions.UserAuthenticationException;
 import pl.asap.asapbe.response_model.UserDetails;
+import pl.asap.asapbe.response_model.UserSummary;
 import pl.asap.asapbe.services.UserServiceImpl;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class UserControllerTest {
@@ -36,17 +52,15 @@ public class UserControllerTest {
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        userController = new UserController(userServiceImpl);
+        userController = new UserController(userServiceImpl, new Pagination(20, 100), new JsonStreaming(new ObjectMapper(), new SimpleAsyncTaskExecutor(), 15));
         mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
     }
 
     @Test
     public void testGetAllUsers() throws Exception {
-        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
-        user1.setId(1L);
-        UserEntity user2 = new UserEntity("Marek", "Kostrzewa", "marek_kostrzewa@gmail.com", "pass2123");
-        user2.setId(2L);
-        List<UserEntity> users = Arrays.asList(user1, user2);
+        UserSummary user1 = new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com");
+        UserSummary user2 = new UserSummary(2L, "Marek", "Kostrzewa", "marek_kostrzewa@gmail.com");
+        List<UserSummary> users = Arrays.asList(user1, user2);
 
         when(userServiceImpl.getListOfAllUsers(anyString())).thenReturn(users);
 
@@ -68,6 +82,44 @@ public class UserControllerTest {
         verifyNoMoreInteractions(userServiceImpl);
     }
 
+    @Test
+    public void testStreamAllUsers() throws Exception {
+        List<UserSummary> users = Arrays.asList(new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com"),
+                new UserSummary(2L, "Marek", "Kostrzewa", "marek_kostrzewa@gmail.com"));
+        doAnswer(invocation -> {
+            users.forEach(invocation.<Consumer<UserSummary>>getArgument(1));
+            return null;
+        }).when(userServiceImpl).streamAllUsers(eq("134123"), any());
+
+        MvcResult result = mockMvc.perform(get("/users")
+                .header("token", "134123")
+                .param("stream", "ARRAY"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].email", is("marek_kostrzewa@gmail.com")));
+
+        verify(userServiceImpl, never()).getListOfAllUsers(anyString());
+    }
+
+    @Test
+    public void testStreamAllUsersWithoutAuthentication() throws Exception {
+        doThrow(new UserAuthenticationException()).when(userServiceImpl).streamAllUsers(anyString(), any());
+
+        MvcResult result = mockMvc.perform(get("/users")
+                .header("token", "134123")
+                .param("stream", "NDJSON"))
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized());//nothing was sent before authentication failed
+    }
+
     @Test
     public void testGetUserDetails() throws Exception {
         UserDetails userDetails = new UserDetails("Jan", "Kowalski");
@@ -176,4 +228,31 @@ public class UserControllerTest {
         verify(userServiceImpl, times(1)).performUserDeletion(anyString());
         verifyNoMoreInteractions(userServiceImpl);
     }
+
+    @Test
+    public void testGetPageOfUsersWithoutTotalCount() throws Exception {
+        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
+        user1.setId(1L);
+        List<UserEntity> users = Arrays.asList(user1);
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+
+        when(userServiceImpl.getPageOfUsers(anyString(), any(Pageable.class), anyBoolean()))
+                .thenReturn(new SliceImpl<>(users, PageRequest.of(1, 100), false));
+
+        mockMvc.perform(get("/users")
+                .header("token", "134123")
+                .param("page", "1")
+                .param("size", "500")
+                .param("count", "false"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(Pagination.TOTAL_COUNT_HEADER))
+                .andExpect(header().string(Pagination.HAS_NEXT_PAGE_HEADER, "false"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].email", is("jan_kowalski@gmail.com")));
+
+        verify(userServiceImpl, times(1)).getPageOfUsers(anyString(), pageableCaptor.capture(), eq(false));
+        assertEquals(1, pageableCaptor.getValue().getPageNumber());
+        assertEquals(100, pageableCaptor.getValue().getPageSize());//clamped to max page size
+        verifyNoMoreInteractions(userServiceImpl);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package pl.asap.asapbe.controllers;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.ProjectEntity;
+import pl.asap.asapbe.entities.Status;
+import pl.asap.asapbe.entities.TaskEntity;
+import pl.asap.asapbe.entities.UserAuthDetailsEntity;
+import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.ProjectVersionRepository;
+import pl.asap.asapbe.repositories.TaskTombstoneRepository;
+import pl.asap.asapbe.repositories.UserRepository;
+import pl.asap.asapbe.services.ProjectServiceImpl;
+import pl.asap.asapbe.services.TaskServiceImpl;
+import pl.asap.asapbe.services.UserServiceImpl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Deletion of a user together with the projects they supervise (cascade), against an in-memory database with
+ * application caches enabled.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user_deletion;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "auth.password.pbkdf2-iterations=1000"
+})
+@AutoConfigureMockMvc
+public class UserDeletionTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    UserServiceImpl userServiceImpl;
+
+    @Autowired
+    ProjectServiceImpl projectServiceImpl;
+
+    @Autowired
+    TaskServiceImpl taskServiceImpl;
+
+    @Autowired
+    ProjectRepository projectRepository;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    ProjectVersionRepository projectVersionRepository;
+
+    @Autowired
+    TaskTombstoneRepository taskTombstoneRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    public void testTasksOfProjectDeletedWithSupervisorAreNotFound() throws Exception {
+        UserAuthDetailsEntity supervisor = userServiceImpl.performUserRegistration("Anna", "Nowak", "anna_nowak@gmail.com", "qwerty123");
+        UserAuthDetailsEntity member = userServiceImpl.performUserRegistration("Piotr", "Nowak", "piotr_nowak@gmail.com", "qwerty123");
+        Long projectId = projectServiceImpl.performProjectCreation(supervisor.getToken(), new ProjectEntity("Supervised project")).getId();
+        transactionTemplate.execute(status -> projectRepository.findById(projectId).get().getUsers()
+                .add(userRepository.findById(member.getUserId()).get()));
+        TaskEntity task = taskServiceImpl.performTaskCreation(supervisor.getToken(),
+                new TaskEntity("Removed task", "Description", Status.OPEN, Priority.HIGH), projectId);
+        taskServiceImpl.performTaskDeletion(supervisor.getToken(), task.getId());
+
+        mockMvc.perform(get("/tasks").header("token", member.getToken()).param("projectId", projectId.toString()))
+                .andExpect(status().isOk());//member ids are cached
+        assertFalse(taskTombstoneRepository.findTaskIdsDeletedSince(projectId, -1L).isEmpty());
+
+        mockMvc.perform(delete("/users").header("token", supervisor.getToken()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/tasks").header("token", member.getToken()).param("projectId", projectId.toString()))
+                .andExpect(status().isNotFound());
+        assertFalse(projectVersionRepository.findVersion(projectId).isPresent());
+        assertTrue(taskTombstoneRepository.findTaskIdsDeletedSince(projectId, -1L).isEmpty());
+    }
+}
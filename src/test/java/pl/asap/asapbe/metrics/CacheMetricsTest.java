@@ -0,0 +1,44 @@
+package pl.asap.asapbe.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import pl.asap.asapbe.cache.ProjectMembershipCache;
+import pl.asap.asapbe.cache.ProjectTaskCountsCache;
+import pl.asap.asapbe.cache.UserAuthDetailsCache;
+import pl.asap.asapbe.entities.UserAuthDetailsEntity;
+
+import static org.junit.Assert.assertEquals;
+
+public class CacheMetricsTest {
+
+    MeterRegistry meterRegistry;
+
+    UserAuthDetailsCache userAuthDetailsCache;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        userAuthDetailsCache = new UserAuthDetailsCache(1, 60);
+        new CacheMetrics(userAuthDetailsCache, new ProjectMembershipCache(10, 60), new ProjectTaskCountsCache(10, 60)).bindTo(meterRegistry);
+    }
+
+    @Test
+    public void testTokenCacheCountersFollowCache() {
+        userAuthDetailsCache.put(new UserAuthDetailsEntity(1L, "token-1"), userAuthDetailsCache.currentStamp());
+        userAuthDetailsCache.get("token-1");
+        userAuthDetailsCache.get("token-2");
+        userAuthDetailsCache.put(new UserAuthDetailsEntity(2L, "token-2"), userAuthDetailsCache.currentStamp());//evicts token-1
+
+        assertEquals(1, meterRegistry.get(CacheMetrics.GETS_COUNTER).tags("cache", "auth-token", "result", "hit").functionCounter().count(), 0);
+        assertEquals(1, meterRegistry.get(CacheMetrics.GETS_COUNTER).tags("cache", "auth-token", "result", "miss").functionCounter().count(), 0);
+        assertEquals(1, meterRegistry.get(CacheMetrics.EVICTIONS_COUNTER).tags("cache", "auth-token").functionCounter().count(), 0);
+        assertEquals(1, meterRegistry.get(CacheMetrics.SIZE_GAUGE).tags("cache", "auth-token").gauge().value(), 0);
+    }
+
+    @Test
+    public void testEveryCacheIsRegistered() {
+        assertEquals(3, meterRegistry.get(CacheMetrics.SIZE_GAUGE).meters().size());
+    }
+}
@@ -0,0 +1,97 @@
+package pl.asap.asapbe.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.RestController;
+import pl.asap.asapbe.exceptions.NoSuchTaskException;
+
+import static org.junit.Assert.*;
+
+public class MethodMetricsAspectTest {
+
+    MeterRegistry meterRegistry;
+
+    SampleController sampleController;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        MethodMetricsAspect methodMetricsAspect = new MethodMetricsAspect(meterRegistry);
+        sampleController = proxy(new SampleController(proxy(new SampleService(), methodMetricsAspect)), methodMetricsAspect);
+    }
+
+    @Test
+    public void testEndpointAndServiceCallsAreTimed() {
+        assertEquals("task", sampleController.getTask(1L));
+
+        assertEquals(1, meterRegistry.get(MethodMetricsAspect.ENDPOINT_TIMER)
+                .tags("class", "SampleController", "method", "getTask", "exception", "None").timer().count());
+        assertEquals(1, meterRegistry.get(MethodMetricsAspect.SERVICE_TIMER)
+                .tags("class", "SampleService", "method", "getTaskById", "exception", "None").timer().count());
+    }
+
+    @Test
+    public void testCustomExceptionIsCountedOnce() {
+        try {
+            sampleController.getTask(-1L);
+            fail();
+        } catch (NoSuchTaskException e) {
+            //expected
+        }
+
+        assertEquals(1, meterRegistry.get(MethodMetricsAspect.SERVICE_TIMER)
+                .tags("method", "getTaskById", "exception", "NoSuchTaskException").timer().count());
+        assertEquals(1.0, meterRegistry.get(MethodMetricsAspect.EXCEPTION_COUNTER)
+                .tag("exception", "NoSuchTaskException").counter().count(), 0.0);
+    }
+
+    @Test
+    public void testOtherExceptionsAreNotCounted() {
+        try {
+            sampleController.getTask(null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+
+        assertEquals(1, meterRegistry.get(MethodMetricsAspect.ENDPOINT_TIMER)
+                .tag("exception", "IllegalArgumentException").timer().count());
+        assertNull(meterRegistry.find(MethodMetricsAspect.EXCEPTION_COUNTER).counter());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, MethodMetricsAspect aspect) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(aspect);
+        return (T) proxyFactory.getProxy();
+    }
+
+    @RestController
+    public static class SampleController {
+        private final SampleService sampleService;
+
+        public SampleController(SampleService sampleService) {
+            this.sampleService = sampleService;
+        }
+
+        public String getTask(Long taskId) {
+            return sampleService.getTaskById(taskId);
+        }
+    }
+
+    @Service
+    public static class SampleService {
+        public String getTaskById(Long taskId) {
+            if (taskId == null)
+                throw new IllegalArgumentException();
+            if (taskId < 0)
+                throw new NoSuchTaskException();
+            return "task";
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pl.asap.asapbe.persistence;
+
+import org.hibernate.cache.CacheException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class BoundedJCacheRegionFactoryTest {
+
+    @Test
+    public void testSettingOfRegion() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("asap.cache.default.max-entries", "1000");
+        settings.put("asap.cache.user.max-entries", " 10000 ");
+        settings.put("asap.cache.user.ttl-seconds", 60);
+
+        assertEquals(10000, BoundedJCacheRegionFactory.setting(settings, "user", BoundedJCacheRegionFactory.MAX_ENTRIES, 1));
+        assertEquals(60, BoundedJCacheRegionFactory.setting(settings, "user", BoundedJCacheRegionFactory.TTL_SECONDS, 1));
+        assertEquals(1000, BoundedJCacheRegionFactory.setting(settings, "project", BoundedJCacheRegionFactory.MAX_ENTRIES, 1));
+    }
+
+    @Test
+    public void testSettingWithoutConfiguration() {
+        assertEquals(BoundedJCacheRegionFactory.DEFAULT_TTL_SECONDS, BoundedJCacheRegionFactory.setting(new HashMap<>(), "project",
+                BoundedJCacheRegionFactory.TTL_SECONDS, BoundedJCacheRegionFactory.DEFAULT_TTL_SECONDS));
+    }
+
+    @Test(expected = CacheException.class)
+    public void testNotPositiveSetting() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("asap.cache.project.max-entries", 0);
+
+        BoundedJCacheRegionFactory.setting(settings, "project", BoundedJCacheRegionFactory.MAX_ENTRIES, 1);
+    }
+
+    @Test(expected = CacheException.class)
+    public void testNotNumericSetting() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("asap.cache.default.ttl-seconds", "long");
+
+        BoundedJCacheRegionFactory.setting(settings, "project", BoundedJCacheRegionFactory.TTL_SECONDS, 1);
+    }
+}
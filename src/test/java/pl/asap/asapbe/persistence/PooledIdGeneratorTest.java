@@ -0,0 +1,43 @@
+package pl.asap.asapbe.persistence;
+
+import org.hibernate.MappingException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class PooledIdGeneratorTest {
+
+    @Test
+    public void testAllocationSizeOfSequence() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("asap.id.allocation-size.default", "50");
+        settings.put("asap.id.allocation-size.task_entity_seq", " 100 ");
+
+        assertEquals(100, PooledIdGenerator.allocationSize(settings, "task_entity_seq"));
+        assertEquals(50, PooledIdGenerator.allocationSize(settings, "user_entity_seq"));
+    }
+
+    @Test
+    public void testAllocationSizeWithoutSettings() {
+        assertEquals(PooledIdGenerator.DEFAULT_ALLOCATION_SIZE, PooledIdGenerator.allocationSize(new HashMap<>(), "task_entity_seq"));
+    }
+
+    @Test(expected = MappingException.class)
+    public void testNotPositiveAllocationSize() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("asap.id.allocation-size.task_entity_seq", 0);
+
+        PooledIdGenerator.allocationSize(settings, "task_entity_seq");
+    }
+
+    @Test(expected = MappingException.class)
+    public void testNotNumericAllocationSize() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("asap.id.allocation-size.task_entity_seq", "many");
+
+        PooledIdGenerator.allocationSize(settings, "task_entity_seq");
+    }
+}
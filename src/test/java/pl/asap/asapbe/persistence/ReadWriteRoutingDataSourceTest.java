@@ -0,0 +1,115 @@
+package pl.asap.asapbe.persistence;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReadWriteRoutingDataSourceTest {
+
+    EmbeddedDatabase primary;
+
+    EmbeddedDatabase replica;
+
+    JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate readOnlyTransaction;
+
+    TransactionTemplate readWriteTransaction;
+
+    AtomicInteger replicaRoutes;
+
+    @Before
+    public void setUp() {
+        primary = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("routing_primary").build();
+        replica = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).setName("routing_replica").build();
+        new JdbcTemplate(primary).execute("create table node (name varchar(16)); insert into node values ('primary')");
+        new JdbcTemplate(replica).execute("create table node (name varchar(16)); insert into node values ('replica')");
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replica);
+        replicaRoutes = new AtomicInteger();
+        routingDataSource.setOnReplicaRoute(replicaRoutes::incrementAndGet);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @After
+    public void tearDown() {
+        ReadWriteRoutingDataSource.setReplicaAllowed(false);
+        primary.shutdown();
+        replica.shutdown();
+    }
+
+    @Test
+    public void testReadOnlyTransactionGoesToReplicaWhenAllowed() {
+        ReadWriteRoutingDataSource.setReplicaAllowed(true);
+
+        assertEquals("replica", readOnlyTransaction.execute(status -> currentNode()));
+    }
+
+    @Test
+    public void testReplicaRouteActionRunsOncePerReplicaTransaction() {
+        ReadWriteRoutingDataSource.setReplicaAllowed(true);
+
+        readOnlyTransaction.execute(status -> currentNode() + currentNode());
+        readWriteTransaction.execute(status -> currentNode());
+
+        assertEquals(1, replicaRoutes.get());
+    }
+
+    @Test
+    public void testReadOnlyTransactionStaysOnPrimaryWhenNotAllowed() {//e.g. repository call outside ReadOnlyTransactional method
+        assertEquals("primary", readOnlyTransaction.execute(status -> currentNode()));
+    }
+
+    @Test
+    public void testWritesAndNonTransactionalCallsGoToPrimary() {
+        ReadWriteRoutingDataSource.setReplicaAllowed(true);
+
+        assertEquals("primary", readWriteTransaction.execute(status -> currentNode()));
+        assertEquals("primary", currentNode());
+    }
+
+    @Test
+    public void testAspectAllowsReplicaOnlyWithinAnnotatedMethod() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new SampleService());
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(new ReplicaRoutingAspect());
+        SampleService sampleService = proxyFactory.getProxy();
+
+        assertEquals("replica", sampleService.readNode());
+        assertEquals("primary", sampleService.readNodeWithoutAnnotation());
+        assertEquals("primary", readOnlyTransaction.execute(status -> currentNode()));
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    public class SampleService {
+
+        @ReadOnlyTransactional
+        public String readNode() {//transaction interceptor is not applied here, transaction is started explicitly
+            return readOnlyTransaction.execute(status -> currentNode());
+        }
+
+        public String readNodeWithoutAnnotation() {
+            return readOnlyTransaction.execute(status -> currentNode());
+        }
+    }
+}
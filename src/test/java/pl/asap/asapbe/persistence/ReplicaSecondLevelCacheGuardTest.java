@@ -0,0 +1,73 @@
+package pl.asap.asapbe.persistence;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.mockito.Mockito.*;
+
+public class ReplicaSecondLevelCacheGuardTest {
+
+    @Mock
+    ObjectProvider<EntityManagerFactory> entityManagerFactoryProvider;
+
+    @Mock
+    EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    Session session;
+
+    ReplicaSecondLevelCacheGuard replicaSecondLevelCacheGuard;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(entityManagerFactoryProvider.getIfAvailable()).thenReturn(entityManagerFactory);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(session.getCacheMode()).thenReturn(CacheMode.NORMAL);
+        replicaSecondLevelCacheGuard = new ReplicaSecondLevelCacheGuard(entityManagerFactoryProvider);
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.clear();
+        if (TransactionSynchronizationManager.hasResource(entityManagerFactory))
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+    }
+
+    @Test
+    public void testSessionOnlyReadsCacheUntilTransactionEnds() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+
+        replicaSecondLevelCacheGuard.run();
+        verify(session).setCacheMode(CacheMode.GET);
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        verify(session).setCacheMode(CacheMode.NORMAL);//session may be used after the transaction (open in view)
+    }
+
+    @Test
+    public void testNothingHappensOutsideJpaTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        replicaSecondLevelCacheGuard.run();
+
+        verify(session, never()).setCacheMode(any());
+    }
+}
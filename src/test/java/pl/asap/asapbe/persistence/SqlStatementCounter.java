@@ -0,0 +1,37 @@
+package pl.asap.asapbe.persistence;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records SQL statements prepared by Hibernate on the current thread, registered with
+ * spring.jpa.properties.hibernate.session_factory.statement_inspector. MockMvc runs request on the test thread,
+ * so statements of a single controller call can be counted.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> statements = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        statements.get().add(sql);
+        return sql;
+    }
+
+    public static void reset() {
+        statements.get().clear();
+    }
+
+    public static List<String> getStatements() {
+        return new ArrayList<>(statements.get());
+    }
+
+    public static void assertStatementCount(int expected) {
+        List<String> recorded = getStatements();
+        if (recorded.size() != expected)
+            throw new AssertionError("Expected " + expected + " SQL statements, but " + recorded.size() + " were executed:\n"
+                    + String.join("\n", recorded));
+    }
+}
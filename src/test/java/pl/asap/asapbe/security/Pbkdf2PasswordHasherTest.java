@@ -0,0 +1,39 @@
+package pl.asap.asapbe.security;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Pbkdf2PasswordHasherTest {
+
+    Pbkdf2PasswordHasher passwordHasher = new Pbkdf2PasswordHasher(1000);
+
+    @Test
+    public void testHashMatches() {
+        String hashedPassword = passwordHasher.hash("qwerty123");
+
+        assertTrue(passwordHasher.supports(hashedPassword));
+        assertTrue(passwordHasher.matches("qwerty123", hashedPassword));
+        assertFalse(passwordHasher.matches("qwerty1234", hashedPassword));
+    }
+
+    @Test
+    public void testSupports() {
+        assertFalse(passwordHasher.supports(null));
+        assertFalse(passwordHasher.supports("3FC0A7ACF087F549AC2B266BAF94B8B1"));//legacy MD5 hash
+        assertFalse(passwordHasher.supports("pbkdf2$abc$c2FsdA==$aGFzaA=="));
+        assertTrue(passwordHasher.supports("pbkdf2$1000$c2FsdA==$aGFzaA=="));
+    }
+
+    @Test
+    public void testNeedsRehash() {
+        assertTrue(passwordHasher.needsRehash("3FC0A7ACF087F549AC2B266BAF94B8B1"));
+        assertTrue(passwordHasher.needsRehash(new Pbkdf2PasswordHasher(999).hash("qwerty123")));
+        assertFalse(passwordHasher.needsRehash(passwordHasher.hash("qwerty123")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidIterations() {
+        new Pbkdf2PasswordHasher(0);
+    }
+}
@@ -1,15 +1,28 @@
 package pl.asap.asapbe.services;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.asap.asapbe.cache.UserAuthDetailsCache;
 import pl.asap.asapbe.entities.UserAuthDetailsEntity;
+import pl.asap.asapbe.exceptions.PasswordHashingUnavailableException;
+import pl.asap.asapbe.exceptions.UserAuthenticationException;
 import pl.asap.asapbe.repositories.UserAuthDetailsRepository;
+import pl.asap.asapbe.persistence.ReadWriteRoutingDataSource;
+import pl.asap.asapbe.security.Pbkdf2PasswordHasher;
 
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -18,13 +31,24 @@ public class AuthServiceImplTest {
     @Mock
     UserAuthDetailsRepository userAuthDetailsRepository;
 
+    UserAuthDetailsCache userAuthDetailsCache;
+
+    ExecutorService passwordHashingExecutor;
+
     AuthServiceImpl authServiceImpl;
 
 
     @Before
     public void setUp(){
         MockitoAnnotations.initMocks(this);
-        authServiceImpl = new AuthServiceImpl(userAuthDetailsRepository);
+        userAuthDetailsCache = new UserAuthDetailsCache(100, 60);
+        passwordHashingExecutor = Executors.newSingleThreadExecutor();
+        authServiceImpl = new AuthServiceImpl(userAuthDetailsRepository, userAuthDetailsCache, new Pbkdf2PasswordHasher(1000), passwordHashingExecutor, 5000);
+    }
+
+    @After
+    public void tearDown() {
+        passwordHashingExecutor.shutdownNow();
     }
 
     @Test
@@ -40,6 +64,68 @@ public class AuthServiceImplTest {
         verify(userAuthDetailsRepository, never()).findAll();
     }
 
+    @Test
+    public void testAuthenticateUserByTokenServedFromCache() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        Optional<UserAuthDetailsEntity> userOptional = Optional.of(userAuthDetailsEntity);
+
+        when(userAuthDetailsRepository.findByToken(anyString())).thenReturn(userOptional);
+
+        authServiceImpl.authenticateUserByToken("1231-123-123");
+        UserAuthDetailsEntity returnedDetails = authServiceImpl.authenticateUserByToken("1231-123-123");
+
+        assertEquals(userAuthDetailsEntity, returnedDetails);
+        assertEquals(1, userAuthDetailsCache.getHitCount());
+        assertEquals(1, userAuthDetailsCache.getMissCount());
+        verify(userAuthDetailsRepository, times(1)).findByToken(anyString());
+    }
+
+    @Test(expected = UserAuthenticationException.class)
+    public void testAuthenticateUserByTokenAfterInvalidation() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+
+        when(userAuthDetailsRepository.findByToken(anyString())).thenReturn(Optional.of(userAuthDetailsEntity), Optional.empty());
+
+        authServiceImpl.authenticateUserByToken("1231-123-123");
+        authServiceImpl.invalidateToken("1231-123-123");
+        authServiceImpl.authenticateUserByToken("1231-123-123");
+        //should throw exception since token row was removed and cache entry was invalidated
+    }
+
+    @Test
+    public void testTokenReadFromReplicaIsNotCached() {
+        when(userAuthDetailsRepository.findByToken(anyString())).thenReturn(Optional.of(new UserAuthDetailsEntity(1L, "1231-123-123")));
+
+        ReadWriteRoutingDataSource.setReplicaAllowed(true);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            authServiceImpl.authenticateUserByToken("1231-123-123");
+        } finally {
+            TransactionSynchronizationManager.clear();
+            ReadWriteRoutingDataSource.setReplicaAllowed(false);
+        }
+
+        assertEquals(0, userAuthDetailsCache.size());//replica may still have the token after it was deleted
+    }
+
+    @Test
+    public void testInvalidateTokenInTransactionAfterCommit() {
+        when(userAuthDetailsRepository.findByToken(anyString())).thenReturn(Optional.of(new UserAuthDetailsEntity(1L, "1231-123-123")));
+        authServiceImpl.authenticateUserByToken("1231-123-123");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            authServiceImpl.invalidateToken("1231-123-123");
+            assertEquals(1, userAuthDetailsCache.size());//token row is not deleted until commit
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(0, userAuthDetailsCache.size());
+    }
+
     @Test
     public void testGenerateToken() {
         assertNotNull("Null token returned", authServiceImpl.generateToken());
@@ -54,4 +140,42 @@ public class AuthServiceImplTest {
         assertNotNull("Null token returned", authServiceImpl.encryptPassword(passwordRaw));
         assertEquals(passwordEncryptedExpected, authServiceImpl.encryptPassword(passwordRaw));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testHashPasswordAndVerify() {
+        String hashedPassword = authServiceImpl.hashPassword("test_password");
+
+        assertTrue(hashedPassword.startsWith("pbkdf2$1000$"));
+        assertNotEquals("Salt should make hashes differ", hashedPassword, authServiceImpl.hashPassword("test_password"));
+        assertTrue(authServiceImpl.verifyPassword("test_password", hashedPassword));
+        assertFalse(authServiceImpl.verifyPassword("wrong_password", hashedPassword));
+        assertFalse(authServiceImpl.isPasswordRehashNeeded(hashedPassword));
+    }
+
+    @Test
+    public void testVerifyLegacyPassword() {
+        String legacyHashedPassword = "16EC1EBB01FE02DED9B7D5447D3DFC65";
+
+        assertTrue(authServiceImpl.verifyPassword("test_password", legacyHashedPassword));
+        assertFalse(authServiceImpl.verifyPassword("wrong_password", legacyHashedPassword));
+        assertTrue(authServiceImpl.isPasswordRehashNeeded(legacyHashedPassword));
+    }
+
+    @Test
+    public void testRehashNeededForLowerCost() {
+        String cheaperHashedPassword = new Pbkdf2PasswordHasher(500).hash("test_password");
+
+        assertTrue(authServiceImpl.verifyPassword("test_password", cheaperHashedPassword));
+        assertTrue(authServiceImpl.isPasswordRehashNeeded(cheaperHashedPassword));
+    }
+
+    @Test(expected = PasswordHashingUnavailableException.class)
+    public void testHashPasswordWhenExecutorSaturated() {
+        ExecutorService saturatedExecutor = mock(ExecutorService.class);
+        when(saturatedExecutor.submit(any(Callable.class))).thenThrow(new RejectedExecutionException());
+        AuthServiceImpl saturatedAuthService = new AuthServiceImpl(userAuthDetailsRepository, userAuthDetailsCache, new Pbkdf2PasswordHasher(1000), saturatedExecutor, 5000);
+
+        saturatedAuthService.hashPassword("test_password");
+        //should throw exception related to state in which there is no capacity left for hashing
+    }
+}
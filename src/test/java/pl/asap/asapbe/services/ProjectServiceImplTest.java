@@ -2,14 +2,27 @@ package pl.asap.asapbe.services;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import pl.asap.asapbe.cache.ProjectMembershipCache;
 import pl.asap.asapbe.entities.*;
 import pl.asap.asapbe.exceptions.InsufficientPermissionException;
 import pl.asap.asapbe.exceptions.NoSuchProjectException;
 import pl.asap.asapbe.exceptions.ProjectAlreadyExistsInDatabaseException;
 import pl.asap.asapbe.exceptions.UserAuthenticationException;
+import pl.asap.asapbe.persistence.ReadWriteRoutingDataSource;
 import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.ProjectVersionRepository;
+import pl.asap.asapbe.repositories.TaskTombstoneRepository;
+import pl.asap.asapbe.response_model.ProjectSummary;
+import pl.asap.asapbe.response_model.UserSummary;
 
 import java.util.*;
 
@@ -28,44 +41,50 @@ public class ProjectServiceImplTest {
     @Mock
     ProjectRepository projectRepository;
 
+    @Mock
+    ProjectVersionRepository projectVersionRepository;
+
+    @Mock
+    TaskTombstoneRepository taskTombstoneRepository;
+
+    ProjectMembershipCache projectMembershipCache;
+
     ProjectServiceImpl projectServiceImpl;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        projectServiceImpl = new ProjectServiceImpl(userServiceImpl, authServiceImpl, projectRepository);
+        projectMembershipCache = new ProjectMembershipCache(100, 60);
+        projectServiceImpl = new ProjectServiceImpl(userServiceImpl, authServiceImpl, projectRepository, projectMembershipCache, projectVersionRepository, taskTombstoneRepository);
     }
 
     @Test
     public void testGetListOfAllProjectsSuccess() {
         UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
-        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
-        projectEntity1.setId(1L);
-        List<ProjectEntity> projects = Collections.singletonList(projectEntity1);
+        List<ProjectSummary> projects = Collections.singletonList(new ProjectSummary(1L, "Test project"));
 
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
-        when(projectRepository.findAll()).thenReturn(projects);
+        when(projectRepository.findAllSummaries()).thenReturn(projects);
 
 
-        List<ProjectEntity> projectsReturned = projectServiceImpl.getListOfAllProjects("1231-123-123");
+        List<ProjectSummary> projectsReturned = projectServiceImpl.getListOfAllProjects("1231-123-123");
         assertNotNull(projectsReturned);
         assertEquals(projects, projectsReturned);
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
-        verify(projectRepository, times(1)).findAll();
+        verify(projectRepository, times(1)).findAllSummaries();
+        verify(projectRepository, never()).findAll();
         verify(projectRepository, never()).findById(anyLong());
     }
 
     @Test(expected = UserAuthenticationException.class)
     public void testGetListOfAllProjectsFailure() {
-        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
-        projectEntity1.setId(1L);
-        List<ProjectEntity> projects = Collections.singletonList(projectEntity1);
+        List<ProjectSummary> projects = Collections.singletonList(new ProjectSummary(1L, "Test project"));
 
-        when(projectRepository.findAll()).thenReturn(projects);
+        when(projectRepository.findAllSummaries()).thenReturn(projects);
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(null);
 
-        List<ProjectEntity> projectsReturned = projectServiceImpl.getListOfAllProjects("1231-123-123");
+        List<ProjectSummary> projectsReturned = projectServiceImpl.getListOfAllProjects("1231-123-123");
         //Should throw exception related to failure in authentication
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
@@ -73,6 +92,27 @@ public class ProjectServiceImplTest {
         verify(projectRepository, never()).findAll();
     }
 
+    @Test
+    public void testStreamAllProjectsSuccess() {
+        List<ProjectSummary> projects = Arrays.asList(new ProjectSummary(1L, "Test project"), new ProjectSummary(2L, "Test project2"));
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(new UserAuthDetailsEntity(1L, "1231-123-123"));
+        when(projectRepository.streamAllSummaries()).thenReturn(projects.stream());
+
+        List<ProjectSummary> streamedProjects = new ArrayList<>();
+        projectServiceImpl.streamAllProjects("1231-123-123", streamedProjects::add);
+
+        assertEquals(projects, streamedProjects);
+        verify(projectRepository, never()).findAllSummaries();
+    }
+
+    @Test(expected = UserAuthenticationException.class)
+    public void testStreamAllProjectsFailure() {
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(null);
+
+        projectServiceImpl.streamAllProjects("1231-123-123", project -> {});
+    }
+
     @Test
     public void testGetAllUsersFromSpecificProjectSuccess() {
         UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
@@ -84,18 +124,21 @@ public class ProjectServiceImplTest {
         projectEntity1.setId(1L);
         projectEntity1.setUsers(users);
         Optional<ProjectEntity> projectOptional = Optional.of(projectEntity1);
-        List<UserEntity> usersListExpected = new ArrayList<>(users);
+        List<UserSummary> usersListExpected = Collections.singletonList(new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com"));
 
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(projectRepository.findById(anyLong())).thenReturn(projectOptional);
+        when(projectRepository.findMemberIds(1L)).thenReturn(Collections.<Number>singletonList(1L));
+        when(projectRepository.findMemberSummaries(1L)).thenReturn(usersListExpected);
 
-        List<UserEntity> usersReturned = projectServiceImpl.getAllUsersFromSpecificProject("1231-123-123", 1L);
+        List<UserSummary> usersReturned = projectServiceImpl.getAllUsersFromSpecificProject("1231-123-123", 1L);
 
         assertNotNull(usersReturned);
         assertEquals(usersReturned, usersListExpected);
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
         verify(projectRepository, times(1)).findById(anyLong());
+        verify(projectRepository, times(1)).findMemberSummaries(1L);
         verify(projectRepository, never()).findAll();
     }
 
@@ -113,7 +156,7 @@ public class ProjectServiceImplTest {
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(projectRepository.findById(anyLong())).thenReturn(projectOptional);
 
-        List<UserEntity> usersReturned = projectServiceImpl.getAllUsersFromSpecificProject("1231-123-123", 1L);
+        List<UserSummary> usersReturned = projectServiceImpl.getAllUsersFromSpecificProject("1231-123-123", 1L);
         //Should throw exception related to failure in permission validation
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
@@ -143,6 +186,7 @@ public class ProjectServiceImplTest {
         verify(projectRepository, times(1)).findByTitle(anyString());
         verify(projectRepository, never()).findAll();
         verify(projectRepository, times(1)).save(any(ProjectEntity.class));
+        verify(projectVersionRepository, times(1)).save(new ProjectVersionEntity(1L));
     }
 
     @Test(expected = ProjectAlreadyExistsInDatabaseException.class)
@@ -228,6 +272,11 @@ public class ProjectServiceImplTest {
         verify(projectRepository, times(1)).findById(anyLong());
         verify(projectRepository, never()).findAll();
         verify(projectRepository, times(1)).delete(any(ProjectEntity.class));
+        verify(projectVersionRepository, times(1)).deleteByProjectId(1L);
+        verify(taskTombstoneRepository, times(1)).deleteByProjectId(1L);
+        InOrder inOrder = inOrder(projectVersionRepository, projectRepository);
+        inOrder.verify(projectVersionRepository).increment(1L);//version row is locked before project's rows
+        inOrder.verify(projectRepository).delete(any(ProjectEntity.class));
     }
 
     @Test(expected = InsufficientPermissionException.class)
@@ -303,6 +352,7 @@ public class ProjectServiceImplTest {
         Optional<ProjectEntity> projectOptional = Optional.of(projectEntity);
 
         when(projectRepository.findById(anyLong())).thenReturn(projectOptional);
+        when(projectRepository.findMemberIds(1L)).thenReturn(Arrays.<Number>asList(1L, 2L));
         when(userServiceImpl.getUserFromDbById(anyLong())).thenReturn(userAdded);
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(projectRepository.save(any())).thenReturn(projectEntity);
@@ -313,6 +363,7 @@ public class ProjectServiceImplTest {
         verify(projectRepository, times(2)).findById(anyLong());
         verify(projectRepository, never()).findAll();
         verify(projectRepository, times(1)).save(any(ProjectEntity.class));
+        verify(projectVersionRepository, times(1)).increment(1L);
     }
 
     @Test(expected = InsufficientPermissionException.class)
@@ -363,9 +414,13 @@ public class ProjectServiceImplTest {
         when(projectRepository.findById(anyLong())).thenReturn(projectOptional);
         when(projectRepository.save(any())).thenReturn(projectEntity);
         when(userServiceImpl.getUserFromDbById(anyLong())).thenReturn(user2);//user to delete
+        List<UserSummary> usersLeft = Collections.singletonList(new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com"));
+        when(projectRepository.findMemberSummaries(1L)).thenReturn(usersLeft);
 
-        projectServiceImpl.performDeletingUserFromProjectOperation("1231-123-123", 1L, 1L);
+        List<UserSummary> usersReturned = projectServiceImpl.performDeletingUserFromProjectOperation("1231-123-123", 1L, 1L);
 
+        assertEquals(usersLeft, usersReturned);
+        assertFalse(projectEntity.getUsers().contains(user2));
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
         verify(projectRepository, times(1)).findById(anyLong());
         verify(projectRepository, never()).findAll();
@@ -400,24 +455,6 @@ public class ProjectServiceImplTest {
         verify(projectRepository, never()).save(any(ProjectEntity.class));
     }
 
-    @Test
-    public void testUpdateProjectWithModifiedTaskData() {
-        TaskEntity taskBeforeModification = new TaskEntity("Test task", "Description for test task", Status.OPEN, Priority.HIGH);
-
-        Set<TaskEntity> tasksBeforeChange = new HashSet<>();
-        tasksBeforeChange.add(taskBeforeModification);
-
-        TaskEntity taskAfterModification = new TaskEntity("Test task", "New description after change", Status.IN_TESTS, Priority.NORMAL);
-
-        ProjectEntity projectBeforeChange = new ProjectEntity("Test project");
-        projectBeforeChange.setId(1L);
-        projectBeforeChange.setTasks(tasksBeforeChange);
-
-        projectServiceImpl.updateProjectWithModifiedTaskData(projectBeforeChange, taskBeforeModification.getTitle(), taskAfterModification);
-
-        verify(projectRepository, times(1)).save(any(ProjectEntity.class));
-    }
-
     @Test
     public void testUpdateProjectTasksSetByRemovingDeletedItem() {
         TaskEntity taskToDelete = new TaskEntity("Test task", "Description for test task", Status.OPEN, Priority.HIGH);
@@ -464,48 +501,223 @@ public class ProjectServiceImplTest {
         assertEquals(projectUpdated, projectReturned);
 
         verify(projectRepository, times(1)).save(any(ProjectEntity.class));
+        verify(projectVersionRepository, times(1)).increment(1L);
     }
 
     @Test
-    public void testIsUserPartOfProjectPositive() {
+    public void testGetProjectVersionSuccess() {
         UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
 
-        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
-        user1.setId(1L);
-        UserEntity user2 = new UserEntity("Tomasz", "Kostrzewa", "tomasz_kostrzewa@gmail.com", "pass123");
-        user2.setId(2L);
+        when(projectVersionRepository.findVersion(1L)).thenReturn(Optional.of(7L));
+        when(projectRepository.findMemberIds(1L)).thenReturn(Collections.<Number>singletonList(1L));
 
-        Set<UserEntity> users = new HashSet<>();
-        users.add(user1);
-        users.add(user2);
+        assertEquals(Optional.of(7L), projectServiceImpl.getProjectVersion(userAuthDetailsEntity, 1L));
+
+        verify(projectRepository, never()).findById(anyLong());//project itself is not loaded
+        verify(projectRepository, never()).findMemberSummaries(anyLong());
+    }
+
+    @Test
+    public void testGetProjectVersionWithoutVersion() {
+        when(projectVersionRepository.findVersion(1L)).thenReturn(Optional.empty());
+
+        assertFalse(projectServiceImpl.getProjectVersion(new UserAuthDetailsEntity(1L, "1231-123-123"), 1L).isPresent());
+
+        verify(projectRepository, never()).findMemberIds(anyLong());
+    }
+
+    @Test
+    public void testGetAllUsersFromSpecificProjectIfModified() {
+        List<UserSummary> usersListExpected = Collections.singletonList(new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com"));
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(new UserAuthDetailsEntity(1L, "1231-123-123"));
+        when(projectVersionRepository.findVersion(1L)).thenReturn(Optional.of(7L));
+        when(projectRepository.findMemberIds(1L)).thenReturn(Collections.<Number>singletonList(1L));
+        when(projectRepository.findMemberSummaries(1L)).thenReturn(usersListExpected);
+
+        assertEquals(Optional.of(usersListExpected), projectServiceImpl.getAllUsersFromSpecificProjectIfModified("1231-123-123", 1L, version -> version == 6L));
+
+        verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());//authenticated and checked once for version and members
+        verify(projectRepository, times(1)).findMemberIds(1L);
+        verify(projectRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    public void testGetAllUsersFromSpecificProjectNotModified() {
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(new UserAuthDetailsEntity(1L, "1231-123-123"));
+        when(projectVersionRepository.findVersion(1L)).thenReturn(Optional.of(7L));
+        when(projectRepository.findMemberIds(1L)).thenReturn(Collections.<Number>singletonList(1L));
+
+        assertFalse(projectServiceImpl.getAllUsersFromSpecificProjectIfModified("1231-123-123", 1L, version -> version == 7L).isPresent());
+
+        verify(projectRepository, never()).findMemberSummaries(anyLong());//members are not loaded
+    }
+
+    @Test
+    public void testIncrementProjectVersion() {
+        when(projectVersionRepository.findVersion(1L)).thenReturn(Optional.of(8L));
+
+        assertEquals(8L, projectServiceImpl.incrementProjectVersion(1L));
+
+        InOrder inOrder = inOrder(projectVersionRepository);
+        inOrder.verify(projectVersionRepository).increment(1L);//new version is read after the increment
+        inOrder.verify(projectVersionRepository).findVersion(1L);
+    }
+
+    @Test(expected = InsufficientPermissionException.class)
+    public void testGetProjectVersionFailure() {
+        when(projectVersionRepository.findVersion(1L)).thenReturn(Optional.of(7L));
+        when(projectRepository.findMemberIds(1L)).thenReturn(Collections.<Number>singletonList(1L));
+
+        projectServiceImpl.getProjectVersion(new UserAuthDetailsEntity(2L, "1231-123-123"), 1L);
+        //Should throw exception related to state where user performing get action has insufficient permission
+    }
+
+    @Test
+    public void testIsUserPartOfProjectPositive() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
 
         ProjectEntity project = new ProjectEntity("Test project");
         project.setId(1L);
-        project.setUsers(users);
+
+        when(projectRepository.findMemberIds(1L)).thenReturn(Arrays.<Number>asList(1L, 2L));
 
         Boolean userParticipating = projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, project);
 
         assertNotNull(userParticipating);
         assertEquals(true, userParticipating);
+        verify(projectRepository, times(1)).findMemberIds(1L);
     }
 
     @Test
     public void testIsUserPartOfProjectNegative() {
         UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
 
-        UserEntity user2 = new UserEntity("Tomasz", "Kostrzewa", "tomasz_kostrzewa@gmail.com", "pass123");
-        user2.setId(2L);
+        ProjectEntity project = new ProjectEntity("Test project");
+        project.setId(1L);
+
+        when(projectRepository.findMemberIds(1L)).thenReturn(Collections.<Number>singletonList(2L));
+
+        Boolean userParticipating = projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, project);
+
+        assertNotNull(userParticipating);
+        assertEquals(false, userParticipating);
+    }
+
+    @Test
+    public void testIsUserPartOfProjectServedFromCache() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        UserAuthDetailsEntity otherUserAuthDetailsEntity = new UserAuthDetailsEntity(3L, "3231-123-123");
+
+        ProjectEntity project = new ProjectEntity("Test project");
+        project.setId(1L);
+
+        when(projectRepository.findMemberIds(1L)).thenReturn(Arrays.<Number>asList(1L, 2L));
+
+        assertTrue(projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, project));
+        assertTrue(projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, project));
+        assertFalse(projectServiceImpl.isUserPartOfProject(otherUserAuthDetailsEntity, project));
+
+        verify(projectRepository, times(1)).findMemberIds(1L);
+        verify(projectRepository, never()).countMembership(anyLong(), anyLong());
+    }
+
+    @Test
+    public void testIsUserPartOfProjectReloadedAfterMembershipChange() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
+
+        UserEntity user = new UserEntity("Tomasz", "Kostrzewa", "tomasz_kostrzewa@gmail.com", "pass123");
+        user.setId(2L);
 
         Set<UserEntity> users = new HashSet<>();
-        users.add(user2);
+        users.add(user);
 
         ProjectEntity project = new ProjectEntity("Test project");
         project.setId(1L);
         project.setUsers(users);
 
-        Boolean userParticipating = projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, project);
+        when(projectRepository.findMemberIds(1L)).thenReturn(Arrays.<Number>asList(1L, 2L), Collections.<Number>singletonList(1L));
+        when(projectRepository.save(any())).thenReturn(project);
 
-        assertNotNull(userParticipating);
-        assertEquals(false, userParticipating);
+        assertTrue(projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, project));
+        projectServiceImpl.updateUsersSetByRemovingDeletedItem(project, user);
+        assertFalse(projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, project));
+
+        verify(projectRepository, times(2)).findMemberIds(1L);
+    }
+
+    @Test
+    public void testIsUserPartOfProjectOnReplicaIsNotCached() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+
+        ProjectEntity project = new ProjectEntity("Test project");
+        project.setId(1L);
+
+        when(projectRepository.countMembership(1L, 1L)).thenReturn(1L);
+
+        ReadWriteRoutingDataSource.setReplicaAllowed(true);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            assertTrue(projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, project));
+        } finally {
+            TransactionSynchronizationManager.clear();
+            ReadWriteRoutingDataSource.setReplicaAllowed(false);
+        }
+
+        verify(projectRepository, never()).findMemberIds(anyLong());//members read from replica may be behind
+        assertEquals(0, projectMembershipCache.size());
+    }
+
+    @Test
+    public void testIsUserPartOfProjectWithCacheDisabled() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+
+        ProjectEntity project = new ProjectEntity("Test project");
+        project.setId(1L);
+
+        ProjectServiceImpl projectServiceWithoutCache = new ProjectServiceImpl(userServiceImpl, authServiceImpl, projectRepository, new ProjectMembershipCache(0, 60), projectVersionRepository, taskTombstoneRepository);
+        when(projectRepository.countMembership(1L, 1L)).thenReturn(1L);
+
+        assertTrue(projectServiceWithoutCache.isUserPartOfProject(userAuthDetailsEntity, project));
+
+        verify(projectRepository, times(1)).countMembership(1L, 1L);
+        verify(projectRepository, never()).findMemberIds(anyLong());
+    }
+
+    @Test
+    public void testGetPageOfProjectsWithTotalCount() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        Pageable pageable = PageRequest.of(0, 20);
+        PageImpl<ProjectEntity> page = new PageImpl<>(Collections.singletonList(projectEntity1), pageable, 1);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectRepository.findAll(pageable)).thenReturn(page);
+
+        Slice<ProjectEntity> pageReturned = projectServiceImpl.getPageOfProjects("1231-123-123", pageable, true);
+        assertEquals(page, pageReturned);
+
+        verify(projectRepository, times(1)).findAll(pageable);
+        verify(projectRepository, never()).findAllBy(pageable);
+    }
+
+    @Test
+    public void testGetPageOfProjectsWithoutTotalCount() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        Pageable pageable = PageRequest.of(0, 20);
+        SliceImpl<ProjectEntity> slice = new SliceImpl<>(Collections.singletonList(projectEntity1), pageable, false);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectRepository.findAllBy(pageable)).thenReturn(slice);
+
+        Slice<ProjectEntity> sliceReturned = projectServiceImpl.getPageOfProjects("1231-123-123", pageable, false);
+        assertEquals(slice, sliceReturned);
+
+        verify(projectRepository, times(1)).findAllBy(pageable);
+        verify(projectRepository, never()).findAll(pageable);//no count query
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,40 @@
 package pl.asap.asapbe.services;
 
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import pl.asap.asapbe.cache.ProjectTaskCountsCache;
+import pl.asap.asapbe.cache.TaskStatusChanges;
 import pl.asap.asapbe.entities.*;
 import pl.asap.asapbe.exceptions.*;
 import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.TaskFilter;
 import pl.asap.asapbe.repositories.TaskRepository;
-
+import pl.asap.asapbe.repositories.TaskStatusCount;
+import pl.asap.asapbe.repositories.TaskTombstoneRepository;
+import pl.asap.asapbe.response_model.BulkTaskResult;
+import pl.asap.asapbe.response_model.TaskBoardEvent;
+import pl.asap.asapbe.response_model.TaskChanges;
+import pl.asap.asapbe.response_model.TaskScroll;
+import pl.asap.asapbe.response_model.TaskSummary;
+
+import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -40,12 +62,21 @@ public class TaskServiceImplTest {
     @Mock
     TaskRepository taskRepository;
 
+    @Mock
+    TaskTombstoneRepository taskTombstoneRepository;
+
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+
+    ProjectTaskCountsCache projectTaskCountsCache;
+
     TaskServiceImpl taskServiceImpl;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        taskServiceImpl = new TaskServiceImpl(projectServiceImpl, userServiceImpl, userAuthDetailsServiceImpl, authServiceImpl, projectRepository, taskRepository);
+        projectTaskCountsCache = new ProjectTaskCountsCache(100, 60);
+        taskServiceImpl = new TaskServiceImpl(projectServiceImpl, userServiceImpl, userAuthDetailsServiceImpl, authServiceImpl, projectRepository, taskRepository, taskTombstoneRepository, projectTaskCountsCache, eventPublisher, 3);
     }
 
     @Test
@@ -71,15 +102,135 @@ public class TaskServiceImplTest {
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
         when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+        List<TaskSummary> summaries = Collections.singletonList(new TaskSummary(1L, "Test task", "Description for test task", Status.OPEN, Priority.HIGH,
+                1L, "Jan", "Kowalski", "jan_kowalski@gmail.com"));
+        when(taskRepository.findSummariesByProjectId(1L)).thenReturn(summaries);
 
-        List<TaskEntity> tasksReturned = taskServiceImpl.getAllTasksFromProject("1231-123-123", 1L);
+        List<TaskSummary> tasksReturned = taskServiceImpl.getAllTasksFromProject("1231-123-123", 1L);
 
         assertNotNull(tasksReturned);
-        assertEquals(new ArrayList<>(tasks), tasksReturned);
+        assertEquals(summaries, tasksReturned);
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
         verify(projectServiceImpl, times(1)).isUserPartOfProject(any(), any());
+        verify(taskRepository, times(1)).findSummariesByProjectId(1L);
+
+    }
+
+    @Test
+    public void testGetAllTasksFromProjectIfModified() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        List<TaskSummary> summaries = Collections.singletonList(new TaskSummary(1L, "Test task", "Description for test task", Status.OPEN, Priority.HIGH, null));
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectVersion(userAuthDetailsEntity, 1L)).thenReturn(Optional.of(7L));
+        when(taskRepository.findSummariesByProjectId(1L)).thenReturn(summaries);
+
+        assertEquals(Optional.of(summaries), taskServiceImpl.getAllTasksFromProjectIfModified("1231-123-123", 1L, version -> version == 6L));
+        assertFalse(taskServiceImpl.getAllTasksFromProjectIfModified("1231-123-123", 1L, version -> version == 7L).isPresent());
+
+        verify(taskRepository, times(1)).findSummariesByProjectId(1L);
+        verify(projectServiceImpl, never()).getProjectFromDbById(anyLong());//access checked with the version
+        verify(projectServiceImpl, never()).isUserPartOfProject(any(), any());
+    }
+
+    @Test
+    public void testGetAllTasksFromProjectIfModifiedWithoutVersion() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectVersion(userAuthDetailsEntity, 1L)).thenReturn(Optional.empty());
+        when(projectServiceImpl.getProjectFromDbById(1L)).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, projectEntity1)).thenReturn(true);
+        when(taskRepository.findSummariesByProjectId(1L)).thenReturn(Collections.emptyList());
+
+        assertEquals(Optional.of(Collections.emptyList()), taskServiceImpl.getAllTasksFromProjectIfModified("1231-123-123", 1L, version -> true));
+    }
+
+    @Test
+    public void testStreamAllTasksFromProjectSuccess() {
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        List<TaskSummary> summaries = Arrays.asList(
+                new TaskSummary(1L, "Test task", "Description for test task", Status.OPEN, Priority.HIGH, null),
+                new TaskSummary(2L, "Test task2", "Description for test task2", Status.DONE, Priority.LOW, null));
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(new UserAuthDetailsEntity(1L, "1231-123-123"));
+        when(projectServiceImpl.getProjectFromDbById(1L)).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+        when(taskRepository.streamSummariesByProjectId(1L)).thenReturn(summaries.stream());
+
+        List<TaskSummary> streamedTasks = new ArrayList<>();
+        taskServiceImpl.streamAllTasksFromProject("1231-123-123", 1L, streamedTasks::add);
+
+        assertEquals(summaries, streamedTasks);
+        verify(taskRepository, never()).findSummariesByProjectId(anyLong());
+    }
+
+    @Test(expected = InsufficientPermissionException.class)
+    public void testStreamAllTasksFromProjectFailure() {
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(new UserAuthDetailsEntity(2L, "1231-123-123"));
+        when(projectServiceImpl.getProjectFromDbById(1L)).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(false);
+
+        taskServiceImpl.streamAllTasksFromProject("1231-123-123", 1L, task -> {});
+    }
+
+    @Test
+    public void testGetTaskChangesFromProjectSuccess() {
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(new UserAuthDetailsEntity(1L, "1231-123-123"));
+        when(projectServiceImpl.getProjectFromDbById(1L)).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+        when(projectServiceImpl.findProjectVersion(1L)).thenReturn(Optional.of(9L));
+        List<TaskSummary> changedTasks = Collections.singletonList(new TaskSummary(2L, "Test task", "Description for test task", Status.OPEN, Priority.HIGH, null));
+        when(taskRepository.findSummariesModifiedSince(1L, 5L)).thenReturn(changedTasks);
+        when(taskTombstoneRepository.findTaskIdsDeletedSince(1L, 5L)).thenReturn(Arrays.asList(3L, 4L));
+
+        TaskChanges changes = taskServiceImpl.getTaskChangesFromProject("1231-123-123", 1L, 5L);
+
+        assertEquals(changedTasks, changes.getChangedTasks());
+        assertEquals(Arrays.asList(3L, 4L), changes.getDeletedTaskIds());
+        assertEquals(9L, changes.getWatermark());
+        verify(taskRepository, never()).findSummariesByProjectId(anyLong());
+    }
+
+    @Test
+    public void testGetTaskChangesFromProjectWithoutVersion() {
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(new UserAuthDetailsEntity(1L, "1231-123-123"));
+        when(projectServiceImpl.getProjectFromDbById(1L)).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+        when(projectServiceImpl.findProjectVersion(1L)).thenReturn(Optional.empty());
+        List<TaskSummary> tasks = Collections.singletonList(new TaskSummary(2L, "Test task", "Description for test task", Status.OPEN, Priority.HIGH, null));
+        when(taskRepository.findSummariesByProjectId(1L)).thenReturn(tasks);
+
+        TaskChanges changes = taskServiceImpl.getTaskChangesFromProject("1231-123-123", 1L, 5L);
+
+        assertEquals(tasks, changes.getChangedTasks());//tasks are not stamped, all of them are returned
+        assertEquals(Collections.emptyList(), changes.getDeletedTaskIds());
+        assertEquals(0L, changes.getWatermark());
+    }
+
+    @Test(expected = InsufficientPermissionException.class)
+    public void testGetTaskChangesFromProjectFailure() {
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
 
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(new UserAuthDetailsEntity(2L, "1231-123-123"));
+        when(projectServiceImpl.getProjectFromDbById(1L)).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(false);
+
+        taskServiceImpl.getTaskChangesFromProject("1231-123-123", 1L, 5L);
     }
 
     @Test(expected = InsufficientPermissionException.class)
@@ -106,7 +257,7 @@ public class TaskServiceImplTest {
         when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
         when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(false);
 
-        List<TaskEntity> tasksReturned = taskServiceImpl.getAllTasksFromProject("1231-123-123", 1L);
+        List<TaskSummary> tasksReturned = taskServiceImpl.getAllTasksFromProject("1231-123-123", 1L);
         //Should throw exception related to state where user performing get action has insufficient permission
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
@@ -156,32 +307,50 @@ public class TaskServiceImplTest {
 
         TaskEntity task = new TaskEntity("Test task", "Description for test task", Status.OPEN, Priority.HIGH);
 
-        Set<TaskEntity> tasks = new HashSet<>();
-        tasks.add(task);
-
-        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
-        projectEntity1.setId(1L);
-        projectEntity1.setTasks(new HashSet<>());
-
-        ProjectEntity projectEntityUpdated = new ProjectEntity("Test project");
-        projectEntityUpdated.setId(1L);
-        projectEntityUpdated.setTasks(tasks);
-
+        ProjectEntity projectReference = new ProjectEntity("Test project");
+        projectReference.setId(1L);
 
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(userServiceImpl.getUserEntityFromUserAuthDetailsEntity(any())).thenReturn(user1);
-        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
-        when(projectRepository.save(any())).thenReturn(projectEntityUpdated);
-        when(taskRepository.save(any())).thenReturn(task);
+        when(projectRepository.existsById(1L)).thenReturn(true);
+        when(projectRepository.getOne(1L)).thenReturn(projectReference);
+        when(taskRepository.existsByProjectIdAndTitle(1L, "Test task")).thenReturn(false);
+        when(taskRepository.saveAndFlush(any())).thenReturn(task);
+        when(projectServiceImpl.incrementProjectVersion(1L)).thenReturn(7L);
 
         TaskEntity taskReturned = taskServiceImpl.performTaskCreation("1231-123-123", task, 1L);
         assertNotNull(taskReturned);
         assertEquals(task, taskReturned);
-        assertEquals(projectEntityUpdated, taskReturned.getProject());
+        assertEquals(projectReference, taskReturned.getProject());
+        assertEquals(user1, taskReturned.getAssignee());
+        assertEquals(7L, taskReturned.getModifiedSeq());
+
+        TaskBoardEvent event = publishedTaskBoardEvent();
+        assertEquals(TaskBoardEvent.Type.CREATED, event.getType());
+        assertEquals(Long.valueOf(1L), event.getProjectId());
+        assertEquals(7L, event.getModifiedSeq());
+        assertEquals("Test task", event.getTask().getTitle());
+        assertEquals(Long.valueOf(1L), event.getTask().getAssignee().getId());
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
-        verify(projectRepository, times(1)).save(any(ProjectEntity.class));
-        verify(taskRepository, times(1)).save(any(TaskEntity.class));
+        verify(taskRepository, times(1)).saveAndFlush(any(TaskEntity.class));
+        verify(projectRepository, never()).save(any(ProjectEntity.class));//project with its tasks is neither loaded nor saved
+        verify(projectServiceImpl, never()).getProjectFromDbById(anyLong());
+        verify(projectServiceImpl, times(1)).incrementProjectVersion(1L);
+    }
+
+    @Test(expected = NoSuchProjectException.class)
+    public void testPerformTaskCreationInMissingProject() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
+        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
+        user1.setId(1L);
+        TaskEntity task = new TaskEntity("Test task", "Description for test task", Status.OPEN, Priority.HIGH);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(userServiceImpl.getUserEntityFromUserAuthDetailsEntity(any())).thenReturn(user1);
+        when(projectRepository.existsById(1L)).thenReturn(false);
+
+        taskServiceImpl.performTaskCreation("1231-123-123", task, 1L);
     }
 
     @Test(expected = TaskAlreadyExistsInProjectException.class)
@@ -207,6 +376,8 @@ public class TaskServiceImplTest {
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(userServiceImpl.getUserEntityFromUserAuthDetailsEntity(any())).thenReturn(user1);
         when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectRepository.existsById(1L)).thenReturn(true);
+        when(taskRepository.existsByProjectIdAndTitle(1L, "Test task")).thenReturn(true);
 
         taskServiceImpl.performTaskCreation("1231-123-123", taskCreated, 1L);
         //should throw exception related to state in which task that is created already exists (another task with the same title exists)
@@ -215,6 +386,30 @@ public class TaskServiceImplTest {
         verify(taskRepository, never()).findAll();
     }
 
+    @Test(expected = TaskAlreadyExistsInProjectException.class)
+    public void testPerformTaskCreationConcurrentDuplicate() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
+        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
+        user1.setId(1L);
+        TaskEntity task = new TaskEntity("Test task", "Description for test task", Status.OPEN, Priority.HIGH);
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        projectEntity1.setTasks(new HashSet<>());
+        DataIntegrityViolationException uniqueTitleViolation = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("Duplicate entry", new SQLException(), "UX_TASK_ENTITY_PROJECT_TITLE"));
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(userServiceImpl.getUserEntityFromUserAuthDetailsEntity(any())).thenReturn(user1);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectRepository.existsById(1L)).thenReturn(true);
+        when(projectRepository.getOne(1L)).thenReturn(projectEntity1);
+        when(taskRepository.existsByProjectIdAndTitle(1L, "Test task")).thenReturn(false);//other creator not committed yet
+        when(taskRepository.saveAndFlush(any())).thenThrow(uniqueTitleViolation);
+
+        taskServiceImpl.performTaskCreation("1231-123-123", task, 1L);
+        //should throw exception related to task with the same title created concurrently
+    }
+
     @Test
     public void testPerformTaskModificationSuccess() {
         UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
@@ -242,7 +437,8 @@ public class TaskServiceImplTest {
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(taskRepository.findById(anyLong())).thenReturn(taskEntityOptional);
         when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
-        when(taskRepository.save(any())).thenReturn(taskAfterChange);
+        when(taskRepository.existsByProjectIdAndTitleAndIdNot(1L, "Test task", 1L)).thenReturn(false);
+        when(taskRepository.saveAndFlush(any())).thenReturn(taskAfterChange);
 
         TaskEntity taskReturned = taskServiceImpl.performTaskModification("1231-123-123", taskAfterChange, 1L);
 
@@ -252,7 +448,7 @@ public class TaskServiceImplTest {
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
         verify(taskRepository, times(1)).findById(anyLong());
         verify(taskRepository, never()).findAll();
-        verify(taskRepository, times(1)).save(any(TaskEntity.class));
+        verify(taskRepository, times(1)).saveAndFlush(any(TaskEntity.class));
     }
 
     @Test(expected = TaskAlreadyExistsInProjectException.class)
@@ -285,7 +481,7 @@ public class TaskServiceImplTest {
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(taskRepository.findById(anyLong())).thenReturn(taskEntityOptional);
         when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
-        when(taskRepository.save(any())).thenReturn(taskAfterChange);
+        when(taskRepository.existsByProjectIdAndTitleAndIdNot(1L, "Test task", 1L)).thenReturn(true);
 
         TaskEntity taskReturned = taskServiceImpl.performTaskModification("1231-123-123", taskAfterChange, 1L);
         //should throw exception related to state in which task with different id, but the same title as modified version of another task exists
@@ -293,7 +489,7 @@ public class TaskServiceImplTest {
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
         verify(taskRepository, times(1)).findById(anyLong());
         verify(taskRepository, never()).findAll();
-        verify(taskRepository, times(1)).save(any(TaskEntity.class));
+        verify(taskRepository, never()).saveAndFlush(any(TaskEntity.class));
     }
 
     @Test
@@ -315,12 +511,19 @@ public class TaskServiceImplTest {
 
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(taskRepository.findById(anyLong())).thenReturn(taskEntityOptional);
+        when(projectServiceImpl.incrementProjectVersion(1L)).thenReturn(7L);
 
         taskServiceImpl.performTaskDeletion("1231-123-123", 1L);
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
         verify(taskRepository, times(1)).findById(anyLong());
         verify(taskRepository, times(1)).delete(any(TaskEntity.class));
+        verify(projectServiceImpl, times(1)).incrementProjectVersion(1L);
+        verify(taskTombstoneRepository, times(1)).save(new TaskTombstoneEntity(1L, 1L, 7L));
+        TaskBoardEvent event = publishedTaskBoardEvent();
+        assertEquals(TaskBoardEvent.Type.DELETED, event.getType());
+        assertEquals(Long.valueOf(1L), event.getTaskId());
+        assertNull(event.getTask());
     }
 
     @Test(expected = InsufficientPermissionException.class)
@@ -381,6 +584,7 @@ public class TaskServiceImplTest {
         when(userServiceImpl.getUserFromDbById(anyLong())).thenReturn(user1);
         when(userAuthDetailsServiceImpl.getUserAuthDetailsFromUserEntity(user1)).thenReturn(userAuthDetailsEntity);
         when(projectServiceImpl.isUserPartOfProject(userAuthDetailsEntity, projectEntityForTask)).thenReturn(true);
+        when(taskRepository.save(taskBeforeChange)).thenReturn(taskBeforeChange);
 
         TaskEntity taskReturned = taskServiceImpl.performTaskAssignment("1231-123-123", 1L, 1L);
 
@@ -390,7 +594,7 @@ public class TaskServiceImplTest {
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
         verify(taskRepository, times(1)).findById(anyLong());
         verify(taskRepository, never()).findAll();
-        verify(projectServiceImpl, times(1)).updateProjectWithModifiedTaskData(any(), anyString(), any());
+        verify(taskRepository, times(1)).save(taskBeforeChange);
     }
 
     @Test(expected = UserNotPartOfProjectException.class)
@@ -427,43 +631,6 @@ public class TaskServiceImplTest {
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
         verify(taskRepository, times(1)).findById(anyLong());
         verify(taskRepository, never()).findAll();
-        verify(projectServiceImpl, times(1)).updateProjectWithModifiedTaskData(any(), anyString(), any());
-    }
-
-    @Test
-    public void testIsTaskAlreadyCreatedInProjectPositive() {
-        TaskEntity task1 = new TaskEntity("Test task 1", "Description for test task 1", Status.OPEN, Priority.HIGH);
-        task1.setId(2L);
-        TaskEntity task2 = new TaskEntity("Test task 2", "Description for test task 2", Status.IN_TESTS, Priority.HIGH);
-        task2.setId(2L);
-        Set<TaskEntity> tasks = new HashSet<>();
-        tasks.add(task1);
-        tasks.add(task2);
-
-        TaskEntity taskDuplicatedTitle = new TaskEntity("Test task 2", "Description for test task 3", Status.IN_TESTS, Priority.HIGH);
-        task2.setId(3L);
-
-        Boolean isAlreadyInProject = taskServiceImpl.isTaskAlreadyCreatedInProject(tasks, taskDuplicatedTitle);
-        assertNotNull(isAlreadyInProject);
-        assertEquals(true, isAlreadyInProject);
-    }
-
-    @Test
-    public void testIsTaskAlreadyCreatedInProjectNegative() {
-        TaskEntity task1 = new TaskEntity("Test task 1", "Description for test task 1", Status.OPEN, Priority.HIGH);
-        task1.setId(1L);
-        TaskEntity task2 = new TaskEntity("Test task 2", "Description for test task 2", Status.IN_TESTS, Priority.HIGH);
-        task2.setId(2L);
-        Set<TaskEntity> tasks = new HashSet<>();
-        tasks.add(task1);
-        tasks.add(task2);
-
-        TaskEntity taskNotDuplicatedTitle = new TaskEntity("Test task 3", "Description for test task 3", Status.IN_TESTS, Priority.HIGH);
-        task2.setId(3L);
-
-        Boolean isAlreadyInProject = taskServiceImpl.isTaskAlreadyCreatedInProject(tasks, taskNotDuplicatedTitle);
-        assertNotNull(isAlreadyInProject);
-        assertEquals(false, isAlreadyInProject);
     }
 
     @Test
@@ -492,4 +659,306 @@ public class TaskServiceImplTest {
         TaskEntity taskReturned = taskServiceImpl.getTaskFromDbById(1L);
         //should throw exception related to state in which there is no such task in database
     }
+
+    @Test
+    public void testGetPageOfTasksFromProjectSuccess() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        TaskEntity task = new TaskEntity("Test task", "Description for test task", Status.OPEN, Priority.HIGH);
+        Pageable pageable = PageRequest.of(0, 20);
+        PageImpl<TaskEntity> page = new PageImpl<>(Collections.singletonList(task), pageable, 1);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+        when(taskRepository.findByProjectId(1L, pageable)).thenReturn(page);
+
+        assertEquals(page, taskServiceImpl.getPageOfTasksFromProject("1231-123-123", 1L, pageable, true));
+
+        verify(taskRepository, times(1)).findByProjectId(1L, pageable);
+        verify(taskRepository, never()).findSliceByProjectId(anyLong(), any());
+    }
+
+    @Test(expected = InsufficientPermissionException.class)
+    public void testGetPageOfTasksFromProjectFailure() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(false);
+
+        taskServiceImpl.getPageOfTasksFromProject("1231-123-123", 1L, PageRequest.of(0, 20), false);
+        //Should throw exception related to state where user performing get action has insufficient permission
+    }
+
+    @Test
+    public void testScrollTasksFromProjectContinuesAfterCursor() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        TaskEntity task1 = new TaskEntity("Test task", "Description for test task", Status.OPEN, Priority.HIGH);
+        task1.setId(7L);
+        TaskEntity task2 = new TaskEntity("Test task2", "Description for test task2", Status.OPEN, Priority.NORMAL);
+        task2.setId(9L);
+        TaskEntity task3 = new TaskEntity("Test task3", "Description for test task3", Status.OPEN, Priority.NORMAL);
+        task3.setId(4L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+        when(taskRepository.findScrollStart(1L, PageRequest.of(0, 3))).thenReturn(Arrays.asList(task1, task2, task3));
+        when(taskRepository.findScrollAfter(1L, Priority.NORMAL, 9L, PageRequest.of(0, 3))).thenReturn(Collections.singletonList(task3));
+
+        TaskScroll firstBatch = taskServiceImpl.scrollTasksFromProject("1231-123-123", 1L, null, null, 2);
+        assertEquals(Arrays.asList(task1, task2), firstBatch.getTasks());
+        assertNotNull(firstBatch.getNextCursor());
+
+        TaskScroll secondBatch = taskServiceImpl.scrollTasksFromProject("1231-123-123", 1L, null, firstBatch.getNextCursor(), 2);
+        assertEquals(Collections.singletonList(task3), secondBatch.getTasks());
+        assertNull(secondBatch.getNextCursor());//last batch
+
+        verify(taskRepository, times(1)).findScrollAfter(1L, Priority.NORMAL, 9L, PageRequest.of(0, 3));
+        verify(taskRepository, never()).findAll();
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void testScrollTasksFromProjectRejectsCursorOfAnotherFilter() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        TaskEntity task1 = new TaskEntity("Test task", "Description for test task", Status.OPEN, Priority.HIGH);
+        task1.setId(7L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+
+        String openTasksCursor = TaskCursor.after(1L, Status.OPEN, task1).encode();
+        taskServiceImpl.scrollTasksFromProject("1231-123-123", 1L, Status.DONE, openTasksCursor, 2);
+        //Should throw exception related to cursor issued for different status filter
+    }
+
+    @Test(expected = InvalidCursorException.class)
+    public void testScrollTasksFromProjectRejectsMalformedCursor() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+
+        taskServiceImpl.scrollTasksFromProject("1231-123-123", 1L, null, "not-a-cursor", 2);
+    }
+
+    @Test
+    public void testSearchTasksInProjectSuccess() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        TaskEntity task = new TaskEntity("Test task", "Description for test task", Status.OPEN, Priority.HIGH);
+        Pageable pageable = PageRequest.of(0, 20);
+        PageImpl<TaskEntity> page = new PageImpl<>(Collections.singletonList(task), pageable, 1);
+        TaskFilter filter = new TaskFilter(EnumSet.of(Status.OPEN), EnumSet.of(Priority.HIGH), 1L, "Test");
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+        when(taskRepository.findAll(any(Specification.class), eq(pageable))).thenReturn(page);
+
+        assertEquals(page, taskServiceImpl.searchTasksInProject("1231-123-123", 1L, filter, pageable));
+
+        verify(taskRepository, times(1)).findAll(any(Specification.class), eq(pageable));
+        verify(taskRepository, never()).findAll();//no client side filtering
+    }
+
+    @Test(expected = InsufficientPermissionException.class)
+    public void testSearchTasksInProjectFailure() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(false);
+
+        taskServiceImpl.searchTasksInProject("1231-123-123", 1L, new TaskFilter(), PageRequest.of(0, 20));
+        //Should throw exception related to state where user performing get action has insufficient permission
+    }
+
+    @Test
+    public void testGetTaskCountsByStatusKeptInSyncWithoutRequery() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
+        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
+        user1.setId(1L);
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        projectEntity1.setTasks(new HashSet<>());
+        TaskEntity task = new TaskEntity("Test task", "Description for test task", Status.IN_PROGRESS, Priority.HIGH);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(userServiceImpl.getUserEntityFromUserAuthDetailsEntity(any())).thenReturn(user1);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(true);
+        when(projectRepository.existsById(1L)).thenReturn(true);
+        when(projectRepository.getOne(1L)).thenReturn(projectEntity1);
+        when(taskRepository.saveAndFlush(any())).thenReturn(task);
+        when(taskRepository.countByStatus(1L)).thenReturn(Arrays.asList(statusCount(Status.OPEN, 3L), statusCount(Status.DONE, 2L)));
+        doAnswer(invocation -> {//delivered as after commit
+            projectTaskCountsCache.onTaskStatusChanges(invocation.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(TaskStatusChanges.class));
+
+        Map<Status, Long> counts = taskServiceImpl.getTaskCountsByStatus("1231-123-123", 1L);
+        assertEquals(Long.valueOf(3), counts.get(Status.OPEN));
+        assertEquals(Long.valueOf(0), counts.get(Status.IN_PROGRESS));
+        assertEquals(Long.valueOf(0), counts.get(Status.IN_TESTS));
+        assertEquals(Long.valueOf(2), counts.get(Status.DONE));
+
+        taskServiceImpl.performTaskCreation("1231-123-123", task, 1L);
+        counts = taskServiceImpl.getTaskCountsByStatus("1231-123-123", 1L);
+        assertEquals(Long.valueOf(1), counts.get(Status.IN_PROGRESS));
+
+        verify(taskRepository, times(1)).countByStatus(1L);//second read served by maintained aggregate
+        verify(taskRepository, never()).findAll();
+    }
+
+    @Test(expected = InsufficientPermissionException.class)
+    public void testGetTaskCountsByStatusFailure() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(projectServiceImpl.getProjectFromDbById(anyLong())).thenReturn(projectEntity1);
+        when(projectServiceImpl.isUserPartOfProject(any(), any())).thenReturn(false);
+
+        taskServiceImpl.getTaskCountsByStatus("1231-123-123", 1L);
+        //Should throw exception related to state where user performing get action has insufficient permission
+    }
+
+    private static TaskStatusCount statusCount(Status status, Long count) {
+        return new TaskStatusCount() {
+            @Override
+            public Status getStatus() {
+                return status;
+            }
+
+            @Override
+            public Long getCount() {
+                return count;
+            }
+        };
+    }
+
+    @Test
+    public void testPerformBulkTaskCreation() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
+        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
+        user1.setId(1L);
+        ProjectEntity projectReference = new ProjectEntity("Test project");
+        projectReference.setId(1L);
+        TaskEntity newTask = new TaskEntity("New task", "Description", Status.OPEN, null);
+        TaskEntity taskWithTakenTitle = new TaskEntity("Existing task", "Description", Status.OPEN, Priority.HIGH);
+        TaskEntity taskRepeatedInRequest = new TaskEntity("New task", "Other description", Status.DONE, Priority.LOW);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(userServiceImpl.getUserEntityFromUserAuthDetailsEntity(any())).thenReturn(user1);
+        when(projectRepository.existsById(1L)).thenReturn(true);
+        when(projectRepository.getOne(1L)).thenReturn(projectReference);
+        when(taskRepository.findTitlesByProjectIdAndTitleIn(eq(1L), any())).thenReturn(Collections.singletonList("Existing task"));
+        when(projectServiceImpl.incrementProjectVersion(1L)).thenReturn(7L);
+
+        List<BulkTaskResult> results = taskServiceImpl.performBulkTaskCreation("1231-123-123",
+                Arrays.asList(newTask, taskWithTakenTitle, taskRepeatedInRequest), 1L);
+
+        assertEquals(3, results.size());
+        assertEquals(BulkTaskResult.Outcome.CREATED, results.get(0).getOutcome());
+        assertEquals(newTask, results.get(0).getTask());
+        assertEquals(Priority.NORMAL, newTask.getPriority());
+        assertEquals(projectReference, newTask.getProject());
+        assertEquals(BulkTaskResult.Outcome.DUPLICATED_TITLE, results.get(1).getOutcome());
+        assertEquals(BulkTaskResult.Outcome.DUPLICATED_TITLE, results.get(2).getOutcome());
+        assertEquals(2, results.get(2).getIndex());
+
+        verify(taskRepository, times(1)).findTitlesByProjectIdAndTitleIn(eq(1L), any());//titles validated in one query
+        verify(taskRepository, times(1)).saveAll(Collections.singletonList(newTask));
+        verify(taskRepository, times(1)).flush();
+        verify(projectRepository, never()).save(any(ProjectEntity.class));
+
+        TaskBoardEvent event = publishedTaskBoardEvent();//one event for the whole import
+        assertEquals(TaskBoardEvent.Type.RESYNC, event.getType());
+        assertEquals(7L, event.getModifiedSeq());
+    }
+
+    @Test(expected = BulkRequestTooLargeException.class)
+    public void testPerformBulkTaskCreationTooLarge() {
+        List<TaskEntity> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            tasks.add(new TaskEntity("Task " + i, "Description", Status.OPEN, Priority.HIGH));
+
+        taskServiceImpl.performBulkTaskCreation("1231-123-123", tasks, 1L);
+    }
+
+    @Test
+    public void testPerformBulkTaskModification() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(2L, "1231-123-123");
+        ProjectEntity projectEntity1 = new ProjectEntity("Test project");
+        projectEntity1.setId(1L);
+        ProjectEntity projectEntity2 = new ProjectEntity("Other project");
+        projectEntity2.setId(2L);
+        TaskEntity task1 = new TaskEntity("Task 1", "Description", Status.OPEN, Priority.HIGH);
+        task1.setId(1L);
+        task1.setProject(projectEntity1);
+        TaskEntity task2 = new TaskEntity("Task 2", "Description", Status.OPEN, Priority.HIGH);
+        task2.setId(2L);
+        task2.setProject(projectEntity1);
+        TaskEntity taskOfOtherProject = new TaskEntity("Task 3", "Description", Status.OPEN, Priority.HIGH);
+        taskOfOtherProject.setId(3L);
+        taskOfOtherProject.setProject(projectEntity2);
+
+        TaskEntity task1Modified = new TaskEntity("Task 1", "New description", Status.DONE, null);
+        task1Modified.setId(1L);
+        TaskEntity task2ModifiedToTakenTitle = new TaskEntity("Task 1", "New description", Status.DONE, Priority.LOW);
+        task2ModifiedToTakenTitle.setId(2L);
+        TaskEntity taskOfOtherProjectModified = new TaskEntity("Task 3", "New description", Status.DONE, Priority.LOW);
+        taskOfOtherProjectModified.setId(3L);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(taskRepository.findAllById(Arrays.asList(1L, 2L, 3L))).thenReturn(Arrays.asList(task1, task2, taskOfOtherProject));
+        when(taskRepository.findByProjectIdAndTitleIn(eq(1L), any())).thenReturn(Collections.singletonList(task1));
+        when(projectServiceImpl.incrementProjectVersion(1L)).thenReturn(7L);
+
+        List<BulkTaskResult> results = taskServiceImpl.performBulkTaskModification("1231-123-123",
+                Arrays.asList(task1Modified, task2ModifiedToTakenTitle, taskOfOtherProjectModified), 1L);
+
+        assertEquals(BulkTaskResult.Outcome.UPDATED, results.get(0).getOutcome());
+        assertEquals("New description", task1.getDescription());
+        assertEquals(Status.DONE, task1.getStatus());
+        assertEquals(Priority.HIGH, task1.getPriority());//kept when not given
+        assertEquals(BulkTaskResult.Outcome.DUPLICATED_TITLE, results.get(1).getOutcome());
+        assertEquals("Task 2", task2.getTitle());
+        assertEquals(BulkTaskResult.Outcome.NO_SUCH_TASK, results.get(2).getOutcome());
+        assertEquals(Status.OPEN, taskOfOtherProject.getStatus());
+
+        verify(taskRepository, times(1)).flush();
+        verify(taskRepository, never()).save(any(TaskEntity.class));//managed entities written by dirty checking
+
+        TaskBoardEvent event = publishedTaskBoardEvent();
+        assertEquals(TaskBoardEvent.Type.RESYNC, event.getType());
+        assertEquals(Long.valueOf(1L), event.getProjectId());
+        assertEquals(7L, event.getModifiedSeq());
+    }
+
+    private TaskBoardEvent publishedTaskBoardEvent() {//task count changes are published next to task board events
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(events.capture());
+        List<TaskBoardEvent> taskBoardEvents = events.getAllValues().stream()
+                .filter(TaskBoardEvent.class::isInstance).map(TaskBoardEvent.class::cast).collect(Collectors.toList());
+        assertEquals(1, taskBoardEvents.size());
+        return taskBoardEvents.get(0);
+    }
 }
@@ -2,18 +2,30 @@ package pl.asap.asapbe.services;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import pl.asap.asapbe.cache.ProjectMembershipCache;
 import pl.asap.asapbe.entities.*;
 import pl.asap.asapbe.exceptions.EmailAlreadyExistsInDatabaseException;
 import pl.asap.asapbe.exceptions.UserAuthenticationException;
 import pl.asap.asapbe.exceptions.UserNotFoundException;
+import pl.asap.asapbe.repositories.ProjectRepository;
+import pl.asap.asapbe.repositories.ProjectVersionRepository;
 import pl.asap.asapbe.repositories.TaskRepository;
+import pl.asap.asapbe.repositories.TaskTombstoneRepository;
 import pl.asap.asapbe.repositories.UserAuthDetailsRepository;
+import pl.asap.asapbe.repositories.UserCredentials;
 import pl.asap.asapbe.repositories.UserRepository;
 import pl.asap.asapbe.response_model.UserDetails;
+import pl.asap.asapbe.response_model.UserSummary;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -38,51 +50,85 @@ public class UserServiceImplTest {
     @Mock
     TaskRepository taskRepository;
 
+    @Mock
+    ProjectVersionRepository projectVersionRepository;
+
+    @Mock
+    ProjectRepository projectRepository;
+
+    @Mock
+    TaskTombstoneRepository taskTombstoneRepository;
+
+    ProjectMembershipCache projectMembershipCache;
+
     UserServiceImpl userServiceImpl;
 
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        userServiceImpl = new UserServiceImpl(userAuthDetailsServiceImpl, authServiceImpl, userRepository, userAuthDetailsRepository, taskRepository);
+        projectMembershipCache = new ProjectMembershipCache(100, 60);
+        userServiceImpl = new UserServiceImpl(userAuthDetailsServiceImpl, authServiceImpl, userRepository, userAuthDetailsRepository, taskRepository, projectVersionRepository,
+                projectRepository, taskTombstoneRepository, projectMembershipCache);
     }
 
     @Test
     public void testGetListOfAllUsersSuccess() {
         UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
-        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
-        user1.setId(1L);
-        UserEntity user2 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
-        user2.setId(1L);
-        List<UserEntity> users = Arrays.asList(user1, user2);
+        UserSummary user1 = new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com");
+        UserSummary user2 = new UserSummary(2L, "Tomasz", "Kostrzewa", "tomasz_kostrzewa@gmail.com");
+        List<UserSummary> users = Arrays.asList(user1, user2);
 
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findAllSummaries()).thenReturn(users);
 
-        List<UserEntity> returnedUsers = userServiceImpl.getListOfAllUsers("1231-123-123");
+        List<UserSummary> returnedUsers = userServiceImpl.getListOfAllUsers("1231-123-123");
 
         assertNotNull(returnedUsers);
         assertEquals(users, returnedUsers);
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).findAllSummaries();
     }
 
     @Test(expected = UserAuthenticationException.class)
     public void testGetListOfAllUsersFailure() {
-        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
-        user1.setId(1L);
-        UserEntity user2 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
-        user2.setId(1L);
-        List<UserEntity> users = Arrays.asList(user1, user2);
+        UserSummary user1 = new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com");
+        UserSummary user2 = new UserSummary(2L, "Tomasz", "Kostrzewa", "tomasz_kostrzewa@gmail.com");
+        List<UserSummary> users = Arrays.asList(user1, user2);
 
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(null);
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findAllSummaries()).thenReturn(users);
 
-        List<UserEntity> returnedUsers = userServiceImpl.getListOfAllUsers("1231-123-123");
+        List<UserSummary> returnedUsers = userServiceImpl.getListOfAllUsers("1231-123-123");
         //should throw exception related to state in which user failed to authenticate
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
-        verify(userRepository, times(1)).findAll();
+        verify(userRepository, times(1)).findAllSummaries();
+    }
+
+    @Test
+    public void testStreamAllUsersSuccess() {
+        UserSummary user1 = new UserSummary(1L, "Jan", "Kowalski", "jan_kowalski@gmail.com");
+        UserSummary user2 = new UserSummary(2L, "Tomasz", "Kostrzewa", "tomasz_kostrzewa@gmail.com");
+        AtomicBoolean closed = new AtomicBoolean();
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(new UserAuthDetailsEntity(1L, "1231-123-123"));
+        when(userRepository.streamAllSummaries()).thenReturn(Stream.of(user1, user2).onClose(() -> closed.set(true)));
+
+        List<UserSummary> streamedUsers = new ArrayList<>();
+        userServiceImpl.streamAllUsers("1231-123-123", streamedUsers::add);
+
+        assertEquals(Arrays.asList(user1, user2), streamedUsers);
+        assertTrue(closed.get());//result set is released
+        verify(userRepository, never()).findAllSummaries();
+    }
+
+    @Test(expected = UserAuthenticationException.class)
+    public void testStreamAllUsersFailure() {
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(null);
+
+        userServiceImpl.streamAllUsers("1231-123-123", user -> {});
+        //should throw exception related to state in which user failed to authenticate, before anything is streamed
     }
 
     @Test
@@ -93,16 +139,42 @@ public class UserServiceImplTest {
         user1.setId(1L);
         String encryptedPassword = "3FC0A7ACF087F549AC2B266BAF94B8B1";
 
-        when(authServiceImpl.encryptPassword(anyString())).thenReturn(encryptedPassword);
-        when(userRepository.findByEmailAndPassword(anyString(), anyString())).thenReturn(user1);
-        when(userAuthDetailsServiceImpl.getUserAuthDetailsFromUserEntity(any())).thenReturn(userAuthDetailsEntity);
+        when(userRepository.findCredentialsByEmail(anyString())).thenReturn(Optional.of(credentialsOf(user1)));
+        when(authServiceImpl.verifyPassword(anyString(), anyString())).thenReturn(true);
+        when(authServiceImpl.isPasswordRehashNeeded(anyString())).thenReturn(false);
+        when(userAuthDetailsServiceImpl.getUserAuthDetailsByUserId(anyLong())).thenReturn(userAuthDetailsEntity);
 
         UserAuthDetailsEntity userDetailsReturned = userServiceImpl.performUserLogin("jan_kowalski@gmail.com", "qwerty123");
 
         assertNotNull(userDetailsReturned);
         assertEquals(userAuthDetailsEntity, userDetailsReturned);
 
-        verify(userRepository, times(1)).findByEmailAndPassword(anyString(), anyString());
+        verify(userRepository, times(1)).findCredentialsByEmail(anyString());
+        verify(userRepository, never()).findByEmail(anyString());
+        verify(userRepository, never()).updatePassword(anyLong(), anyString());
+    }
+
+    @Test
+    public void testPerformUserLoginRehashesLegacyPassword() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+
+        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "3FC0A7ACF087F549AC2B266BAF94B8B1");
+        user1.setId(1L);
+        String rehashedPassword = "pbkdf2$100000$c2FsdA==$aGFzaA==";
+
+        when(userRepository.findCredentialsByEmail(anyString())).thenReturn(Optional.of(credentialsOf(user1)));
+        when(authServiceImpl.verifyPassword(anyString(), anyString())).thenReturn(true);
+        when(authServiceImpl.isPasswordRehashNeeded(anyString())).thenReturn(true);
+        when(authServiceImpl.hashPassword(anyString())).thenReturn(rehashedPassword);
+        when(userAuthDetailsServiceImpl.getUserAuthDetailsByUserId(anyLong())).thenReturn(userAuthDetailsEntity);
+
+        UserAuthDetailsEntity userDetailsReturned = userServiceImpl.performUserLogin("jan_kowalski@gmail.com", "qwerty123");
+
+        assertEquals(userAuthDetailsEntity, userDetailsReturned);
+
+        verify(authServiceImpl, times(1)).hashPassword("qwerty123");
+        verify(userRepository, times(1)).updatePassword(1L, rehashedPassword);
+        verify(userRepository, never()).save(any(UserEntity.class));
     }
 
     @Test(expected = UserAuthenticationException.class)
@@ -113,14 +185,24 @@ public class UserServiceImplTest {
         user1.setId(1L);
         String encryptedPassword = "3FC0A7ACF087F549AC2B266BAF94B8B1";
 
-        when(authServiceImpl.encryptPassword(anyString())).thenReturn(encryptedPassword);
-        when(userRepository.findByEmailAndPassword(anyString(), anyString())).thenReturn(null);
-        when(userAuthDetailsServiceImpl.getUserAuthDetailsFromUserEntity(any())).thenReturn(userAuthDetailsEntity);
+        when(userRepository.findCredentialsByEmail(anyString())).thenReturn(Optional.of(credentialsOf(user1)));
+        when(authServiceImpl.verifyPassword(anyString(), anyString())).thenReturn(false);
+        when(userAuthDetailsServiceImpl.getUserAuthDetailsByUserId(anyLong())).thenReturn(userAuthDetailsEntity);
 
         UserAuthDetailsEntity userDetailsReturned = userServiceImpl.performUserLogin("jan_kowalski@gmail.com", "qwerty123");
+        //should throw exception related to state in which password is not matching
+
+        verify(userRepository, times(1)).findCredentialsByEmail(anyString());
+    }
+
+    @Test(expected = UserAuthenticationException.class)
+    public void testPerformUserLoginUnknownEmail() {
+        when(userRepository.findCredentialsByEmail(anyString())).thenReturn(Optional.empty());
+
+        userServiceImpl.performUserLogin("unknown@gmail.com", "qwerty123");
         //should throw exception related to state in which user was not found in database
 
-        verify(userRepository, times(1)).findByEmailAndPassword(anyString(), anyString());
+        verify(authServiceImpl, never()).verifyPassword(anyString(), anyString());
     }
 
     @Test
@@ -134,7 +216,7 @@ public class UserServiceImplTest {
         String authToken = "5fa20d26-9982-4404-96d7-8ebcd5421ea6";
 
         when(userRepository.findByEmail(anyString())).thenReturn(null);
-        when(authServiceImpl.encryptPassword(anyString())).thenReturn(encryptedPassword);
+        when(authServiceImpl.hashPassword(anyString())).thenReturn(encryptedPassword);
         when(authServiceImpl.generateToken()).thenReturn(authToken);
         when(userRepository.save(any())).thenReturn(user1);
         when(userAuthDetailsRepository.save(any())).thenReturn(userAuthDetailsEntity);
@@ -161,9 +243,10 @@ public class UserServiceImplTest {
         String authToken = "5fa20d26-9982-4404-96d7-8ebcd5421ea6";
 
         when(userRepository.findByEmail(anyString())).thenReturn(user1);
-        when(authServiceImpl.encryptPassword(anyString())).thenReturn(encryptedPassword);
-        when(userRepository.findByEmailAndPassword(anyString(), anyString())).thenReturn(user1);
-        when(userAuthDetailsServiceImpl.getUserAuthDetailsFromUserEntity(any())).thenReturn(userAuthDetailsEntity);
+        when(userRepository.findCredentialsByEmail(anyString())).thenReturn(Optional.of(credentialsOf(user1)));
+        when(authServiceImpl.verifyPassword(anyString(), anyString())).thenReturn(true);
+        when(authServiceImpl.isPasswordRehashNeeded(anyString())).thenReturn(false);
+        when(userAuthDetailsServiceImpl.getUserAuthDetailsByUserId(anyLong())).thenReturn(userAuthDetailsEntity);
         when(authServiceImpl.generateToken()).thenReturn(authToken);
 
         UserAuthDetailsEntity userDetailsReturned = userServiceImpl.performUserRegistration("Jan", "Kowalski", "jan_kowalski@gmail.com", "qwerty123");
@@ -172,10 +255,11 @@ public class UserServiceImplTest {
         assertEquals(userAuthDetailsEntity, userDetailsReturned);
 
         verify(userRepository, times(1)).findByEmail(anyString());
+        verify(userRepository, times(1)).findCredentialsByEmail(anyString());
         verify(userRepository, never()).findAll();
         verify(userRepository, never()).save(any(UserEntity.class));
         verify(userAuthDetailsRepository, never()).save(any(UserAuthDetailsEntity.class));
-        verify(userRepository, times(1)).findByEmailAndPassword(anyString(), anyString());
+        verify(authServiceImpl, never()).hashPassword(anyString());
     }
 
     @Test(expected = EmailAlreadyExistsInDatabaseException.class)
@@ -189,8 +273,7 @@ public class UserServiceImplTest {
         String authToken = "5fa20d26-9982-4404-96d7-8ebcd5421ea6";
 
         when(userRepository.findByEmail(anyString())).thenReturn(user1);
-        when(authServiceImpl.encryptPassword(anyString())).thenReturn(encryptedPassword);
-        when(userRepository.findByEmailAndPassword(anyString(), anyString())).thenReturn(user1);
+        when(authServiceImpl.verifyPassword(anyString(), anyString())).thenReturn(true);
         when(userAuthDetailsServiceImpl.getUserAuthDetailsFromUserEntity(any())).thenReturn(userAuthDetailsEntity);
         when(authServiceImpl.generateToken()).thenReturn(authToken);
 
@@ -234,6 +317,31 @@ public class UserServiceImplTest {
         verify(taskRepository, times(1)).save(any(TaskEntity.class));
         verify(userRepository, times(1)).delete(any(UserEntity.class));
         verify(userAuthDetailsRepository, times(1)).delete(any(UserAuthDetailsEntity.class));
+        verify(authServiceImpl, times(1)).invalidateToken("1231-123-123");
+    }
+
+    @Test
+    public void testPerformUserDeletionRemovesDataOfSupervisedProjects() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+
+        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "qwerty123");
+        user1.setId(1L);
+        user1.setTasks(new HashSet<>());
+
+        projectMembershipCache.put(2L, Arrays.asList(1L, 3L), projectMembershipCache.currentStamp());
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(userRepository.findById(anyLong())).thenReturn(Optional.of(user1));
+        when(projectRepository.findIdsBySupervisorId(1L)).thenReturn(Collections.singletonList(2L));//project is deleted by cascade
+
+        userServiceImpl.performUserDeletion("1231-123-123");
+
+        InOrder inOrder = inOrder(projectVersionRepository, userRepository);
+        inOrder.verify(projectVersionRepository).incrementAll(Collections.singleton(2L));//version is locked first
+        inOrder.verify(userRepository).delete(user1);
+        inOrder.verify(projectVersionRepository).deleteByProjectId(2L);
+        verify(taskTombstoneRepository, times(1)).deleteByProjectId(2L);
+        assertFalse(projectMembershipCache.isMember(2L, 3L).isPresent());
     }
 
 
@@ -281,12 +389,14 @@ public class UserServiceImplTest {
 
         String encryptedPassword = "3FC0A7ACF087F549AC2B266BAF94B8B1";
 
-        when(authServiceImpl.encryptPassword(anyString())).thenReturn(encryptedPassword);
+        when(authServiceImpl.verifyPassword(anyString(), anyString())).thenReturn(true);
+        when(authServiceImpl.hashPassword(anyString())).thenReturn(encryptedPassword);
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(userRepository.findById(any())).thenReturn(userEntityOptional);
 
         userServiceImpl.performUserPasswordChangeOperation("1231-123-123", "qwerty123", "pass123");
 
+        verify(authServiceImpl, times(1)).verifyPassword("qwerty123", "3FC0A7ACF087F549AC2B266BAF94B8B1");
         verify(userRepository, times(1)).save(any(UserEntity.class));
     }
 
@@ -301,7 +411,8 @@ public class UserServiceImplTest {
 
         String encryptedPassword = "3FC0A7ACF087F549AC2B266BAF94B8B1";
 
-        when(authServiceImpl.encryptPassword(anyString())).thenReturn(encryptedPassword);
+        when(authServiceImpl.verifyPassword(anyString(), anyString())).thenReturn(false);
+        when(authServiceImpl.hashPassword(anyString())).thenReturn(encryptedPassword);
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(userRepository.findById(any())).thenReturn(userEntityOptional);
 
@@ -327,6 +438,10 @@ public class UserServiceImplTest {
         when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
         when(userRepository.findById(any())).thenReturn(userEntityOptional);
         when(userRepository.save(any(UserEntity.class))).thenReturn(changedUser);
+        when(projectVersionRepository.findProjectIdsOfMember(1L)).thenReturn(Arrays.asList(3L, 4L));
+        when(taskRepository.findProjectIdsOfAssignee(1L)).thenReturn(Arrays.asList(4L, 5L));
+        when(projectVersionRepository.findVersion(3L)).thenReturn(Optional.of(10L));
+        when(projectVersionRepository.findVersion(4L)).thenReturn(Optional.of(20L));
 
         UserEntity userReturned = userServiceImpl.performUserModification("1231-123-123", changedUser);
 
@@ -335,6 +450,32 @@ public class UserServiceImplTest {
 
         verify(authServiceImpl, times(1)).authenticateUserByToken(anyString());
         verify(userRepository, times(1)).save(any(UserEntity.class));
+        verify(projectVersionRepository, times(1)).incrementAll(new TreeSet<>(Arrays.asList(3L, 4L, 5L)));//user's names are shown in lists of these projects
+        verify(taskRepository, times(1)).updateModifiedSeqOfAssignedTasks(1L, 3L, 10L);
+        verify(taskRepository, times(1)).updateModifiedSeqOfAssignedTasks(1L, 4L, 20L);
+        verify(taskRepository, never()).updateModifiedSeqOfAssignedTasks(eq(1L), eq(5L), anyLong());//project without version
+    }
+
+    @Test(expected = EmailAlreadyExistsInDatabaseException.class)
+    public void testPerformUserModificationEmailTaken() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+
+        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
+        user1.setId(1L);
+
+        UserEntity user2 = new UserEntity("Marek", "Kostrzewa", "marek_kostrzewa@gmail.com", "pass123");
+        user2.setId(2L);
+
+        UserEntity changedUser = new UserEntity("Jan", "Kowalski", "marek_kostrzewa@gmail.com", "pass");
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(userRepository.findById(any())).thenReturn(Optional.of(user1));
+        when(userRepository.findByEmail("marek_kostrzewa@gmail.com")).thenReturn(user2);
+
+        userServiceImpl.performUserModification("1231-123-123", changedUser);
+        //should throw exception related to state in which email is already used by another user
+
+        verify(userRepository, never()).save(any(UserEntity.class));
     }
 
     @Test
@@ -411,9 +552,10 @@ public class UserServiceImplTest {
         user1.setTasks(tasks);
         user1.setProjects(projects);
 
-        userServiceImpl.updateTasksDataAfterUserDeletion(user1);
+        userServiceImpl.updateTasksDataAfterUserDeletion(user1, Collections.singletonMap(1L, 5L));
 
         verify(taskRepository, times(1)).save(any(TaskEntity.class));
+        assertEquals(5L, task.getModifiedSeq());//stamped with new version of its project
     }
 
     @Test
@@ -440,8 +582,45 @@ public class UserServiceImplTest {
         user1.setTasks(tasks);
         user1.setProjects(projects);
 
-        userServiceImpl.updateTasksDataAfterUserDeletion(user1);
+        userServiceImpl.updateTasksDataAfterUserDeletion(user1, Collections.singletonMap(1L, 5L));
 
         verify(taskRepository, never()).save(any(TaskEntity.class));
     }
-}
\ No newline at end of file
+
+    private UserCredentials credentialsOf(UserEntity userEntity) {
+        return new UserCredentials() {
+            public Long getId() {
+                return userEntity.getId();
+            }
+
+            public String getPassword() {
+                return userEntity.getPassword();
+            }
+        };
+    }
+
+    @Test
+    public void testGetPageOfUsersWithoutTotalCount() {
+        UserAuthDetailsEntity userAuthDetailsEntity = new UserAuthDetailsEntity(1L, "1231-123-123");
+        UserEntity user1 = new UserEntity("Jan", "Kowalski", "jan_kowalski@gmail.com", "pass");
+        user1.setId(1L);
+        Pageable pageable = PageRequest.of(0, 20);
+        SliceImpl<UserEntity> slice = new SliceImpl<>(Collections.singletonList(user1), pageable, false);
+
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(userAuthDetailsEntity);
+        when(userRepository.findAllBy(pageable)).thenReturn(slice);
+
+        assertEquals(slice, userServiceImpl.getPageOfUsers("1231-123-123", pageable, false));
+
+        verify(userRepository, times(1)).findAllBy(pageable);
+        verify(userRepository, never()).findAll(pageable);
+    }
+
+    @Test(expected = UserAuthenticationException.class)
+    public void testGetPageOfUsersFailure() {
+        when(authServiceImpl.authenticateUserByToken(anyString())).thenReturn(null);
+
+        userServiceImpl.getPageOfUsers("1231-123-123", PageRequest.of(0, 20), true);
+        //Should throw exception related to failure in authentication
+    }
+}
@@ -0,0 +1,161 @@
+package pl.asap.asapbe.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import pl.asap.asapbe.entities.Priority;
+import pl.asap.asapbe.entities.Status;
+import pl.asap.asapbe.response_model.TaskBoardEvent;
+import pl.asap.asapbe.response_model.TaskSummary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.*;
+
+public class TaskBoardBroadcasterTest {
+
+    static final int SENDER_THREADS = 4;
+
+    TaskBoardBroadcaster taskBoardBroadcaster;
+
+    @Before
+    public void setUp() {
+        taskBoardBroadcaster = new TaskBoardBroadcaster(new ObjectMapper(), 16, 60, SENDER_THREADS, 200);
+    }
+
+    @After
+    public void tearDown() {
+        taskBoardBroadcaster.shutdown();
+    }
+
+    @Test
+    public void testEventIsDeliveredToSubscribersOfItsProject() throws Exception {
+        RecordingSink sinkOfProject1 = new RecordingSink();
+        RecordingSink sinkOfProject2 = new RecordingSink();
+        taskBoardBroadcaster.subscribe(1L, sinkOfProject1);
+        taskBoardBroadcaster.subscribe(2L, sinkOfProject2);
+
+        taskBoardBroadcaster.publish(TaskBoardEvent.changed(TaskBoardEvent.Type.CREATED, 1L,
+                new TaskSummary(5L, "Test task", "Description for test task", Status.OPEN, Priority.HIGH, null), 7L));
+        taskBoardBroadcaster.publish(TaskBoardEvent.deleted(2L, 6L, 3L));
+
+        String received = sinkOfProject1.messages.poll(10, TimeUnit.SECONDS);
+        assertTrue(received.startsWith("CREATED 7 "));
+        assertTrue(received.contains("\"title\":\"Test task\""));
+        assertTrue(sinkOfProject2.messages.poll(10, TimeUnit.SECONDS).startsWith("DELETED 3 "));
+        assertNull(sinkOfProject1.messages.poll());
+        assertNull(sinkOfProject2.messages.poll());
+    }
+
+    @Test
+    public void testCancelledSubscriptionReceivesNothing() throws Exception {
+        RecordingSink cancelledSink = new RecordingSink();
+        RecordingSink activeSink = new RecordingSink();
+        taskBoardBroadcaster.subscribe(1L, cancelledSink).cancel();
+        taskBoardBroadcaster.subscribe(1L, activeSink);
+
+        taskBoardBroadcaster.publish(TaskBoardEvent.deleted(1L, 6L, 3L));
+
+        assertNotNull(activeSink.messages.poll(10, TimeUnit.SECONDS));
+        assertNull(cancelledSink.messages.poll());
+        assertEquals(1, taskBoardBroadcaster.getSubscriptionCount());
+    }
+
+    @Test
+    public void testFailingSubscriberIsRemoved() throws Exception {
+        RecordingSink failingSink = new RecordingSink() {
+            public void send(String name, long id, String data) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        TaskBoardBroadcaster.Subscription subscription = taskBoardBroadcaster.subscribe(1L, failingSink);
+
+        taskBoardBroadcaster.publish(TaskBoardEvent.deleted(1L, 6L, 3L));
+
+        assertTrue(failingSink.closed.await(10, TimeUnit.SECONDS));
+        assertTrue(subscription.isCancelled());
+        assertEquals(0, taskBoardBroadcaster.getSubscriptionCount());
+        assertEquals(0, taskBoardBroadcaster.getDroppedSubscriptionCount());
+    }
+
+    /**
+     * Load test - 10 000 subscribers of one project and twice as many clients that stopped reading as there are sender
+     * threads, each blocking a sender thread in its first send. Publisher must not wait for the stuck ones and they must
+     * not take sender threads from the others - all other subscribers get every event, stuck ones are dropped.
+     */
+    @Test(timeout = 120_000)
+    public void testStuckSubscribersAreDroppedWithoutStallingOthers() throws Exception {
+        int subscribers = 10_000;
+        AtomicLong delivered = new AtomicLong();
+        for (int i = 0; i < subscribers; i++) {
+            taskBoardBroadcaster.subscribe(1L, new TaskBoardBroadcaster.Sink() {
+                public void send(String name, long id, String data) {
+                    delivered.incrementAndGet();
+                }
+
+                public void close() {
+                }
+            });
+        }
+        int stuckSubscribers = 2 * SENDER_THREADS;
+        CountDownLatch release = new CountDownLatch(1);
+        List<RecordingSink> stuckSinks = new ArrayList<>();
+        List<TaskBoardBroadcaster.Subscription> stuckSubscriptions = new ArrayList<>();
+        for (int i = 0; i < stuckSubscribers; i++) {
+            RecordingSink stuckSink = new RecordingSink() {
+                public void send(String name, long id, String data) throws IOException {
+                    try {
+                        release.await();//client not reading, sender thread is blocked on the socket
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+            };
+            stuckSinks.add(stuckSink);
+            stuckSubscriptions.add(taskBoardBroadcaster.subscribe(1L, stuckSink));
+        }
+
+        long modifiedSeq = 0;
+        int rounds = 5, eventsPerRound = 10;//50 events, more than buffer of 16
+        for (int round = 1; round <= rounds; round++) {
+            for (int i = 0; i < eventsPerRound; i++)
+                taskBoardBroadcaster.publish(TaskBoardEvent.deleted(1L, modifiedSeq, ++modifiedSeq));
+            awaitValue((long) round * eventsPerRound * subscribers, delivered::get);
+        }
+
+        for (TaskBoardBroadcaster.Subscription stuckSubscription : stuckSubscriptions)
+            assertTrue(stuckSubscription.isCancelled());
+        assertEquals(stuckSubscribers, taskBoardBroadcaster.getDroppedSubscriptionCount());
+        assertEquals(subscribers, taskBoardBroadcaster.getSubscriptionCount());
+        release.countDown();
+        for (RecordingSink stuckSink : stuckSinks)
+            assertTrue(stuckSink.closed.await(10, TimeUnit.SECONDS));
+        awaitValue(SENDER_THREADS, () -> taskBoardBroadcaster.getSenderThreadCount());//extra threads are released
+    }
+
+    private static void awaitValue(long expected, LongSupplier actual) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (actual.getAsLong() != expected && System.nanoTime() < deadline)
+            Thread.sleep(5);
+        assertEquals(expected, actual.getAsLong());
+    }
+
+    static class RecordingSink implements TaskBoardBroadcaster.Sink {
+        final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        public void send(String name, long id, String data) throws IOException {
+            messages.add(name + " " + id + " " + data);
+        }
+
+        public void close() {
+            closed.countDown();
+        }
+    }
+}